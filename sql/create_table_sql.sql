@@ -117,3 +117,50 @@ create table if not exists space_user
     INDEX idx_userId (userId)                       -- 提升按用户查询的性能
 ) comment '空间用户关联' collate = utf8mb4_unicode_ci;
 
+
+-- 游标分页联合索引，按 (spaceId, reviewStatus) 过滤后直接按 (createTime, id) 定位，避免深分页扫描
+CREATE INDEX idx_spaceId_reviewStatus_createTime_id ON picture (spaceId, reviewStatus, createTime, id);
+-- 默认按 id 排序的游标分页：上面的索引中 createTime 在 id 之前，无法按 id 有序读取
+CREATE INDEX idx_spaceId_reviewStatus_id ON picture (spaceId, reviewStatus, id);
+
+-- 图片标签索引表，由服务层与 picture.tags 保持同步，按标签过滤和统计时代替 JSON LIKE 扫描
+create table if not exists picture_tag
+(
+    id         bigint auto_increment comment 'id' primary key,
+    pictureId  bigint                             not null comment '图片 id',
+    tag        varchar(512)                       not null comment '标签',
+    spaceId    bigint                             null comment '空间 id（为空表示公共空间）',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    -- 索引设计
+    UNIQUE KEY uk_pictureId_tag (pictureId, tag), -- 同一图片的标签不重复
+    INDEX idx_tag_pictureId (tag, pictureId),     -- 按标签查图片
+    INDEX idx_spaceId_tag (spaceId, tag)          -- 按空间统计标签
+) comment '图片标签' collate = utf8mb4_unicode_ci;
+
+-- 从 picture.tags 回填已有数据（MySQL 8.0+）
+INSERT IGNORE INTO picture_tag (pictureId, tag, spaceId)
+SELECT p.id, jt.tag, p.spaceId
+FROM picture p,
+     JSON_TABLE(p.tags, '$[*]' COLUMNS (tag varchar(512) PATH '$')) jt
+WHERE p.isDelete = 0
+  AND JSON_VALID(p.tags)
+  AND jt.tag IS NOT NULL
+  AND jt.tag != '';
+
+-- 图片内容摘要，上传时相同内容复用已有的对象存储文件
+ALTER TABLE picture
+    ADD COLUMN contentHash char(64) null comment '原始文件 SHA-256 摘要';
+CREATE INDEX idx_contentHash ON picture (contentHash);
+
+-- 图片缩放版本（响应式图片 srcset），上传时一次生成
+ALTER TABLE picture
+    ADD COLUMN renditions json null comment '缩放版本列表（url、宽高、格式、体积）';
+
+-- 图片调色板（最多 5 个颜色及占比），用于按调色板搜索
+ALTER TABLE picture
+    ADD COLUMN palette varchar(64) null comment '调色板，格式 RRGGBB:占比百分数，逗号分隔';
+
+-- 图片感知哈希，用于在站内以图搜图（汉明距离）
+ALTER TABLE picture
+    ADD COLUMN phash bigint null comment '感知哈希 pHash',
+    ADD COLUMN dhash bigint null comment '差异哈希 dHash';
@@ -1,20 +1,23 @@
 package com.zzm.picturebackend.api.aliyunai;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.ContentType;
-import cn.hutool.http.Header;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
+import cn.hutool.http.HttpStatus;
 import cn.hutool.json.JSONUtil;
 import com.zzm.picturebackend.api.aliyunai.model.CreateOutPaintingTaskRequest;
 import com.zzm.picturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
 import com.zzm.picturebackend.api.aliyunai.model.GetOutPaintingTaskResponse;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.manager.http.OutboundHttpClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
 @Slf4j
 @Component
 public class AliYunAiApi {
@@ -28,6 +31,12 @@ public class AliYunAiApi {
     // 查询任务状态
     public static final String GET_OUT_PAINTING_TASK_URL = "https://dashscope.aliyuncs.com/api/v1/tasks/%s";
 
+    // 监控中的集成方名称
+    private static final String INTEGRATION = "aliyun-ai";
+
+    @Resource
+    private OutboundHttpClient outboundHttpClient;
+
     /**
      * 创建任务
      *
@@ -39,26 +48,29 @@ public class AliYunAiApi {
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "扩图参数为空");
         }
         // 发送请求
-        HttpRequest httpRequest = HttpRequest.post(CREATE_OUT_PAINTING_TASK_URL)
-                .header(Header.AUTHORIZATION, "Bearer " + apiKey)
+        HttpRequest.Builder httpRequest = outboundHttpClient.newRequest(CREATE_OUT_PAINTING_TASK_URL)
+                .header("Authorization", "Bearer " + apiKey)
                 // 必须开启异步处理，设置为enable。
-                .header("X-DashScope-Async", "enable")
-                .header(Header.CONTENT_TYPE, ContentType.JSON.getValue())
-                .body(JSONUtil.toJsonStr(createOutPaintingTaskRequest));
-        try (HttpResponse httpResponse = httpRequest.execute()) {
-            if (!httpResponse.isOk()) {
-                log.error("请求异常：{}", httpResponse.body());
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "AI 扩图失败");
-            }
-            CreateOutPaintingTaskResponse response = JSONUtil.toBean(httpResponse.body(), CreateOutPaintingTaskResponse.class);
-            String errorCode = response.getCode();
-            if (StrUtil.isNotBlank(errorCode)) {
-                String errorMessage = response.getMessage();
-                log.error("AI 扩图失败，errorCode:{}, errorMessage:{}", errorCode, errorMessage);
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "AI 扩图接口响应异常");
-            }
-            return response;
+                .header("X-DashScope-Async", "enable");
+        HttpResponse<String> httpResponse;
+        try {
+            httpResponse = outboundHttpClient.postJson(INTEGRATION, httpRequest, JSONUtil.toJsonStr(createOutPaintingTaskRequest));
+        } catch (IOException e) {
+            log.error("请求异常", e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "AI 扩图失败");
         }
+        if (httpResponse.statusCode() != HttpStatus.HTTP_OK) {
+            log.error("请求异常：{}", httpResponse.body());
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "AI 扩图失败");
+        }
+        CreateOutPaintingTaskResponse response = JSONUtil.toBean(httpResponse.body(), CreateOutPaintingTaskResponse.class);
+        String errorCode = response.getCode();
+        if (StrUtil.isNotBlank(errorCode)) {
+            String errorMessage = response.getMessage();
+            log.error("AI 扩图失败，errorCode:{}, errorMessage:{}", errorCode, errorMessage);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "AI 扩图接口响应异常");
+        }
+        return response;
     }
 
     /**
@@ -71,13 +83,19 @@ public class AliYunAiApi {
         if (StrUtil.isBlank(taskId)) {
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "任务 id 不能为空");
         }
-        try (HttpResponse httpResponse = HttpRequest.get(String.format(GET_OUT_PAINTING_TASK_URL, taskId))
-                .header(Header.AUTHORIZATION, "Bearer " + apiKey)
-                .execute()) {
-            if (!httpResponse.isOk()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取任务失败");
-            }
-            return JSONUtil.toBean(httpResponse.body(), GetOutPaintingTaskResponse.class);
+        HttpResponse<String> httpResponse;
+        try {
+            httpResponse = outboundHttpClient.send(INTEGRATION, outboundHttpClient.newRequest(String.format(GET_OUT_PAINTING_TASK_URL, taskId))
+                    .header("Authorization", "Bearer " + apiKey)
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            log.error("请求异常", e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取任务失败");
+        }
+        if (httpResponse.statusCode() != HttpStatus.HTTP_OK) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取任务失败");
         }
+        return JSONUtil.toBean(httpResponse.body(), GetOutPaintingTaskResponse.class);
     }
 }
@@ -4,7 +4,9 @@ import com.zzm.picturebackend.api.imagesearch.so.model.SoImageSearchResult;
 import com.zzm.picturebackend.api.imagesearch.so.sub.GetSoImageListApi;
 import com.zzm.picturebackend.api.imagesearch.so.sub.GetSoImageUrlApi;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
 import java.util.List;
 
 /**
@@ -13,8 +15,15 @@ import java.util.List;
  * 这里用了 门面模式
  */
 @Slf4j
+@Component
 public class SoImageSearchApiFacade {
 
+	@Resource
+	private GetSoImageUrlApi getSoImageUrlApi;
+
+	@Resource
+	private GetSoImageListApi getSoImageListApi;
+
 	/**
 	 * 搜索图片
 	 *
@@ -22,16 +31,9 @@ public class SoImageSearchApiFacade {
 	 * @param start    开始下表
 	 * @return 图片搜索结果列表
 	 */
-	public static List<SoImageSearchResult> searchImage(String imageUrl, Integer start) {
-		String soImageUrl = GetSoImageUrlApi.getSoImageUrl(imageUrl);
-		List<SoImageSearchResult> imageList = GetSoImageListApi.getImageList(soImageUrl, start);
+	public List<SoImageSearchResult> searchImage(String imageUrl, Integer start) {
+		String soImageUrl = getSoImageUrlApi.getSoImageUrl(imageUrl);
+		List<SoImageSearchResult> imageList = getSoImageListApi.getImageList(soImageUrl, start);
 		return imageList;
 	}
-
-	public static void main(String[] args) {
-		// 测试以图搜图功能
-		String imageUrl = "https://baolong-picture-1259638363.cos.ap-shanghai.myqcloud.com//public/10000000/2025-02-15_lzn23PuxZqt8CPB1.";
-		List<SoImageSearchResult> resultList = searchImage(imageUrl, 0);
-		System.out.println("结果列表" + resultList);
-	}
 }
@@ -1,16 +1,19 @@
 package com.zzm.picturebackend.api.imagesearch.so.sub;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpStatus;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.zzm.picturebackend.api.imagesearch.so.model.SoImageSearchResult;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.manager.http.OutboundHttpClient;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.net.http.HttpResponse;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,24 +26,36 @@ import java.util.Map;
  * @since 1.8
  */
 @Slf4j
+@Component
 public class GetSoImageListApi {
 
+	/**
+	 * 监控中的集成方名称
+	 */
+	private static final String INTEGRATION = "so-image-list";
+
+	@Resource
+	private OutboundHttpClient outboundHttpClient;
+
 	/**
 	 * 获取图片列表
 	 *
 	 * @param imageUrl 图片地址, 在 360 库中的地址
 	 * @return 图片列表对象
 	 */
-	public static List<SoImageSearchResult> getImageList(String imageUrl, Integer start) {
+	public List<SoImageSearchResult> getImageList(String imageUrl, Integer start) {
 		String url = "https://st.so.com/stu?a=mrecomm&start=" + start;
 		Map<String, Object> formData = new HashMap<>();
 		formData.put("img_url", imageUrl);
-		HttpResponse response = HttpRequest.post(url)
-				.form(formData)
-				.timeout(5000)
-				.execute();
+		HttpResponse<String> response;
+		try {
+			response = outboundHttpClient.postForm(INTEGRATION, url, formData);
+		} catch (IOException e) {
+			log.error("搜图失败", e);
+			throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
+		}
 		// 判断响应状态
-		if (HttpStatus.HTTP_OK != response.getStatus()) {
+		if (HttpStatus.HTTP_OK != response.statusCode()) {
 			throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
 		}
 		// 解析响应
@@ -63,11 +78,4 @@ public class GetSoImageListApi {
 		}
 		return result;
 	}
-
-	public static void main(String[] args) {
-		List<SoImageSearchResult> imageList = getImageList("http://p0.so.qhimg.com/t0257d29c212fceba5e.jpg", 0);
-		System.out.println("搜索结果: " + JSONUtil.parse(imageList));
-	}
-
 }
-
@@ -1,21 +1,41 @@
 package com.zzm.picturebackend.api.imagesearch.so.sub;
 
+import cn.hutool.http.HttpStatus;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.manager.http.OutboundHttpClient;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.net.http.HttpResponse;
 
 /**
  * 获取360搜图的图片的接口
  */
 @Slf4j
+@Component
 public class GetSoImageUrlApi {
-	public static String getSoImageUrl(String imageUrl) {
+
+	/**
+	 * 监控中的集成方名称
+	 */
+	private static final String INTEGRATION = "so-image-url";
+
+	@Resource
+	private OutboundHttpClient outboundHttpClient;
+
+	public String getSoImageUrl(String imageUrl) {
 		String url = "https://st.so.com/r?src=st&srcsp=home&img_url=" + imageUrl + "&submittype=imgurl";
 		try {
-			Document document = Jsoup.connect(url).timeout(5000).get();
+			HttpResponse<String> response = outboundHttpClient.get(INTEGRATION, url);
+			if (HttpStatus.HTTP_OK != response.statusCode()) {
+				throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
+			}
+			Document document = Jsoup.parse(response.body(), url);
 			Element imgElement = document.selectFirst(".img_img");
 			if (imgElement != null) {
 				String soImageUrl = "";
@@ -37,10 +57,4 @@ public class GetSoImageUrlApi {
 			throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
 		}
 	}
-
-	public static void main(String[] args) {
-		String imageUrl = "https://baolong-picture-1259638363.cos.ap-shanghai.myqcloud.com//public/10000000/2025-02-15_ILJxljPdt9Kv1EM1.";
-		String result = getSoImageUrl(imageUrl);
-		System.out.println("搜索成功，结果 URL：" + result);
-	}
 }
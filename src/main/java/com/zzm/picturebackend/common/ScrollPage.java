@@ -0,0 +1,33 @@
+package com.zzm.picturebackend.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 滚动分页结果（不查询总数）
+ * 适用于无限滚动场景，通过 hasMore 判断是否还有下一页，游标模式下通过 nextCursor 翻页
+ *
+ * @param <T> 记录类型
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class ScrollPage<T> extends Page<T> {
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 下一页游标（游标模式下有效，没有下一页时为空）
+     */
+    private String nextCursor;
+
+    public ScrollPage(long current, long size) {
+        // 不执行 COUNT 查询
+        super(current, size, false);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
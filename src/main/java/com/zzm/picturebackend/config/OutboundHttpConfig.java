@@ -0,0 +1,36 @@
+package com.zzm.picturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 对外 HTTP 请求配置（抓图、AI 扩图、以图搜图等）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbound.http")
+@Data
+public class OutboundHttpConfig {
+
+    /**
+     * 建立连接超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(3);
+
+    /**
+     * 等待响应超时时间（收到响应头为止）
+     */
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 流式响应读取响应体的总时间上限（从收到响应头开始），超时后断开连接
+     */
+    private Duration bodyTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 请求使用的 User-Agent
+     */
+    private String userAgent = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36";
+}
@@ -0,0 +1,43 @@
+package com.zzm.picturebackend.config;
+
+import com.zzm.picturebackend.manager.cache.codec.BinaryPictureCacheCodec;
+import com.zzm.picturebackend.manager.cache.codec.JsonPictureCacheCodec;
+import com.zzm.picturebackend.manager.cache.codec.Lz4PictureCacheCodec;
+import com.zzm.picturebackend.manager.cache.codec.PictureCacheCodec;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 图片列表缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.cache")
+@Data
+public class PictureCacheConfig {
+
+    /**
+     * 缓存编码格式：binary-紧凑二进制 json-Hutool JSON
+     */
+    private String codec = "binary";
+
+    /**
+     * 是否使用 LZ4 压缩
+     */
+    private boolean compress = true;
+
+    /**
+     * 本地缓存容量上限（按编码后的字节数计算）
+     */
+    private DataSize localMaxSize = DataSize.ofMegabytes(64);
+
+    @Bean
+    public PictureCacheCodec pictureCacheCodec() {
+        PictureCacheCodec pictureCacheCodec = "json".equalsIgnoreCase(codec)
+                ? new JsonPictureCacheCodec()
+                : new BinaryPictureCacheCodec();
+        return compress ? new Lz4PictureCacheCodec(pictureCacheCodec) : pictureCacheCodec;
+    }
+}
@@ -0,0 +1,104 @@
+package com.zzm.picturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 图片上传配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.upload")
+@Data
+public class PictureUploadConfig {
+
+    /**
+     * 是否使用流式上传（不落临时文件，直接将请求体或远程响应体写入对象存储）
+     */
+    private boolean streaming = true;
+
+    /**
+     * 是否按内容摘要去重（相同内容复用已有的对象存储文件）
+     */
+    private boolean dedup = true;
+
+    /**
+     * 近似重复图片（重新编码、缩放后的同一张图）的默认处理策略：allow 允许，reuse 返回已有图片，reject 拒绝上传
+     */
+    private String duplicatePolicy = "reuse";
+
+    /**
+     * 近似重复判定：pHash 最大汉明距离
+     */
+    private int duplicateDistance = 6;
+
+    /**
+     * 近似重复判定：dHash 最大汉明距离（任一方没有 dHash 时不检查）
+     */
+    private int duplicateDhashDistance = 10;
+
+    /**
+     * 近似重复判定：宽高比的最大相对误差
+     */
+    private double duplicateAspectTolerance = 0.02;
+
+    /**
+     * 近似重复判定：短边小于该值的图片（图标等）哈希区分度低，不参与检测
+     */
+    private int duplicateMinSide = 64;
+
+    /**
+     * 图片处理引擎：ci 使用数据万象处理，local 在应用内处理（可脱离数据万象测试和压测）
+     */
+    private String engine = "ci";
+
+    /**
+     * 本地处理引擎的线程数，不大于 0 时等于 CPU 核数
+     */
+    private int localEngineThreads = 0;
+
+    /**
+     * 缩放版本的边长（等比缩小到宽高都不超过该值，原图不超过时不生成），用于响应式图片 srcset
+     */
+    private List<Integer> renditionSizes = Arrays.asList(256, 512, 1024);
+
+    /**
+     * 缩放版本的格式（数据万象支持 webp、avif 等；本地引擎只能输出 jpg / png，会自动替换）
+     */
+    private List<String> renditionFormats = Collections.singletonList("webp");
+
+    /**
+     * 异步上传线程数
+     */
+    private int asyncPoolSize = 4;
+
+    /**
+     * 异步上传排队任务上限
+     */
+    private int asyncQueueCapacity = 100;
+
+    /**
+     * 批量抓取时同时进行的上传数
+     */
+    private int batchParallelism = 6;
+
+    /**
+     * 批量抓取时同一站点的最大并发数
+     */
+    private int batchPerHostLimit = 2;
+
+    /**
+     * 分片上传的分片大小（对象存储要求除最后一片外不小于 1MB）
+     */
+    private DataSize chunkSize = DataSize.ofMegabytes(5);
+
+    /**
+     * 分片上传允许的最大文件大小
+     */
+    private DataSize chunkMaxFileSize = DataSize.ofMegabytes(100);
+}
@@ -0,0 +1,70 @@
+package com.zzm.picturebackend.config;
+
+import cn.hutool.core.util.StrUtil;
+import com.qcloud.cos.COSClient;
+import com.zzm.picturebackend.manager.storage.CosObjectStorage;
+import com.zzm.picturebackend.manager.storage.LocalObjectStorage;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 对象存储后端配置
+ * type = cos 使用腾讯云 COS；type = local 使用本地磁盘，文件由本应用通过 /storage/** 对外提供访问
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+@Data
+public class StorageConfig implements WebMvcConfigurer {
+
+    /**
+     * 本地存储对外访问的路径
+     */
+    private static final String LOCAL_RESOURCE_PATH = "/storage/**";
+
+    /**
+     * 存储后端：cos 或 local
+     */
+    private String type = "cos";
+
+    /**
+     * 本地存储的根目录
+     */
+    private String localRoot = "./data/storage";
+
+    /**
+     * 本地存储的访问地址前缀（需指向本应用的 /storage 路径）
+     */
+    private String localHost = "http://localhost:8123/api/storage";
+
+    /**
+     * 是否使用腾讯云 COS（分片上传、数据万象处理依赖 COS）
+     */
+    public boolean isCos() {
+        return !"local".equals(type);
+    }
+
+    @Bean
+    public ObjectStorage objectStorage(COSClient cosClient, CosClientConfig cosClientConfig) throws IOException {
+        if (isCos()) {
+            return new CosObjectStorage(cosClient, cosClientConfig);
+        }
+        return new LocalObjectStorage(Paths.get(localRoot), localHost);
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        if (!isCos()) {
+            // 静态资源处理器自带 Range、缓存协商和路径穿越校验
+            registry.addResourceHandler(LOCAL_RESOURCE_PATH)
+                    .addResourceLocations(StrUtil.addSuffixIfNot(Paths.get(localRoot).toAbsolutePath().normalize().toUri().toString(), "/"));
+        }
+    }
+}
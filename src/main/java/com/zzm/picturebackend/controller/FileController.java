@@ -1,7 +1,5 @@
 package com.zzm.picturebackend.controller;
 
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.COSObjectInputStream;
 import com.qcloud.cos.utils.IOUtils;
 import com.zzm.picturebackend.annotation.AuthCheck;
 import com.zzm.picturebackend.common.BaseResponse;
@@ -9,7 +7,8 @@ import com.zzm.picturebackend.common.ResultUtils;
 import com.zzm.picturebackend.constant.UserConstant;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
-import com.zzm.picturebackend.manager.CosManager;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import com.zzm.picturebackend.manager.storage.StorageObject;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -30,7 +29,7 @@ import java.io.IOException;
 public class FileController {
 
     @Resource
-    private CosManager cosManager;
+    private ObjectStorage objectStorage;
 
     /**
      * 测试文件上传
@@ -53,7 +52,7 @@ public class FileController {
             // 将上传的文件内容写入临时文件
             multipartFile.transferTo(file);
             // 上传文件到对象存储
-            cosManager.putObject(filepath, file);
+            objectStorage.putObject(filepath, file);
             // 返回上传文件的路径
             return ResultUtils.success(filepath);
         } catch (Exception e) {
@@ -82,14 +81,10 @@ public class FileController {
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
     @GetMapping("/test/download/")
     public void testDownloadFile(String filepath, HttpServletResponse response) throws IOException {
-        COSObjectInputStream cosObjectInput = null;
-        try {
-            // 从对象存储获取文件对象
-            COSObject cosObject = cosManager.getObject(filepath);
-            // 获取文件输入流
-            cosObjectInput = cosObject.getObjectContent();
+        // 从对象存储获取文件对象
+        try (StorageObject storageObject = objectStorage.getObject(filepath)) {
             // 将输入流转换为字节数组
-            byte[] bytes = IOUtils.toByteArray(cosObjectInput);
+            byte[] bytes = IOUtils.toByteArray(storageObject.getContent());
             // 设置响应内容类型
             response.setContentType("application/octet-stream;charset=UTF-8");
             // 设置响应头，指定文件名
@@ -103,11 +98,6 @@ public class FileController {
             log.error("file download error, filepath = " + filepath, e);
             // 抛出业务异常
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载失败");
-        } finally {
-            if (cosObjectInput != null) {
-                // 关闭输入流
-                cosObjectInput.close();
-            }
         }
     }
 }
@@ -1,11 +1,8 @@
 package com.zzm.picturebackend.controller;
 
-import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.zzm.picturebackend.annotation.AuthCheck;
 import com.zzm.picturebackend.api.aliyunai.AliYunAiApi;
 import com.zzm.picturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
@@ -15,36 +12,43 @@ import com.zzm.picturebackend.api.imagesearch.so.model.SoImageSearchResult;
 import com.zzm.picturebackend.common.BaseResponse;
 import com.zzm.picturebackend.common.DeleteRequest;
 import com.zzm.picturebackend.common.ResultUtils;
+import com.zzm.picturebackend.common.ScrollPage;
 import com.zzm.picturebackend.constant.UserConstant;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
 import com.zzm.picturebackend.exception.ThrowUtils;
+import com.zzm.picturebackend.manager.cache.PictureListCacheManager;
+import com.zzm.picturebackend.manager.image.PictureFeatureBackfill;
+import com.zzm.picturebackend.manager.search.PictureHashIndex;
+import com.zzm.picturebackend.manager.search.PicturePaletteIndex;
+import com.zzm.picturebackend.manager.search.PictureSearchIndex;
+import com.zzm.picturebackend.manager.upload.PictureDuplicateScanner;
 import com.zzm.picturebackend.model.dto.picture.*;
 import com.zzm.picturebackend.model.entity.Picture;
 import com.zzm.picturebackend.model.entity.Space;
 import com.zzm.picturebackend.model.entity.User;
 import com.zzm.picturebackend.model.enums.PictureReviewStatusEnum;
+import com.zzm.picturebackend.model.vo.PictureChunkUploadVO;
+import com.zzm.picturebackend.model.vo.PictureDuplicateReportVO;
 import com.zzm.picturebackend.model.vo.PictureTagCategory;
+import com.zzm.picturebackend.model.vo.PictureUploadTaskVO;
 import com.zzm.picturebackend.model.vo.PictureVO;
 import com.zzm.picturebackend.service.PictureService;
+import com.zzm.picturebackend.service.PictureTagService;
 import com.zzm.picturebackend.service.SpaceService;
 import com.zzm.picturebackend.service.UserService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
-import org.springframework.util.DigestUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author zhou
@@ -57,25 +61,32 @@ import java.util.concurrent.TimeUnit;
 @RequestMapping("/picture")
 public class PictureController {
 
-    /**
-     * 本地缓存
-     */
-    private final Cache<String, String> LOCAL_CACHE =
-            Caffeine.newBuilder().initialCapacity(1024)
-                    .maximumSize(10_000L)//最大10000条
-                    // 缓存 5 分钟移除
-                    .expireAfterWrite(Duration.ofMinutes(5))
-                    .build();
     @Resource
     private UserService userService;
     @Resource
     private PictureService pictureService;
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
-    @Resource
     private SpaceService spaceService;
     @Resource
     private AliYunAiApi aliYunAiApi;
+    @Resource
+    private SoImageSearchApiFacade soImageSearchApiFacade;
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+    @Resource
+    private PictureSearchIndex pictureSearchIndex;
+    @Resource
+    private PicturePaletteIndex picturePaletteIndex;
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PictureFeatureBackfill pictureFeatureBackfill;
+
+    @Resource
+    private PictureDuplicateScanner pictureDuplicateScanner;
+    @Resource
+    private PictureTagService pictureTagService;
     /**
      * 上传图片（可重新上传）
      */
@@ -109,6 +120,98 @@ public class PictureController {
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * 异步上传图片：立即返回任务 id（202），通过 /upload/task/get 轮询结果
+     */
+    @PostMapping("/upload/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BaseResponse<PictureUploadTaskVO> uploadPictureAsync(
+            @RequestPart("file") MultipartFile multipartFile,
+            PictureUploadRequest pictureUploadRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.submitPictureUploadTask(multipartFile, pictureUploadRequest, loginUser));
+    }
+
+    /**
+     * 通过 URL 异步上传图片：立即返回任务 id（202），通过 /upload/task/get 轮询结果
+     */
+    @PostMapping("/upload/url/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BaseResponse<PictureUploadTaskVO> uploadPictureByUrlAsync(
+            @RequestBody PictureUploadRequest pictureUploadRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.submitPictureUploadTask(pictureUploadRequest.getFileUrl(), pictureUploadRequest, loginUser));
+    }
+
+    /**
+     * 查询异步上传任务
+     */
+    @GetMapping("/upload/task/get")
+    public BaseResponse<PictureUploadTaskVO> getPictureUploadTask(String taskId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getPictureUploadTask(taskId, loginUser));
+    }
+
+    /**
+     * 初始化分片上传（大图断点续传）
+     */
+    @PostMapping("/upload/chunk/init")
+    public BaseResponse<PictureChunkUploadVO> initPictureChunkUpload(
+            @RequestBody PictureChunkUploadInitRequest pictureChunkUploadInitRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.initPictureChunkUpload(pictureChunkUploadInitRequest, loginUser));
+    }
+
+    /**
+     * 上传分片（各分片可并行上传，失败的分片可重传）
+     */
+    @PostMapping("/upload/chunk/part")
+    public BaseResponse<Boolean> uploadPictureChunk(
+            @RequestPart("file") MultipartFile multipartFile,
+            PictureChunkUploadRequest pictureChunkUploadRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        pictureService.uploadPictureChunk(pictureChunkUploadRequest, multipartFile, loginUser);
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 查询分片上传进度（续传前获取已上传的分片）
+     */
+    @GetMapping("/upload/chunk/get")
+    public BaseResponse<PictureChunkUploadVO> getPictureChunkUpload(String uploadId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getPictureChunkUpload(uploadId, loginUser));
+    }
+
+    /**
+     * 合并分片，完成上传
+     */
+    @PostMapping("/upload/chunk/complete")
+    public BaseResponse<PictureVO> completePictureChunkUpload(
+            @RequestBody PictureChunkUploadRequest pictureChunkUploadRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.completePictureChunkUpload(pictureChunkUploadRequest, loginUser));
+    }
+
+    /**
+     * 终止分片上传
+     */
+    @PostMapping("/upload/chunk/abort")
+    public BaseResponse<Boolean> abortPictureChunkUpload(
+            @RequestBody PictureChunkUploadRequest pictureChunkUploadRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureChunkUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        pictureService.abortPictureChunkUpload(pictureChunkUploadRequest.getUploadId(), loginUser);
+        return ResultUtils.success(true);
+    }
+
     /**
      * 删除图片
      */
@@ -161,6 +264,16 @@ public class PictureController {
         boolean result = pictureService.updateById(picture);
         // 如果更新失败，抛出异常
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 同步标签索引
+        if (pictureUpdateRequest.getTags() != null) {
+            pictureTagService.syncPictureTags(id, oldPicture.getSpaceId(), picture.getTags());
+        }
+        // 分类或审核状态可能变化，清理列表缓存
+        pictureListCacheManager.invalidate(oldPicture.getSpaceId());
+        // 名称、简介、分类、审核状态可能变化，刷新搜索索引
+        pictureSearchIndex.refresh(id);
+        picturePaletteIndex.refresh(id);
+        pictureHashIndex.refresh(id);
         //清理图片资源
         pictureService.clearPictureFile(oldPicture);
         // 返回更新成功结果
@@ -211,13 +324,8 @@ public class PictureController {
     @PostMapping("/list/page")
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
     public BaseResponse<Page<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
-        // 获取当前页码
-        long current = pictureQueryRequest.getCurrent();
-        // 获取每页大小
-        long size = pictureQueryRequest.getPageSize();
         // 查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
+        Page<Picture> picturePage = pictureService.pagePicture(pictureQueryRequest);
         // 返回分页结果
         return ResultUtils.success(picturePage);
     }
@@ -228,12 +336,38 @@ public class PictureController {
     @PostMapping("/list/page/vo")
     public BaseResponse<Page<PictureVO>> listPictureVOByPage(@RequestBody PictureQueryRequest pictureQueryRequest,
                                                              HttpServletRequest request) {
-        // 获取当前页码
-        long current = pictureQueryRequest.getCurrent();
         // 获取每页大小
         long size = pictureQueryRequest.getPageSize();
         // 限制爬虫
         ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
+        // 查询范围与空间权限校验
+        fillListScope(pictureQueryRequest, request);
+        // 查询数据库（searchCount 为 false 时不查总数）
+        Page<Picture> picturePage = pictureService.pagePicture(pictureQueryRequest);
+        // 获取封装类
+        return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
+    }
+
+    /**
+     * 游标分页获取图片列表（封装类）
+     * 适用于无限滚动，首页不传 cursor，之后回传上一页返回的 nextCursor
+     */
+    @PostMapping("/list/page/vo/cursor")
+    public BaseResponse<ScrollPage<PictureVO>> listPictureVOByCursor(@RequestBody PictureQueryRequest pictureQueryRequest,
+                                                                     HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 限制爬虫
+        ThrowUtils.throwIf(pictureQueryRequest.getPageSize() < 1 || pictureQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 查询范围与空间权限校验
+        fillListScope(pictureQueryRequest, request);
+        return ResultUtils.success(pictureService.listPictureVOByCursor(pictureQueryRequest, request));
+    }
+
+    /**
+     * 补充列表查询范围并校验空间权限
+     * 公开图库只能查看已过审的数据，私有空间仅空间创建人可查看
+     */
+    private void fillListScope(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
         // 普通用户默认只能看到审核通过的数据
         pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
         // 空间权限校验
@@ -254,11 +388,6 @@ public class PictureController {
                 throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
             }
         }
-        // 查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
-        // 获取封装类
-        return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
     }
 
     /**
@@ -271,46 +400,15 @@ public class PictureController {
     @PostMapping("/list/page/vo/cache")
     public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCache(@RequestBody PictureQueryRequest pictureQueryRequest,
                                                                       HttpServletRequest request) {
-        long current = pictureQueryRequest.getCurrent();
         long size = pictureQueryRequest.getPageSize();
         // 限制爬虫
         ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
         // 普通用户默认只能查看已过审的数据
         pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
 
-        // 构建缓存 key
-        String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-        String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-        String cacheKey = String.format("picture:listPictureVOByPage:%s",hashKey);
-        // 1. 查询本地缓存（Caffeine）
-        String cachedValue = LOCAL_CACHE.getIfPresent(cacheKey);
-        if (cachedValue != null) {
-            //如果缓存命中，返回结果
-            Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-            return ResultUtils.success(cachedPage);
-        }
-        // 2. 查询分布式缓存（Redis）
-        ValueOperations<String, String> opsForValue = stringRedisTemplate.opsForValue();
-        cachedValue = opsForValue.get(cacheKey);
-        if (cachedValue != null) {
-            // 如果命中 Redis，存入本地缓存并返回
-            LOCAL_CACHE.put(cacheKey, cachedValue);
-            Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-            return ResultUtils.success(cachedPage);
-        }
-        // 3.查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
-        // 获取封装类
-        Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-        //4.更新缓存
-        // 存入 Redis 缓存
-        String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-        // 5 - 10 分钟随机过期，防止雪崩
-        int cacheExpireTime = 300 +  RandomUtil.randomInt(0, 300);
-        opsForValue.set(cacheKey, cacheValue, cacheExpireTime, TimeUnit.SECONDS);
-        //写入本地缓存
-        LOCAL_CACHE.put(cacheKey, cacheValue);
+        // 查询缓存（key 带上查询范围的版本号，写操作后版本号变化，旧缓存自然失效），未命中时合并并发请求查询数据库
+        Page<PictureVO> pictureVOPage = pictureListCacheManager.getOrLoad(pictureQueryRequest,
+                () -> pictureService.getPictureVOPage(pictureService.pagePicture(pictureQueryRequest), request));
         // 返回结果
         return ResultUtils.success(pictureVOPage);
     }
@@ -413,7 +511,7 @@ public class PictureController {
     // 这个 start 是控制查询多少页, 每页是 20 条
     int start = 0;
     while (resultList.size() <= 50) {
-        List<SoImageSearchResult> tempList = SoImageSearchApiFacade.searchImage(
+        List<SoImageSearchResult> tempList = soImageSearchApiFacade.searchImage(
                 oldPicture.getUrl(), start
         );
         if (tempList.isEmpty()) {
@@ -425,6 +523,55 @@ public class PictureController {
     return ResultUtils.success(resultList);
     }
 
+    /**
+     * 以图搜图（站内，按感知哈希在公共图库或自己的空间中查找相似图片）
+     */
+    @PostMapping("/search/picture/similar")
+    public BaseResponse<List<PictureVO>> searchSimilarPicture(@RequestBody SearchPictureByPictureRequest searchPictureByPictureRequest,
+                                                              HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        // 私有空间只有空间创建人可以搜索
+        Long spaceId = searchPictureByPictureRequest.getSpaceId();
+        if (spaceId != null) {
+            Space space = spaceService.getById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+            if (!loginUser.getId().equals(space.getUserId())) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
+            }
+        }
+        return ResultUtils.success(pictureService.searchSimilarPicture(searchPictureByPictureRequest, loginUser));
+    }
+
+    /**
+     * 回填存量图片的感知哈希和调色板（仅管理员，后台执行）
+     * @return 是否启动，已有回填在运行时返回 false
+     */
+    @PostMapping("/feature/backfill")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> backfillPictureFeature() {
+        return ResultUtils.success(pictureFeatureBackfill.start());
+    }
+
+    /**
+     * 扫描存量图片中的近似重复图片（仅管理员，后台执行）
+     * @return 是否启动，已有扫描在运行时返回 false
+     */
+    @PostMapping("/duplicate/scan")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> scanDuplicatePicture() {
+        return ResultUtils.success(pictureDuplicateScanner.start());
+    }
+
+    /**
+     * 获取最近一次近似重复扫描的报告（仅管理员）
+     */
+    @GetMapping("/duplicate/report")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureDuplicateReportVO> getDuplicateReport() {
+        return ResultUtils.success(pictureDuplicateScanner.getReport());
+    }
+
     /**
      * 按照颜色搜索
      * @param searchPictureByColorRequest
@@ -437,10 +584,36 @@ public class PictureController {
         String picColor = searchPictureByColorRequest.getPicColor();
         Long spaceId = searchPictureByColorRequest.getSpaceId();
         User loginUser = userService.getLoginUser(request);
-        List<PictureVO> result = pictureService.searchPictureByColor(spaceId, picColor, loginUser);
+        List<PictureVO> result = pictureService.searchPictureByColor(spaceId, picColor, searchPictureByColorRequest.getMetric(), loginUser);
         return ResultUtils.success(result);
     }
 
+    /**
+     * 按照调色板搜索（公共图库或自己的空间，分页）
+     * @param searchPictureByPaletteRequest
+     * @param request
+     * @return
+     */
+    @PostMapping("/search/palette")
+    public BaseResponse<Page<PictureVO>> searchPictureByPalette(@RequestBody SearchPictureByPaletteRequest searchPictureByPaletteRequest,
+                                                                HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureByPaletteRequest == null, ErrorCode.PARAMS_ERROR);
+        // 限制爬虫
+        ThrowUtils.throwIf(searchPictureByPaletteRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 私有空间只有空间创建人可以搜索
+        Long spaceId = searchPictureByPaletteRequest.getSpaceId();
+        if (spaceId != null) {
+            User loginUser = userService.getLoginUser(request);
+            Space space = spaceService.getById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+            if (!loginUser.getId().equals(space.getUserId())) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
+            }
+        }
+        Page<Picture> picturePage = pictureService.searchPictureByPalette(searchPictureByPaletteRequest);
+        return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
+    }
+
     /**
      * 批量编辑图片
      * @param pictureEditByBatchRequest
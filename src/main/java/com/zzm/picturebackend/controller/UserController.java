@@ -5,12 +5,12 @@ import com.zzm.picturebackend.annotation.AuthCheck;
 import com.zzm.picturebackend.common.BaseResponse;
 import com.zzm.picturebackend.common.DeleteRequest;
 import com.zzm.picturebackend.common.ResultUtils;
-import com.zzm.picturebackend.config.CosClientConfig;
 import com.zzm.picturebackend.constant.UserConstant;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
 import com.zzm.picturebackend.exception.ThrowUtils;
-import com.zzm.picturebackend.manager.CosManager;
+import com.zzm.picturebackend.manager.cache.UserCacheManager;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
 import com.zzm.picturebackend.model.dto.user.*;
 import com.zzm.picturebackend.model.entity.User;
 import com.zzm.picturebackend.model.vo.LoginUserVO;
@@ -31,13 +31,13 @@ import java.util.List;
 public class UserController {
 
     @Resource
-    private CosManager cosManager;
+    private ObjectStorage objectStorage;
 
     @Resource
     private UserService userService;
 
     @Resource
-    protected CosClientConfig cosClientConfig;
+    private UserCacheManager userCacheManager;
     /**
      * 用户注册接口。
      */
@@ -191,6 +191,8 @@ public class UserController {
 
         // 调用服务层方法删除用户，并返回删除结果
         boolean b = userService.removeById(deleteRequest.getId());
+        // 清理用户缓存
+        userCacheManager.invalidate(deleteRequest.getId());
 
         // 返回成功响应，包含删除结果
         return ResultUtils.success(b);
@@ -219,6 +221,9 @@ public class UserController {
         // 如果更新失败，抛出操作错误异常
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
 
+        // 清理用户缓存
+        userCacheManager.invalidate(user.getId());
+
         // 返回成功响应，包含更新结果
         return ResultUtils.success(true);
     }
@@ -276,6 +281,9 @@ public class UserController {
         // 如果更新失败，抛出操作错误异常
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
 
+        // 清理用户缓存
+        userCacheManager.invalidate(user.getId());
+
         // 返回成功响应
         return ResultUtils.success(true);
     }
@@ -314,9 +322,9 @@ public class UserController {
                 // 将上传的文件内容写入临时文件
                 file.transferTo(tempFile);
                 // 上传文件到对象存储
-                cosManager.putObject(filepath, tempFile);
+                objectStorage.putObject(filepath, tempFile);
                 // 设置新的头像URL，添加域名前缀
-                String fullAvatarUrl = cosClientConfig.getHost()  + filepath;
+                String fullAvatarUrl = objectStorage.getHost()  + filepath;
                 user.setUserAvatar(fullAvatarUrl);
             } catch (Exception e) {
                 log.error("avatar upload error, filepath = " + filepath, e);
@@ -332,9 +340,9 @@ public class UserController {
         } else {
             // 如果没有上传新图片，检查并处理请求中的头像URL
             String avatarUrl = userUpdateInfoRequest.getUserAvatar();
-            if (avatarUrl != null && !avatarUrl.startsWith(cosClientConfig.getHost() )) {
+            if (avatarUrl != null && !avatarUrl.startsWith(objectStorage.getHost() )) {
                 // 如果URL不包含域名前缀，则添加
-                avatarUrl = cosClientConfig.getHost()  + avatarUrl;
+                avatarUrl = objectStorage.getHost()  + avatarUrl;
             }
             user.setUserAvatar(avatarUrl);
         }
@@ -352,6 +360,9 @@ public class UserController {
         // 如果更新失败，抛出操作错误异常
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
 
+        // 清理用户缓存
+        userCacheManager.invalidate(user.getId());
+
         // 返回成功响应
         return ResultUtils.success(true);
     }
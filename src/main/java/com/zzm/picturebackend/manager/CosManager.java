@@ -3,16 +3,25 @@ package com.zzm.picturebackend.manager;
 import cn.hutool.core.io.FileUtil;
 import com.qcloud.cos.COSClient;
 import com.qcloud.cos.exception.CosClientException;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadResult;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
 import com.zzm.picturebackend.config.CosClientConfig;
+import com.zzm.picturebackend.config.PictureUploadConfig;
+import com.zzm.picturebackend.manager.image.PictureRenditions;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,6 +30,7 @@ import java.util.List;
 * @Description:
 * @createDate 2025/2/26下午6:14
 */
+@Slf4j
 @Component
 public class CosManager {
 
@@ -30,37 +40,107 @@ public class CosManager {
     @Resource
     private COSClient cosClient;
 
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    /**
+     * 数据万象单次请求最多支持的处理规则数
+     */
+    private static final int MAX_PIC_RULES = 5;
+
     /**
-     * 上传对象
+     * 上传对象（附带图片信息）
      *
      * @param key  唯一键
      * @param file 文件
      */
-    public PutObjectResult putObject(String key, File file) {
+    public PutObjectResult putPictureObject(String key, File file) {
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
                 file);
+        putObjectRequest.setPicOperations(buildPicOperations(key, file.length()));
         return cosClient.putObject(putObjectRequest);
     }
 
     /**
-     * 下载对象
+     * 流式上传对象（附带图片信息），数据直接从输入流写入对象存储，不落临时文件
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度（必须准确，SDK 据此流式发送而不是先缓存到内存）
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        putObjectRequest.setPicOperations(buildPicOperations(key, contentLength));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 初始化分片上传
      *
      * @param key 唯一键
+     * @return 分片上传 id
      */
-    public COSObject getObject(String key) {
-        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
-        return cosClient.getObject(getObjectRequest);
+    public String initiateMultipartUpload(String key) {
+        InitiateMultipartUploadRequest initiateMultipartUploadRequest = new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key);
+        return cosClient.initiateMultipartUpload(initiateMultipartUploadRequest).getUploadId();
     }
 
     /**
-     * 上传对象（附带图片信息）
+     * 上传分片
      *
-     * @param key  唯一键
-     * @param file 文件
+     * @param key         唯一键
+     * @param uploadId    分片上传 id
+     * @param partNumber  分片序号（从 1 开始）
+     * @param inputStream 分片数据流
+     * @param partSize    分片大小
+     * @return 分片 ETag
      */
-    public PutObjectResult putPictureObject(String key, File file) {
-        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
-                file);
+    public PartETag uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize) {
+        UploadPartRequest uploadPartRequest = new UploadPartRequest();
+        uploadPartRequest.setBucketName(cosClientConfig.getBucket());
+        uploadPartRequest.setKey(key);
+        uploadPartRequest.setUploadId(uploadId);
+        uploadPartRequest.setPartNumber(partNumber);
+        uploadPartRequest.setInputStream(inputStream);
+        uploadPartRequest.setPartSize(partSize);
+        return cosClient.uploadPart(uploadPartRequest).getPartETag();
+    }
+
+    /**
+     * 完成分片上传（附带图片信息）
+     *
+     * @param key       唯一键
+     * @param uploadId  分片上传 id
+     * @param partETags 按分片序号排序的 ETag 列表
+     * @param fileSize  文件大小
+     */
+    public CompleteMultipartUploadResult completePictureMultipartUpload(String key, String uploadId, List<PartETag> partETags, long fileSize) {
+        CompleteMultipartUploadRequest completeMultipartUploadRequest = new CompleteMultipartUploadRequest(cosClientConfig.getBucket(), key,
+                uploadId, partETags);
+        completeMultipartUploadRequest.setPicOperations(buildPicOperations(key, fileSize));
+        return cosClient.completeMultipartUpload(completeMultipartUploadRequest);
+    }
+
+    /**
+     * 终止分片上传，清理已上传的分片
+     *
+     * @param key      唯一键
+     * @param uploadId 分片上传 id
+     */
+    public void abortMultipartUpload(String key, String uploadId) throws CosClientException {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key, uploadId));
+    }
+
+    /**
+     * 构造图片处理参数
+     *
+     * @param key      唯一键
+     * @param fileSize 文件大小
+     */
+    private PicOperations buildPicOperations(String key, long fileSize) {
         // 对图片进行处理（获取基本信息也被视作为一种处理）
         PicOperations picOperations = new PicOperations();
         // 1 表示返回原图信息
@@ -74,7 +154,7 @@ public class CosManager {
         compressRule.setFileId(webpKey);
         rules.add(compressRule);
         // 缩略图处理，仅对>20KB的图片进行压缩
-        if (file.length() > 2 * 1024){
+        if (fileSize > 2 * 1024){
             PicOperations.Rule thumbnailRule = new PicOperations.Rule();
             thumbnailRule.setBucket(cosClientConfig.getBucket());
             String thumbnailKey = FileUtil.mainName(key) + "_thumbnail." + FileUtil.getSuffix(key);
@@ -83,19 +163,24 @@ public class CosManager {
             thumbnailRule.setRule(String.format("imageMogr2/thumbnail/%sx%s>", 256, 256));
             rules.add(thumbnailRule);
         }
+        // 响应式缩放版本，与压缩、缩略图在同一次请求中生成；超出规则数上限的版本不生成
+        for (String format : pictureUploadConfig.getRenditionFormats()) {
+            for (Integer size : pictureUploadConfig.getRenditionSizes()) {
+                if (rules.size() >= MAX_PIC_RULES) {
+                    log.warn("缩放版本数超过数据万象规则数上限 {}，{}x{}.{} 及之后的版本未生成", MAX_PIC_RULES, size, size, format);
+                    picOperations.setRules(rules);
+                    return picOperations;
+                }
+                PicOperations.Rule renditionRule = new PicOperations.Rule();
+                renditionRule.setBucket(cosClientConfig.getBucket());
+                renditionRule.setFileId(PictureRenditions.fileName(key, size, format));
+                renditionRule.setRule(String.format("imageMogr2/thumbnail/%sx%s>/format/%s", size, size, format));
+                rules.add(renditionRule);
+            }
+        }
         // 构造处理参数
         picOperations.setRules(rules);
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
-    }
-
-    /**
-     * 删除对象
-     *
-     * @param key 文件 key
-     */
-    public void deleteObject(String key) throws CosClientException {
-        cosClient.deleteObject(cosClientConfig.getBucket(), key);
+        return picOperations;
     }
 
 }
@@ -0,0 +1,123 @@
+package com.zzm.picturebackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zzm.picturebackend.model.dto.picture.PictureQueryRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片总数缓存
+ * 按 空间 / 审核状态 / 分类 缓存分页查询的总数，新增、删除、审核、编辑图片时按空间整体失效
+ * 结构：Redis Hash，key 为 picture:count:{范围}，field 为 {reviewStatus}:{category}
+ */
+@Slf4j
+@Component
+public class PictureCountCacheManager {
+
+    /**
+     * 缓存 key 前缀
+     */
+    private static final String KEY_PREFIX = "picture:count:";
+
+    /**
+     * 兜底过期时间（小时），防止漏失效导致长期不准
+     */
+    private static final long EXPIRE_HOURS = 1;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 判断查询条件是否可以使用总数缓存
+     * 仅包含 空间 / 审核状态 / 分类 条件时才缓存，其余条件组合过多，缓存命中率低
+     *
+     * @param pictureQueryRequest 查询条件
+     * @return 是否可缓存
+     */
+    public boolean isCacheable(PictureQueryRequest pictureQueryRequest) {
+        return pictureQueryRequest != null
+                && ObjUtil.isEmpty(pictureQueryRequest.getId())
+                && ObjUtil.isEmpty(pictureQueryRequest.getUserId())
+                && ObjUtil.isEmpty(pictureQueryRequest.getReviewerId())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicSize())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicWidth())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicHeight())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicScale())
+                && ObjUtil.isEmpty(pictureQueryRequest.getStartEditTime())
+                && ObjUtil.isEmpty(pictureQueryRequest.getEndEditTime())
+                && CollUtil.isEmpty(pictureQueryRequest.getTags())
+                && StrUtil.isAllBlank(pictureQueryRequest.getName(), pictureQueryRequest.getIntroduction(),
+                pictureQueryRequest.getPicFormat(), pictureQueryRequest.getSearchText(),
+                pictureQueryRequest.getReviewMessage());
+    }
+
+    /**
+     * 获取缓存的总数
+     *
+     * @param pictureQueryRequest 查询条件（需先通过 isCacheable 判断）
+     * @return 总数，未命中返回 null
+     */
+    public Long getTotal(PictureQueryRequest pictureQueryRequest) {
+        try {
+            Object value = stringRedisTemplate.opsForHash().get(buildKey(pictureQueryRequest), buildField(pictureQueryRequest));
+            return value == null ? null : Long.valueOf(value.toString());
+        } catch (Exception e) {
+            // 缓存不可用时退化为直接查库
+            log.warn("读取图片总数缓存失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入总数缓存
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param total               总数
+     */
+    public void putTotal(PictureQueryRequest pictureQueryRequest, long total) {
+        try {
+            String key = buildKey(pictureQueryRequest);
+            stringRedisTemplate.opsForHash().put(key, buildField(pictureQueryRequest), String.valueOf(total));
+            stringRedisTemplate.expire(key, EXPIRE_HOURS, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("写入图片总数缓存失败", e);
+        }
+    }
+
+    /**
+     * 使某个空间的总数缓存失效（同时失效不区分空间的全量统计）
+     *
+     * @param spaceId 空间 id，为空表示公共图库
+     */
+    public void invalidate(Long spaceId) {
+        try {
+            stringRedisTemplate.delete(CollUtil.newArrayList(KEY_PREFIX + buildScope(spaceId, spaceId == null), KEY_PREFIX + "all"));
+        } catch (Exception e) {
+            log.warn("清理图片总数缓存失败, spaceId = {}", spaceId, e);
+        }
+    }
+
+    private String buildKey(PictureQueryRequest pictureQueryRequest) {
+        return KEY_PREFIX + buildScope(pictureQueryRequest.getSpaceId(), pictureQueryRequest.isNullSpaceId());
+    }
+
+    private static String buildScope(Long spaceId, boolean nullSpaceId) {
+        if (spaceId != null) {
+            return "space:" + spaceId;
+        }
+        return nullSpaceId ? "public" : "all";
+    }
+
+    private static String buildField(PictureQueryRequest pictureQueryRequest) {
+        Integer reviewStatus = pictureQueryRequest.getReviewStatus();
+        String category = pictureQueryRequest.getCategory();
+        return String.format("%s:%s", reviewStatus == null ? "*" : reviewStatus,
+                StrUtil.isBlank(category) ? "*" : category);
+    }
+}
@@ -0,0 +1,408 @@
+package com.zzm.picturebackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.config.PictureCacheConfig;
+import com.zzm.picturebackend.manager.cache.codec.PictureCacheCodec;
+import com.zzm.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import com.zzm.picturebackend.model.vo.UserVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 图片列表多级缓存（Caffeine + Redis）
+ * 每个范围（公共图库、每个空间）在 Redis 中维护一个版本号，缓存 key 中带上版本号；
+ * 图片发生写操作时只需把对应范围的版本号加一，旧 key 自然失效，因此过期时间可以设置得比较长；
+ * 删除、审核驳回等内容不能再展示的写操作为强制失效，同时让旧数据副本失效，重建期间不会再返回已删除的图片；
+ * 未命中时合并并发加载，防止缓存击穿；缓存内容由 {@link PictureCacheCodec} 编码为字节数组
+ * 缓存中只保存上传者 id，读取时再从 {@link UserCacheManager} 填充用户信息，用户修改资料后列表立即可见
+ */
+@Slf4j
+@Component
+public class PictureListCacheManager {
+
+    /**
+     * 缓存 key 前缀
+     */
+    private static final String KEY_PREFIX = "picture:listPictureVOByPage:";
+
+    /**
+     * 版本号 key 前缀
+     */
+    private static final String GENERATION_KEY_PREFIX = "picture:list:gen:";
+
+    /**
+     * 不区分空间的查询范围，任何写操作都会使其失效
+     */
+    private static final String SCOPE_ALL = "all";
+
+    /**
+     * 强制失效版本号的范围前缀，旧数据副本的 key 中带上该版本号
+     */
+    private static final String HARD_SCOPE_PREFIX = "hard:";
+
+    /**
+     * Redis 缓存过期时间（秒），旧版本的数据靠过期回收
+     */
+    private static final int REDIS_EXPIRE_SECONDS = 12 * 60 * 60;
+
+    /**
+     * 重建租约 key 前缀
+     */
+    private static final String LEASE_KEY_PREFIX = "picture:list:lease:";
+
+    /**
+     * 租约时间（秒），也是其他实例返回旧数据的最长时间
+     */
+    private static final long LEASE_SECONDS = 10;
+
+    /**
+     * 释放租约：只有值仍是自己的令牌时才删除，避免租约过期后误删其他实例的租约
+     */
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    /**
+     * 没有旧数据时等待重建结果的次数和间隔
+     */
+    private static final int LEASE_WAIT_TIMES = 10;
+
+    private static final long LEASE_WAIT_INTERVAL_MILLIS = 50;
+
+    /**
+     * 本地缓存条目的固定开销估算（字节），包括 key 对象、数组头和 Caffeine 节点
+     */
+    private static final int LOCAL_ENTRY_OVERHEAD_BYTES = 96;
+
+    /**
+     * 本地缓存（保存编码后的字节数组），按字节数加权淘汰，总量不超过配置的预算
+     */
+    private Cache<String, byte[]> localCache;
+
+    /**
+     * 本地暂存的版本号，避免每次查询都访问 Redis；其他实例的写操作最多延迟 1 秒可见
+     */
+    private final Cache<String, Long> localGeneration =
+            Caffeine.newBuilder()
+                    .maximumSize(10_000L)
+                    .expireAfterWrite(Duration.ofSeconds(1))
+                    .build();
+
+    /**
+     * 正在加载中的 key
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Page<PictureVO>>> inFlightLoads = new ConcurrentHashMap<>();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PictureCountCacheManager pictureCountCacheManager;
+
+    @Resource
+    private PictureCacheCodec pictureCacheCodec;
+
+    @Resource
+    private PictureCacheConfig pictureCacheConfig;
+
+    @Resource
+    private UserCacheManager userCacheManager;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter redisHitCounter;
+
+    private Counter redisMissCounter;
+
+    private Counter staleHitCounter;
+
+    private Timer redisGetTimer;
+
+    private Timer loadTimer;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder().initialCapacity(1024)
+                .maximumWeight(pictureCacheConfig.getLocalMaxSize().toBytes())
+                .weigher((String key, byte[] value) -> LOCAL_ENTRY_OVERHEAD_BYTES + key.length() * 2 + value.length)
+                // 版本号变化后旧 key 不会再被访问，本地缓存过期时间只影响内存回收
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .recordStats()
+                .build();
+        // 本地缓存：cache.gets / cache.evictions / cache.eviction.weight 等，以 cache=picture.list.local 标签区分
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "picture.list.local");
+        Gauge.builder("picture.list.local.weight", localCache,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("本地缓存当前占用的字节数（估算）")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        // Redis 缓存
+        redisHitCounter = Counter.builder("picture.list.redis.gets").tag("result", "hit").register(meterRegistry);
+        redisMissCounter = Counter.builder("picture.list.redis.gets").tag("result", "miss").register(meterRegistry);
+        staleHitCounter = Counter.builder("picture.list.redis.stale").description("重建期间返回旧数据的次数").register(meterRegistry);
+        redisGetTimer = Timer.builder("picture.list.redis.latency").description("读取 Redis 缓存耗时").register(meterRegistry);
+        loadTimer = Timer.builder("picture.list.load").description("未命中时查询数据库加载列表的耗时").register(meterRegistry);
+    }
+
+    /**
+     * 获取缓存的列表数据，未命中时加载并写入缓存
+     * 1. 同一 JVM 内同一个 key 只有一个线程执行加载，其他线程等待其结果（single-flight）
+     * 2. 跨实例通过 Redis 租约保证只有一个实例重建；未抢到租约的实例返回旧数据（stale-while-revalidate），
+     * 没有旧数据时短暂等待重建结果，超时后自行加载
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param loader              加载数据的方法
+     * @return 图片分页数据
+     */
+    public Page<PictureVO> getOrLoad(PictureQueryRequest pictureQueryRequest, Supplier<Page<PictureVO>> loader) {
+        String scope = buildScope(pictureQueryRequest.getSpaceId(), pictureQueryRequest.isNullSpaceId());
+        String hashKey = DigestUtils.md5DigestAsHex(JSONUtil.toJsonStr(pictureQueryRequest).getBytes());
+        String cacheKey = String.format("%s%s:v%d:%s", KEY_PREFIX, scope, getGeneration(scope), hashKey);
+        Page<PictureVO> cachedPage = get(cacheKey);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+        CompletableFuture<Page<PictureVO>> future = new CompletableFuture<>();
+        CompletableFuture<Page<PictureVO>> inFlight = inFlightLoads.putIfAbsent(cacheKey, future);
+        if (inFlight != null) {
+            // 已有线程在加载，等待其结果；加载失败时抛出原始异常，与加载线程一致
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            String staleKey = String.format("%sstale:%s:h%d:%s", KEY_PREFIX, scope, getGeneration(HARD_SCOPE_PREFIX + scope), hashKey);
+            Page<PictureVO> value = loadWithLease(cacheKey, staleKey, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(cacheKey, future);
+        }
+    }
+
+    /**
+     * 查询缓存，先查本地缓存，再查 Redis（命中后回填本地缓存）
+     *
+     * @param cacheKey 缓存 key
+     * @return 图片分页数据，未命中或无法解码返回 null
+     */
+    private Page<PictureVO> get(String cacheKey) {
+        byte[] cachedValue = localCache.getIfPresent(cacheKey);
+        if (cachedValue == null) {
+            cachedValue = redisGetTimer.record(() -> getBytes(cacheKey));
+            if (cachedValue == null) {
+                redisMissCounter.increment();
+                return null;
+            }
+            redisHitCounter.increment();
+            localCache.put(cacheKey, cachedValue);
+        }
+        return decode(cacheKey, cachedValue);
+    }
+
+    private Page<PictureVO> decode(String cacheKey, byte[] cachedValue) {
+        try {
+            return fillUser(pictureCacheCodec.decode(cachedValue));
+        } catch (Exception e) {
+            // 编码格式变更后的旧数据，按未命中处理
+            log.warn("图片列表缓存解码失败, key = {}", cacheKey, e);
+            localCache.invalidate(cacheKey);
+            return null;
+        }
+    }
+
+    /**
+     * 抢到 Redis 租约的实例负责加载，其余实例优先返回旧数据
+     */
+    private Page<PictureVO> loadWithLease(String cacheKey, String staleKey, Supplier<Page<PictureVO>> loader) {
+        String leaseKey = LEASE_KEY_PREFIX + cacheKey;
+        String leaseToken = IdUtil.fastSimpleUUID();
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, leaseToken, LEASE_SECONDS, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(acquired)) {
+            byte[] staleValue = getBytes(staleKey);
+            Page<PictureVO> stalePage = staleValue == null ? null : decode(staleKey, staleValue);
+            if (stalePage != null) {
+                staleHitCounter.increment();
+                return stalePage;
+            }
+            // 没有旧数据，短暂等待持有租约的实例写入缓存
+            for (int i = 0; i < LEASE_WAIT_TIMES; i++) {
+                ThreadUtil.sleep(LEASE_WAIT_INTERVAL_MILLIS);
+                Page<PictureVO> cachedPage = get(cacheKey);
+                if (cachedPage != null) {
+                    return cachedPage;
+                }
+            }
+        }
+        try {
+            Page<PictureVO> value = loadTimer.record(loader);
+            // 用户信息不写入缓存，编码前去掉，返回前重新填充
+            value.getRecords().forEach(pictureVO -> pictureVO.setUser(null));
+            put(cacheKey, staleKey, pictureCacheCodec.encode(value));
+            return fillUser(value);
+        } finally {
+            if (Boolean.TRUE.equals(acquired)) {
+                stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, Collections.singletonList(leaseKey), leaseToken);
+            }
+        }
+    }
+
+    /**
+     * 按上传者 id 从用户缓存中填充用户信息
+     */
+    private Page<PictureVO> fillUser(Page<PictureVO> pictureVOPage) {
+        List<PictureVO> pictureVOList = pictureVOPage.getRecords();
+        if (CollUtil.isEmpty(pictureVOList)) {
+            return pictureVOPage;
+        }
+        Map<Long, UserVO> userIdUserVOMap = userCacheManager.getUserVOMap(pictureVOList.stream()
+                .map(PictureVO::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        pictureVOList.forEach(pictureVO -> pictureVO.setUser(userIdUserVOMap.get(pictureVO.getUserId())));
+        return pictureVOPage;
+    }
+
+    /**
+     * 写入缓存，同时保存一份不带版本号的旧数据副本，供重建期间其他实例返回
+     */
+    private void put(String cacheKey, String staleKey, byte[] cacheValue) {
+        // 随机增加最多 1 小时，防止同时过期
+        long cacheExpireTime = REDIS_EXPIRE_SECONDS + RandomUtil.randomInt(0, 3600);
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.stringCommands().setEx(serializeKey(cacheKey), cacheExpireTime, cacheValue);
+            connection.stringCommands().setEx(serializeKey(staleKey), cacheExpireTime, cacheValue);
+            return null;
+        });
+        localCache.put(cacheKey, cacheValue);
+    }
+
+    /**
+     * 以字节数组形式读取 Redis 中的值
+     */
+    private byte[] getBytes(String key) {
+        return stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(serializeKey(key)));
+    }
+
+    private byte[] serializeKey(String key) {
+        return stringRedisTemplate.getStringSerializer().serialize(key);
+    }
+
+    /**
+     * 使某个空间的图片列表缓存失效（版本号加一），同时清理总数缓存
+     * 重建期间其他实例仍可能返回旧数据，适用于修改类的写操作
+     *
+     * @param spaceId 空间 id，为空表示公共图库
+     */
+    public void invalidate(Long spaceId) {
+        invalidate(spaceId, false);
+    }
+
+    /**
+     * 使某个空间的图片列表缓存失效
+     * 在事务中调用时提交后才执行，否则并发的读请求可能在提交前按新版本号读到旧数据并写入缓存
+     *
+     * @param spaceId 空间 id，为空表示公共图库
+     * @param hard    是否强制失效（删除、审核驳回），为 true 时旧数据副本一并失效，重建期间不再返回
+     */
+    public void invalidate(Long spaceId, boolean hard) {
+        afterCommit(() -> doInvalidate(spaceId, hard));
+    }
+
+    private void doInvalidate(Long spaceId, boolean hard) {
+        pictureCountCacheManager.invalidate(spaceId);
+        String scope = buildScope(spaceId, spaceId == null);
+        try {
+            if (hard) {
+                // 先更新旧数据副本的版本号，再更新缓存版本号，保证重建时读不到删除前的旧数据
+                incrementGeneration(HARD_SCOPE_PREFIX + scope);
+                incrementGeneration(HARD_SCOPE_PREFIX + SCOPE_ALL);
+            }
+            incrementGeneration(scope);
+            incrementGeneration(SCOPE_ALL);
+        } catch (Exception e) {
+            log.warn("更新图片列表缓存版本号失败, spaceId = {}", spaceId, e);
+        }
+    }
+
+    private void incrementGeneration(String scope) {
+        Long generation = stringRedisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + scope);
+        if (generation != null) {
+            localGeneration.put(scope, generation);
+        }
+    }
+
+    private long getGeneration(String scope) {
+        return localGeneration.get(scope, key -> {
+            String value = stringRedisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + key);
+            return value == null ? 0L : Long.parseLong(value);
+        });
+    }
+
+    /**
+     * 当前存在事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String buildScope(Long spaceId, boolean nullSpaceId) {
+        if (spaceId != null) {
+            return "space:" + spaceId;
+        }
+        return nullSpaceId ? "public" : SCOPE_ALL;
+    }
+}
@@ -0,0 +1,177 @@
+package com.zzm.picturebackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.NumberUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zzm.picturebackend.mapper.UserMapper;
+import com.zzm.picturebackend.model.entity.User;
+import com.zzm.picturebackend.model.vo.UserVO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 用户信息近端缓存
+ * 1. 获取登录用户时按 id 读取，认证不再访问数据库
+ * 2. 组装图片、空间等封装类时批量获取上传者信息，只查询缓存中缺失的用户（一次 IN 查询）
+ * 用户信息修改、删除时通过 Redis 发布订阅通知所有实例失效，兜底过期时间 5 分钟
+ */
+@Slf4j
+@Component
+public class UserCacheManager implements MessageListener {
+
+    /**
+     * 失效通知频道，消息内容为用户 id
+     */
+    private static final String INVALIDATE_CHANNEL = "user:cache:invalidate";
+
+    /**
+     * 用户缓存，key 为用户 id
+     */
+    private final Cache<Long, User> userCache = Caffeine.newBuilder()
+            .initialCapacity(1024)
+            .maximumSize(10_000L)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .recordStats()
+            .build();
+
+    /**
+     * 直接使用 Mapper，避免与 UserService 循环依赖
+     */
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @PostConstruct
+    public void init() {
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "user.profile");
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取用户
+     *
+     * @param userId 用户 id
+     * @return 用户信息的副本，不存在返回 null
+     */
+    public User getUser(Long userId) {
+        if (userId == null || userId <= 0) {
+            return null;
+        }
+        return copy(getUserMap(Collections.singleton(userId)).get(userId));
+    }
+
+    /**
+     * 获取用户封装类
+     *
+     * @param userId 用户 id
+     * @return 用户封装类，不存在返回 null
+     */
+    public UserVO getUserVO(Long userId) {
+        return toUserVO(getUser(userId));
+    }
+
+    /**
+     * 批量获取用户封装类
+     *
+     * @param userIds 用户 id 集合
+     * @return 用户 id -> 用户封装类，不存在的用户不包含在结果中
+     */
+    public Map<Long, UserVO> getUserVOMap(Collection<Long> userIds) {
+        Map<Long, User> userMap = getUserMap(userIds);
+        Map<Long, UserVO> userVOMap = new HashMap<>(userMap.size());
+        userMap.forEach((userId, user) -> userVOMap.put(userId, toUserVO(user)));
+        return userVOMap;
+    }
+
+    /**
+     * 使用户缓存失效，并通知其他实例
+     *
+     * @param userId 用户 id
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        userCache.invalidate(userId);
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            // 通知失败时其他实例依赖过期时间兜底
+            log.warn("发布用户缓存失效通知失败, userId = {}", userId, e);
+        }
+    }
+
+    /**
+     * 收到其他实例（包括自身）的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (NumberUtil.isLong(userId)) {
+            userCache.invalidate(Long.parseLong(userId));
+        }
+    }
+
+    /**
+     * 批量获取用户，缓存中缺失的用户合并为一次查询
+     */
+    private Map<Long, User> getUserMap(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) {
+            return Collections.emptyMap();
+        }
+        Collection<Long> validUserIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (validUserIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return userCache.getAll(validUserIds, missingUserIds -> userMapper.selectByIds(missingUserIds).stream()
+                .collect(Collectors.toMap(User::getId, user -> user)));
+    }
+
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+
+    private static UserVO toUserVO(User user) {
+        if (user == null) {
+            return null;
+        }
+        UserVO userVO = new UserVO();
+        BeanUtils.copyProperties(user, userVO);
+        return userVO;
+    }
+}
@@ -0,0 +1,384 @@
+package com.zzm.picturebackend.manager.cache.codec;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.common.ScrollPage;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.manager.image.PicturePalettes;
+import com.zzm.picturebackend.model.dto.file.PictureRendition;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import com.zzm.picturebackend.model.vo.UserVO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 紧凑二进制编解码器
+ * 格式：版本号 + 分页类型 + 分页信息 + 记录数 + 每条记录（字段存在位图 + 非空字段），
+ * 字段按固定顺序写入，不保存字段名；整数使用变长编码，时间保存为毫秒时间戳
+ */
+public class BinaryPictureCacheCodec implements PictureCacheCodec {
+
+    /**
+     * 格式版本，字段变化时递增，旧版本数据解码失败按未命中处理
+     */
+    private static final byte FORMAT_VERSION = 3;
+
+    private static final byte TYPE_PAGE = 0;
+
+    private static final byte TYPE_SCROLL_PAGE = 1;
+
+    @Override
+    public byte[] encode(Page<PictureVO> pictureVOPage) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256 + pictureVOPage.getRecords().size() * 512);
+        try (DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
+            out.writeByte(FORMAT_VERSION);
+            boolean scroll = pictureVOPage instanceof ScrollPage;
+            out.writeByte(scroll ? TYPE_SCROLL_PAGE : TYPE_PAGE);
+            writeVarLong(out, pictureVOPage.getCurrent());
+            writeVarLong(out, pictureVOPage.getSize());
+            if (scroll) {
+                ScrollPage<PictureVO> scrollPage = (ScrollPage<PictureVO>) pictureVOPage;
+                out.writeBoolean(scrollPage.isHasMore());
+                writeNullableString(out, scrollPage.getNextCursor());
+            } else {
+                writeVarLong(out, pictureVOPage.getTotal());
+            }
+            List<PictureVO> records = pictureVOPage.getRecords();
+            writeVarLong(out, records.size());
+            for (PictureVO pictureVO : records) {
+                writePictureVO(out, pictureVO);
+            }
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存编码失败");
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Override
+    public Page<PictureVO> decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != FORMAT_VERSION) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存格式版本不匹配");
+            }
+            byte type = in.readByte();
+            long current = readVarLong(in);
+            long size = readVarLong(in);
+            Page<PictureVO> pictureVOPage;
+            if (type == TYPE_SCROLL_PAGE) {
+                ScrollPage<PictureVO> scrollPage = new ScrollPage<>(current, size);
+                scrollPage.setHasMore(in.readBoolean());
+                scrollPage.setNextCursor(readNullableString(in));
+                pictureVOPage = scrollPage;
+            } else {
+                pictureVOPage = new Page<>(current, size, readVarLong(in));
+            }
+            int count = (int) readVarLong(in);
+            List<PictureVO> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                records.add(readPictureVO(in));
+            }
+            pictureVOPage.setRecords(records);
+            return pictureVOPage;
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存解码失败");
+        }
+    }
+
+    private static void writePictureVO(DataOutputStream out, PictureVO pictureVO) throws IOException {
+        Object[] fields = {pictureVO.getId(), pictureVO.getUrl(), pictureVO.getThumbnailUrl(), pictureVO.getName(),
+                pictureVO.getIntroduction(), pictureVO.getTags(), pictureVO.getCategory(), pictureVO.getPicSize(),
+                pictureVO.getPicWidth(), pictureVO.getPicHeight(), pictureVO.getPicScale(), pictureVO.getPicFormat(),
+                pictureVO.getUserId(), pictureVO.getSpaceId(), pictureVO.getCreateTime(), pictureVO.getEditTime(),
+                pictureVO.getUpdateTime(), pictureVO.getPicColor(), pictureVO.getRenditions(), pictureVO.getPalette(), pictureVO.getUser()};
+        writePresence(out, fields);
+        writeLongIfPresent(out, pictureVO.getId());
+        writeStringIfPresent(out, pictureVO.getUrl());
+        writeStringIfPresent(out, pictureVO.getThumbnailUrl());
+        writeStringIfPresent(out, pictureVO.getName());
+        writeStringIfPresent(out, pictureVO.getIntroduction());
+        if (pictureVO.getTags() != null) {
+            writeVarLong(out, pictureVO.getTags().size());
+            for (String tag : pictureVO.getTags()) {
+                writeNullableString(out, tag);
+            }
+        }
+        writeStringIfPresent(out, pictureVO.getCategory());
+        writeLongIfPresent(out, pictureVO.getPicSize());
+        if (pictureVO.getPicWidth() != null) {
+            writeVarLong(out, pictureVO.getPicWidth());
+        }
+        if (pictureVO.getPicHeight() != null) {
+            writeVarLong(out, pictureVO.getPicHeight());
+        }
+        if (pictureVO.getPicScale() != null) {
+            out.writeDouble(pictureVO.getPicScale());
+        }
+        writeStringIfPresent(out, pictureVO.getPicFormat());
+        writeLongIfPresent(out, pictureVO.getUserId());
+        writeLongIfPresent(out, pictureVO.getSpaceId());
+        writeDateIfPresent(out, pictureVO.getCreateTime());
+        writeDateIfPresent(out, pictureVO.getEditTime());
+        writeDateIfPresent(out, pictureVO.getUpdateTime());
+        writeStringIfPresent(out, pictureVO.getPicColor());
+        if (pictureVO.getRenditions() != null) {
+            writeVarLong(out, pictureVO.getRenditions().size());
+            for (PictureRendition pictureRendition : pictureVO.getRenditions()) {
+                writeRendition(out, pictureRendition);
+            }
+        }
+        if (pictureVO.getPalette() != null) {
+            // 调色板沿用数据库中的紧凑格式
+            writeNullableString(out, PicturePalettes.encode(pictureVO.getPalette()));
+        }
+        if (pictureVO.getUser() != null) {
+            writeUserVO(out, pictureVO.getUser());
+        }
+    }
+
+    private static PictureVO readPictureVO(DataInputStream in) throws IOException {
+        int presence = (int) readVarLong(in);
+        PictureVO pictureVO = new PictureVO();
+        int bit = 0;
+        if (has(presence, bit++)) {
+            pictureVO.setId(readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setUrl(readString(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setThumbnailUrl(readString(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setName(readString(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setIntroduction(readString(in));
+        }
+        if (has(presence, bit++)) {
+            int tagCount = (int) readVarLong(in);
+            List<String> tags = new ArrayList<>(tagCount);
+            for (int i = 0; i < tagCount; i++) {
+                tags.add(readNullableString(in));
+            }
+            pictureVO.setTags(tags);
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setCategory(readString(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPicSize(readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPicWidth((int) readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPicHeight((int) readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPicScale(in.readDouble());
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPicFormat(readString(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setUserId(readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setSpaceId(readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setCreateTime(new Date(readVarLong(in)));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setEditTime(new Date(readVarLong(in)));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setUpdateTime(new Date(readVarLong(in)));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPicColor(readString(in));
+        }
+        if (has(presence, bit++)) {
+            int renditionCount = (int) readVarLong(in);
+            List<PictureRendition> renditions = new ArrayList<>(renditionCount);
+            for (int i = 0; i < renditionCount; i++) {
+                renditions.add(readRendition(in));
+            }
+            pictureVO.setRenditions(renditions);
+            // srcset 由缩放版本推导，不单独保存
+            pictureVO.setSrcset(PictureVO.buildSrcset(pictureVO));
+        }
+        if (has(presence, bit++)) {
+            pictureVO.setPalette(PicturePalettes.decode(readNullableString(in)));
+        }
+        if (has(presence, bit)) {
+            pictureVO.setUser(readUserVO(in));
+        }
+        return pictureVO;
+    }
+
+    private static void writeRendition(DataOutputStream out, PictureRendition pictureRendition) throws IOException {
+        writePresence(out, new Object[]{pictureRendition.getUrl(), pictureRendition.getWidth(), pictureRendition.getHeight(),
+                pictureRendition.getFormat(), pictureRendition.getSize()});
+        writeStringIfPresent(out, pictureRendition.getUrl());
+        if (pictureRendition.getWidth() != null) {
+            writeVarLong(out, pictureRendition.getWidth());
+        }
+        if (pictureRendition.getHeight() != null) {
+            writeVarLong(out, pictureRendition.getHeight());
+        }
+        writeStringIfPresent(out, pictureRendition.getFormat());
+        writeLongIfPresent(out, pictureRendition.getSize());
+    }
+
+    private static PictureRendition readRendition(DataInputStream in) throws IOException {
+        int presence = (int) readVarLong(in);
+        PictureRendition pictureRendition = new PictureRendition();
+        int bit = 0;
+        if (has(presence, bit++)) {
+            pictureRendition.setUrl(readString(in));
+        }
+        if (has(presence, bit++)) {
+            pictureRendition.setWidth((int) readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureRendition.setHeight((int) readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            pictureRendition.setFormat(readString(in));
+        }
+        if (has(presence, bit)) {
+            pictureRendition.setSize(readVarLong(in));
+        }
+        return pictureRendition;
+    }
+
+    private static void writeUserVO(DataOutputStream out, UserVO userVO) throws IOException {
+        writePresence(out, new Object[]{userVO.getId(), userVO.getUserAccount(), userVO.getUserName(),
+                userVO.getUserAvatar(), userVO.getUserProfile(), userVO.getUserRole(), userVO.getCreateTime()});
+        writeLongIfPresent(out, userVO.getId());
+        writeStringIfPresent(out, userVO.getUserAccount());
+        writeStringIfPresent(out, userVO.getUserName());
+        writeStringIfPresent(out, userVO.getUserAvatar());
+        writeStringIfPresent(out, userVO.getUserProfile());
+        writeStringIfPresent(out, userVO.getUserRole());
+        writeDateIfPresent(out, userVO.getCreateTime());
+    }
+
+    private static UserVO readUserVO(DataInputStream in) throws IOException {
+        int presence = (int) readVarLong(in);
+        UserVO userVO = new UserVO();
+        int bit = 0;
+        if (has(presence, bit++)) {
+            userVO.setId(readVarLong(in));
+        }
+        if (has(presence, bit++)) {
+            userVO.setUserAccount(readString(in));
+        }
+        if (has(presence, bit++)) {
+            userVO.setUserName(readString(in));
+        }
+        if (has(presence, bit++)) {
+            userVO.setUserAvatar(readString(in));
+        }
+        if (has(presence, bit++)) {
+            userVO.setUserProfile(readString(in));
+        }
+        if (has(presence, bit++)) {
+            userVO.setUserRole(readString(in));
+        }
+        if (has(presence, bit)) {
+            userVO.setCreateTime(new Date(readVarLong(in)));
+        }
+        return userVO;
+    }
+
+    /**
+     * 写入字段存在位图，第 i 位为 1 表示第 i 个字段非空
+     */
+    private static void writePresence(DataOutputStream out, Object[] fields) throws IOException {
+        int presence = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                presence |= 1 << i;
+            }
+        }
+        writeVarLong(out, presence);
+    }
+
+    private static boolean has(int presence, int bit) {
+        return (presence & (1 << bit)) != 0;
+    }
+
+    private static void writeLongIfPresent(DataOutputStream out, Long value) throws IOException {
+        if (value != null) {
+            writeVarLong(out, value);
+        }
+    }
+
+    private static void writeDateIfPresent(DataOutputStream out, Date value) throws IOException {
+        if (value != null) {
+            writeVarLong(out, value.getTime());
+        }
+    }
+
+    private static void writeStringIfPresent(DataOutputStream out, String value) throws IOException {
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 无符号变长整数编码（每字节 7 位），id、时间戳等正数可节省空间
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+}
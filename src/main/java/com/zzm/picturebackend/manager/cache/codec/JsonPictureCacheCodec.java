@@ -0,0 +1,41 @@
+package com.zzm.picturebackend.manager.cache.codec;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.common.ScrollPage;
+import com.zzm.picturebackend.model.vo.PictureVO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * JSON 编解码器（Hutool），可读性好，便于排查问题
+ */
+public class JsonPictureCacheCodec implements PictureCacheCodec {
+
+    @Override
+    public byte[] encode(Page<PictureVO> pictureVOPage) {
+        return JSONUtil.toJsonStr(pictureVOPage).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Page<PictureVO> decode(byte[] bytes) {
+        JSONObject jsonObject = JSONUtil.parseObj(new String(bytes, StandardCharsets.UTF_8));
+        long current = jsonObject.getLong("current", 1L);
+        long size = jsonObject.getLong("size", 10L);
+        Page<PictureVO> pictureVOPage;
+        if (jsonObject.containsKey("hasMore")) {
+            ScrollPage<PictureVO> scrollPage = new ScrollPage<>(current, size);
+            scrollPage.setHasMore(jsonObject.getBool("hasMore", false));
+            scrollPage.setNextCursor(jsonObject.getStr("nextCursor"));
+            pictureVOPage = scrollPage;
+        } else {
+            pictureVOPage = new Page<>(current, size, jsonObject.getLong("total", 0L));
+        }
+        JSONArray records = jsonObject.getJSONArray("records");
+        pictureVOPage.setRecords(records == null ? Collections.emptyList() : JSONUtil.toList(records, PictureVO.class));
+        return pictureVOPage;
+    }
+}
@@ -0,0 +1,79 @@
+package com.zzm.picturebackend.manager.cache.codec;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * LZ4 压缩装饰器，包装其他编解码器，减小本地缓存和 Redis 的占用
+ * 格式：1 字节标记（0-未压缩 1-LZ4）+ [4 字节原始长度] + 数据，数据较小时不压缩
+ */
+public class Lz4PictureCacheCodec implements PictureCacheCodec {
+
+    /**
+     * 小于该长度时不压缩，压缩收益抵不上开销
+     */
+    private static final int MIN_COMPRESS_LENGTH = 512;
+
+    /**
+     * 原始长度上限，一页最多 20 条记录，编码后远小于该值；超过说明数据损坏，拒绝分配内存
+     */
+    private static final int MAX_RAW_LENGTH = 4 * 1024 * 1024;
+
+    private static final byte RAW = 0;
+
+    private static final byte LZ4 = 1;
+
+    private final PictureCacheCodec delegate;
+
+    private final LZ4Compressor compressor;
+
+    private final LZ4FastDecompressor decompressor;
+
+    public Lz4PictureCacheCodec(PictureCacheCodec delegate) {
+        this.delegate = delegate;
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @Override
+    public byte[] encode(Page<PictureVO> pictureVOPage) {
+        byte[] raw = delegate.encode(pictureVOPage);
+        if (raw.length < MIN_COMPRESS_LENGTH) {
+            byte[] result = new byte[raw.length + 1];
+            result[0] = RAW;
+            System.arraycopy(raw, 0, result, 1, raw.length);
+            return result;
+        }
+        byte[] result = new byte[5 + compressor.maxCompressedLength(raw.length)];
+        result[0] = LZ4;
+        ByteBuffer.wrap(result, 1, 4).putInt(raw.length);
+        int compressedLength = compressor.compress(raw, 0, raw.length, result, 5);
+        return Arrays.copyOf(result, 5 + compressedLength);
+    }
+
+    @Override
+    public Page<PictureVO> decode(byte[] bytes) {
+        if (bytes[0] == RAW) {
+            return delegate.decode(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        if (bytes[0] != LZ4 || bytes.length < 5) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存格式错误");
+        }
+        int rawLength = ByteBuffer.wrap(bytes, 1, 4).getInt();
+        if (rawLength < MIN_COMPRESS_LENGTH || rawLength > MAX_RAW_LENGTH) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存原始长度错误：" + rawLength);
+        }
+        byte[] raw = new byte[rawLength];
+        decompressor.decompress(bytes, 5, raw, 0, rawLength);
+        return delegate.decode(raw);
+    }
+}
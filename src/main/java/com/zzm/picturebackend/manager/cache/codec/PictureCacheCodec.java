@@ -0,0 +1,27 @@
+package com.zzm.picturebackend.manager.cache.codec;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.model.vo.PictureVO;
+
+/**
+ * 图片列表缓存编解码器
+ * 缓存中统一存放字节数组（本地缓存与 Redis 共用），具体格式由实现决定
+ */
+public interface PictureCacheCodec {
+
+    /**
+     * 编码
+     *
+     * @param pictureVOPage 图片分页数据
+     * @return 字节数组
+     */
+    byte[] encode(Page<PictureVO> pictureVOPage);
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节数组
+     * @return 图片分页数据（不查总数的分页还原为 ScrollPage）
+     */
+    Page<PictureVO> decode(byte[] bytes);
+}
@@ -0,0 +1,97 @@
+package com.zzm.picturebackend.manager.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带截止时间的输入流
+ * 到期后关闭被包装的流（JDK HttpClient 的响应体流关闭后，阻塞中的读取随即结束并断开连接），之后的读取抛出超时异常
+ */
+public class DeadlineInputStream extends FilterInputStream {
+
+    private final Duration timeout;
+
+    private final ScheduledFuture<?> timeoutTask;
+
+    private volatile boolean expired;
+
+    /**
+     * @param in        被包装的流
+     * @param timeout   从创建开始允许读取的总时间
+     * @param scheduler 到期关闭流的调度器
+     */
+    public DeadlineInputStream(InputStream in, Duration timeout, ScheduledExecutorService scheduler) {
+        super(in);
+        this.timeout = timeout;
+        this.timeoutTask = scheduler.schedule(this::expire, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkExpired();
+        try {
+            return super.read();
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkExpired();
+        try {
+            return super.read(b, off, len);
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkExpired();
+        try {
+            return super.skip(n);
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        timeoutTask.cancel(false);
+        super.close();
+    }
+
+    private void expire() {
+        expired = true;
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // 只为中断读取，关闭失败无需处理
+        }
+    }
+
+    private void checkExpired() throws HttpTimeoutException {
+        if (expired) {
+            throw new HttpTimeoutException("读取响应体超时（" + timeout.toMillis() + " ms）");
+        }
+    }
+
+    /**
+     * 到期关闭导致的读取失败转换为超时异常
+     */
+    private IOException translate(IOException e) {
+        if (!expired) {
+            return e;
+        }
+        HttpTimeoutException httpTimeoutException = new HttpTimeoutException("读取响应体超时（" + timeout.toMillis() + " ms）");
+        httpTimeoutException.initCause(e);
+        return httpTimeoutException;
+    }
+}
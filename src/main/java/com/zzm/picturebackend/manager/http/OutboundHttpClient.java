@@ -0,0 +1,167 @@
+package com.zzm.picturebackend.manager.http;
+
+import cn.hutool.core.net.URLEncodeUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.URLUtil;
+import com.zzm.picturebackend.config.OutboundHttpConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统一的对外 HTTP 客户端
+ * 1. 全局共享一个 JDK HttpClient：按目标站点复用长连接，服务端支持时使用 HTTP/2 多路复用
+ * 2. 连接超时、响应超时统一配置（outbound.http.*）；请求超时只限制等待响应头的时间，流式响应体另有读取总时间上限
+ * 3. 按集成方记录耗时：http.client.outbound{integration, status}，流式响应记录到收到响应头为止
+ */
+@Component
+public class OutboundHttpClient {
+
+    @Resource
+    private OutboundHttpConfig outboundHttpConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private HttpClient httpClient;
+
+    /**
+     * 流式响应体到期关闭的调度器
+     */
+    private ScheduledExecutorService bodyTimeoutScheduler;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(outboundHttpConfig.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        bodyTimeoutScheduler = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("outbound-body-timeout-", true));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        bodyTimeoutScheduler.shutdownNow();
+    }
+
+    /**
+     * 创建请求，已设置地址、超时时间和 User-Agent
+     *
+     * @param url 请求地址（未编码的字符会被编码）
+     * @return 请求构造器
+     */
+    public HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(toUri(url))
+                .timeout(outboundHttpConfig.getReadTimeout())
+                .header("User-Agent", outboundHttpConfig.getUserAgent());
+    }
+
+    /**
+     * GET 请求，响应体为字符串
+     *
+     * @param integration 集成方名称（用于监控）
+     * @param url         请求地址
+     * @return 响应
+     */
+    public HttpResponse<String> get(String integration, String url) throws IOException {
+        return send(integration, newRequest(url).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * POST JSON 请求
+     *
+     * @param integration 集成方名称
+     * @param builder     请求构造器（由 newRequest 创建，可附加请求头）
+     * @param json        JSON 请求体
+     * @return 响应
+     */
+    public HttpResponse<String> postJson(String integration, HttpRequest.Builder builder, String json) throws IOException {
+        HttpRequest httpRequest = builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        return send(integration, httpRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * POST 表单请求
+     *
+     * @param integration 集成方名称
+     * @param url         请求地址
+     * @param formData    表单参数
+     * @return 响应
+     */
+    public HttpResponse<String> postForm(String integration, String url, Map<String, Object> formData) throws IOException {
+        StringJoiner body = new StringJoiner("&");
+        formData.forEach((name, value) -> body.add(URLEncodeUtil.encodeAll(name) + "=" + URLEncodeUtil.encodeAll(String.valueOf(value))));
+        HttpRequest httpRequest = newRequest(url)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+                .build();
+        return send(integration, httpRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * 流式 GET 请求，调用方负责关闭响应体（关闭后连接归还连接池）
+     * 响应体在收到响应头后的 outbound.http.body-timeout 内必须读完，超时后连接被断开，读取抛出 HttpTimeoutException
+     *
+     * @param integration 集成方名称
+     * @param builder     请求构造器
+     * @return 响应
+     */
+    public HttpResponse<InputStream> getStream(String integration, HttpRequest.Builder builder) throws IOException {
+        return send(integration, builder.GET().build(), responseInfo -> HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofInputStream(),
+                inputStream -> new DeadlineInputStream(inputStream, outboundHttpConfig.getBodyTimeout(), bodyTimeoutScheduler)));
+    }
+
+    /**
+     * 发送请求并记录耗时
+     */
+    public <T> HttpResponse<T> send(String integration, HttpRequest httpRequest, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            HttpResponse<T> httpResponse = httpClient.send(httpRequest, bodyHandler);
+            status = String.valueOf(httpResponse.statusCode());
+            return httpResponse;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断: " + httpRequest.uri(), e);
+        } finally {
+            Timer.builder("http.client.outbound")
+                    .description("对外 HTTP 请求耗时")
+                    .tag("integration", integration)
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 合法的地址直接使用，含空格、中文等字符时先编码
+     */
+    private static URI toUri(String url) {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return URI.create(URLUtil.encode(url));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.zzm.picturebackend.manager.image;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.ciModel.persistence.CIObject;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
+import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
+import com.zzm.picturebackend.config.CosClientConfig;
+import com.zzm.picturebackend.manager.CosManager;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import com.zzm.picturebackend.model.dto.file.PictureRendition;
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 数据万象图片处理引擎：上传时附带 imageMogr2 处理规则，由对象存储在一次请求中完成转 webp、生成缩略图和缩放版本
+ */
+@Slf4j
+@Component
+public class CiPictureProcessEngine implements PictureProcessEngine {
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    /**
+     * 数据万象只返回平均色，调色板和感知哈希从缩略图读回后在本地提取
+     * （缩略图保持原图格式，原图是 webp 等 ImageIO 无法解码的格式时跳过）
+     */
+    @Resource
+    private PictureFeatureExtractor pictureFeatureExtractor;
+
+    @Override
+    public UploadPictureResult process(String uploadPath, InputStream inputStream, long contentLength, String originFilename) {
+        PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, inputStream, contentLength);
+        return buildUploadResult(putObjectResult.getCiUploadResult(), originFilename, uploadPath, contentLength);
+    }
+
+    /**
+     * 根据对象存储的处理结果封装返回结果
+     */
+    public UploadPictureResult buildUploadResult(CIUploadResult ciUploadResult, String originFilename, String uploadPath, long fileSize) {
+        // 获取图片信息
+        ImageInfo imageInfo = ciUploadResult.getOriginalInfo().getImageInfo();
+        // 获取图片处理结果
+        ProcessResults processResults = ciUploadResult.getProcessResults();
+        List<CIObject> objectList = processResults.getObjectList();
+        if (CollUtil.isNotEmpty(objectList)) {
+            // 按 key 区分压缩图、缩略图和缩放版本（缩略图规则只对大于 2KB 的图片生效，不能按下标判断）
+            CIObject compressedCiObject = null;
+            CIObject thumbnailCiObject = null;
+            List<CIObject> renditionCiObjects = new ArrayList<>();
+            for (CIObject ciObject : objectList) {
+                if (PictureRenditions.parseSize(ciObject.getKey()) != null) {
+                    renditionCiObjects.add(ciObject);
+                } else if (ciObject.getKey().contains("_thumbnail.")) {
+                    thumbnailCiObject = ciObject;
+                } else if (compressedCiObject == null) {
+                    compressedCiObject = ciObject;
+                }
+            }
+            if (compressedCiObject != null) {
+                // 缩略图默认等于压缩图片
+                if (thumbnailCiObject == null) {
+                    thumbnailCiObject = compressedCiObject;
+                }
+                log.info("Compressed CIObject: {}", compressedCiObject);
+                log.info("Thumbnail CIObject: {}", thumbnailCiObject);
+                UploadPictureResult uploadPictureResult = buildResult(originFilename, compressedCiObject, thumbnailCiObject, imageInfo);
+                uploadPictureResult.setRenditions(buildRenditions(renditionCiObjects, compressedCiObject));
+                pictureFeatureExtractor.fill(uploadPictureResult, thumbnailCiObject.getKey());
+                return uploadPictureResult;
+            }
+        }
+        UploadPictureResult uploadPictureResult = buildResult(originFilename, fileSize, uploadPath, imageInfo);
+        pictureFeatureExtractor.fill(uploadPictureResult, StrUtil.removePrefix(uploadPath, "/"));
+        return uploadPictureResult;
+    }
+
+    /**
+     * 封装缩放版本：原图不大于规定边长时数据万象按原尺寸输出，这类版本与压缩图重复，删除后不记录
+     */
+    private List<PictureRendition> buildRenditions(List<CIObject> renditionCiObjects, CIObject compressedCiObject) {
+        List<PictureRendition> renditions = new ArrayList<>(renditionCiObjects.size());
+        List<String> redundantKeys = new ArrayList<>();
+        for (CIObject ciObject : renditionCiObjects) {
+            if (ciObject.getWidth() >= compressedCiObject.getWidth() && ciObject.getHeight() >= compressedCiObject.getHeight()) {
+                redundantKeys.add(ciObject.getKey());
+                continue;
+            }
+            PictureRendition pictureRendition = new PictureRendition();
+            pictureRendition.setUrl(cosClientConfig.getHost() + "/" + ciObject.getKey());
+            pictureRendition.setWidth(ciObject.getWidth());
+            pictureRendition.setHeight(ciObject.getHeight());
+            pictureRendition.setFormat(ciObject.getFormat());
+            pictureRendition.setSize(ciObject.getSize().longValue());
+            renditions.add(pictureRendition);
+        }
+        if (!redundantKeys.isEmpty()) {
+            List<String> failedKeys = objectStorage.deleteObjects(redundantKeys);
+            if (!failedKeys.isEmpty()) {
+                log.warn("删除多余的缩放版本失败: {}", failedKeys);
+            }
+        }
+        renditions.sort(Comparator.comparing(PictureRendition::getWidth));
+        return renditions;
+    }
+
+    /**
+     * 封装返回结果
+     *
+     * @param originalFilename   原始文件名
+     * @param compressedCiObject 压缩后的对象
+     * @param thumbnailCiObject 缩略图对象
+     * @param imageInfo 图片信息
+     * @return
+     */
+    private UploadPictureResult buildResult(String originalFilename, CIObject compressedCiObject, CIObject thumbnailCiObject,
+                                            ImageInfo imageInfo) {
+        // 计算宽高
+        int picWidth = compressedCiObject.getWidth();
+        int picHeight = compressedCiObject.getHeight();
+        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
+        // 封装返回结果
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        // 设置压缩后的原图地址
+        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
+        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
+        uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(compressedCiObject.getFormat());
+        uploadPictureResult.setPicColor(imageInfo.getAve());
+        // 设置缩略图地址
+        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
+        // 返回可访问的地址
+        return uploadPictureResult;
+    }
+
+    /**
+     * 封装返回结果
+     *
+     * @param originalFilename
+     * @param fileSize         文件大小
+     * @param uploadPath
+     * @param imageInfo        对象存储返回的图片信息
+     * @return
+     */
+    private UploadPictureResult buildResult(String originalFilename, long fileSize, String uploadPath, ImageInfo imageInfo) {
+        // 计算宽高
+        int picWidth = imageInfo.getWidth();
+        int picHeight = imageInfo.getHeight();
+        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
+        // 封装返回结果
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
+        uploadPictureResult.setPicSize(fileSize);
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(imageInfo.getFormat());
+        uploadPictureResult.setPicColor(imageInfo.getAve());
+        // 返回可访问的地址
+        return uploadPictureResult;
+    }
+}
@@ -0,0 +1,237 @@
+package com.zzm.picturebackend.manager.image;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zzm.picturebackend.config.PictureUploadConfig;
+import com.zzm.picturebackend.config.StorageConfig;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import com.zzm.picturebackend.model.dto.file.PictureRendition;
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+import com.zzm.picturebackend.utils.ImageProcessUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地图片处理引擎：在应用内完成解码、缩放、编码和取主色调 / 调色板 / 感知哈希，对象存储只负责保存文件，不依赖数据万象
+ * （使用本地磁盘存储时只能使用该引擎）
+ * 1. 解码和编码是纯 CPU 计算，放在独立的线程池中执行（线程数默认等于 CPU 核数），
+ *    避免大量并发上传时 Tomcat 线程同时做图片计算导致整体抖动
+ * 2. JDK 自带的 ImageIO 没有 webp / avif 编码器，压缩图和缩放版本使用 jpg（带透明通道的图片使用 png）
+ * 3. ImageIO 无法解码的格式（如 webp）交给数据万象处理，存储不是 COS 时拒绝上传
+ */
+@Slf4j
+@Component
+public class LocalPictureProcessEngine implements PictureProcessEngine {
+
+    /**
+     * 缩略图最大宽高
+     */
+    private static final int THUMBNAIL_SIZE = 256;
+
+    /**
+     * 超过该大小才生成缩略图（与数据万象规则一致），否则缩略图就是压缩图
+     */
+    private static final long THUMBNAIL_MIN_FILE_SIZE = 2 * 1024;
+
+    /**
+     * jpg 压缩质量
+     */
+    private static final float COMPRESS_QUALITY = 0.8f;
+
+    /**
+     * 解码的像素数上限（约 8K x 6K）
+     */
+    private static final long MAX_PIXELS = 50_000_000L;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private CiPictureProcessEngine ciPictureProcessEngine;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = pictureUploadConfig.getLocalEngineThreads() > 0
+                ? pictureUploadConfig.getLocalEngineThreads() : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                ThreadUtil.newNamedThreadFactory("picture-process-", true));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public UploadPictureResult process(String uploadPath, InputStream inputStream, long contentLength, String originFilename) throws Exception {
+        byte[] bytes = IoUtil.readBytes(inputStream, false);
+        ProcessedPicture processedPicture;
+        try {
+            List<Integer> renditionSizes = pictureUploadConfig.getRenditionSizes();
+            processedPicture = executor.submit(() -> processImage(bytes, renditionSizes)).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        if (processedPicture == null) {
+            if (!storageConfig.isCos()) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的图片格式");
+            }
+            log.info("本地无法解码该图片，交给数据万象处理: {}", uploadPath);
+            return ciPictureProcessEngine.process(uploadPath, new ByteArrayInputStream(bytes), bytes.length, originFilename);
+        }
+        // 与数据万象一致：原图、压缩图、缩略图放在同一目录下
+        String directory = StrUtil.removePrefix(uploadPath.substring(0, uploadPath.lastIndexOf('/') + 1), "/");
+        String mainName = FileUtil.mainName(uploadPath);
+        String format = processedPicture.getFormat();
+        String contentType = "image/" + ("jpg".equals(format) ? "jpeg" : format);
+        String compressedKey = directory + mainName + "_compressed." + format;
+        objectStorage.putObject(uploadPath, bytes, null);
+        objectStorage.putObject(compressedKey, processedPicture.getCompressed(), contentType);
+        String thumbnailKey = compressedKey;
+        if (bytes.length > THUMBNAIL_MIN_FILE_SIZE) {
+            thumbnailKey = directory + mainName + "_thumbnail." + format;
+            objectStorage.putObject(thumbnailKey, processedPicture.getThumbnail(), contentType);
+        }
+        List<PictureRendition> renditions = new ArrayList<>(processedPicture.getRenditions().size());
+        for (EncodedRendition encodedRendition : processedPicture.getRenditions()) {
+            String renditionKey = directory + PictureRenditions.fileName(uploadPath, encodedRendition.getSize(), format);
+            objectStorage.putObject(renditionKey, encodedRendition.getBytes(), contentType);
+            PictureRendition pictureRendition = new PictureRendition();
+            pictureRendition.setUrl(objectStorage.getHost() + "/" + renditionKey);
+            pictureRendition.setWidth(encodedRendition.getWidth());
+            pictureRendition.setHeight(encodedRendition.getHeight());
+            pictureRendition.setFormat(format);
+            pictureRendition.setSize((long) encodedRendition.getBytes().length);
+            renditions.add(pictureRendition);
+        }
+        renditions.sort(Comparator.comparing(PictureRendition::getWidth));
+
+        int picWidth = processedPicture.getWidth();
+        int picHeight = processedPicture.getHeight();
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(objectStorage.getHost() + "/" + compressedKey);
+        uploadPictureResult.setThumbnailUrl(objectStorage.getHost() + "/" + thumbnailKey);
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        uploadPictureResult.setPicSize((long) processedPicture.getCompressed().length);
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue());
+        uploadPictureResult.setPicFormat(format);
+        uploadPictureResult.setPicColor(processedPicture.getColor());
+        uploadPictureResult.setRenditions(renditions);
+        processedPicture.getFeatures().applyTo(uploadPictureResult);
+        return uploadPictureResult;
+    }
+
+    /**
+     * 解码一次，生成压缩图、缩略图、缩放版本和主色调（在处理线程池中执行）
+     * 缩略图和缩放版本按边长从大到小依次在上一级结果上缩小，每一级只处理上一级的像素
+     *
+     * @param renditionSizes 缩放版本边长
+     * @return 处理结果；无法解码时返回 null
+     */
+    private static ProcessedPicture processImage(byte[] bytes, List<Integer> renditionSizes) throws Exception {
+        BufferedImage image = ImageProcessUtils.decode(bytes, MAX_PIXELS);
+        if (image == null) {
+            return null;
+        }
+        String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+        TreeSet<Integer> sizes = new TreeSet<>(Comparator.reverseOrder());
+        sizes.addAll(renditionSizes);
+        sizes.add(THUMBNAIL_SIZE);
+        BufferedImage thumbnailImage = image;
+        List<EncodedRendition> renditions = new ArrayList<>();
+        BufferedImage current = image;
+        for (Integer size : sizes) {
+            current = ImageProcessUtils.scaleToFit(current, size, size);
+            if (size == THUMBNAIL_SIZE) {
+                thumbnailImage = current;
+            }
+            // 原图不超过该边长时不生成，直接使用压缩图
+            if (current != image && renditionSizes.contains(size)) {
+                renditions.add(new EncodedRendition(size, current.getWidth(), current.getHeight(),
+                        ImageProcessUtils.encode(current, format, COMPRESS_QUALITY)));
+            }
+        }
+        ProcessedPicture processedPicture = new ProcessedPicture();
+        processedPicture.setRenditions(renditions);
+        processedPicture.setFormat(format);
+        processedPicture.setWidth(image.getWidth());
+        processedPicture.setHeight(image.getHeight());
+        processedPicture.setCompressed(ImageProcessUtils.encode(image, format, COMPRESS_QUALITY));
+        processedPicture.setThumbnail(thumbnailImage == image
+                ? processedPicture.getCompressed() : ImageProcessUtils.encode(thumbnailImage, format, COMPRESS_QUALITY));
+        processedPicture.setColor(ImageProcessUtils.averageColor(thumbnailImage));
+        processedPicture.setFeatures(PictureFeatureExtractor.extract(thumbnailImage));
+        return processedPicture;
+    }
+
+    /**
+     * 本地处理结果
+     */
+    @Data
+    private static class ProcessedPicture {
+
+        private String format;
+
+        private int width;
+
+        private int height;
+
+        private byte[] compressed;
+
+        private byte[] thumbnail;
+
+        private String color;
+
+        private List<EncodedRendition> renditions;
+
+        private PictureFeatureExtractor.PictureFeatures features;
+    }
+
+    /**
+     * 编码后的缩放版本
+     */
+    @Data
+    @AllArgsConstructor
+    private static class EncodedRendition {
+
+        private int size;
+
+        private int width;
+
+        private int height;
+
+        private byte[] bytes;
+    }
+}
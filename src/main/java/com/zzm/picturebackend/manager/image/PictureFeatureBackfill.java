@@ -0,0 +1,141 @@
+package com.zzm.picturebackend.manager.image;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.zzm.picturebackend.manager.search.PictureHashIndex;
+import com.zzm.picturebackend.manager.search.PicturePaletteIndex;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 存量图片的检索特征回填：为没有感知哈希的图片读取缩略图，计算 pHash / dHash（调色板为空时一并补上）
+ * 由管理员手动触发，在单独的后台线程中按 id 分批执行，同一时间只运行一个
+ */
+@Slf4j
+@Component
+public class PictureFeatureBackfill {
+
+    /**
+     * 每批读取的行数
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private PictureFeatureExtractor pictureFeatureExtractor;
+
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PicturePaletteIndex picturePaletteIndex;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 启动回填
+     *
+     * @return 是否启动；已有回填在运行时返回 false
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        ThreadUtil.newThread(() -> {
+            try {
+                run();
+            } finally {
+                running.set(false);
+            }
+        }, "picture-feature-backfill", true).start();
+        return true;
+    }
+
+    /**
+     * 是否正在回填
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void run() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int updated = 0;
+        int skipped = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "spaceId", "url", "thumbnailUrl", "palette", "picWidth", "picHeight")
+                    .isNull("phash")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            if (pictureList.isEmpty()) {
+                break;
+            }
+            for (Picture picture : pictureList) {
+                if (backfill(picture)) {
+                    updated++;
+                } else {
+                    skipped++;
+                }
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+            log.info("图片特征回填进度：已更新 {} 张，跳过 {} 张，当前 id = {}", updated, skipped, lastId);
+        }
+        log.info("图片特征回填完成：更新 {} 张，跳过 {} 张，耗时 {} ms", updated, skipped, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 回填单张图片，失败只记录日志
+     */
+    private boolean backfill(Picture picture) {
+        // 优先读取缩略图，不是本存储的地址（如早期外链）无法读取
+        String key = objectStorage.getKey(StrUtil.blankToDefault(picture.getThumbnailUrl(), picture.getUrl()));
+        if (key == null) {
+            return false;
+        }
+        PictureFeatureExtractor.PictureFeatures pictureFeatures;
+        try {
+            pictureFeatures = pictureFeatureExtractor.extract(key);
+        } catch (Exception e) {
+            log.warn("回填图片特征失败, id = {}, key = {}", picture.getId(), key, e);
+            return false;
+        }
+        if (pictureFeatures == null) {
+            return false;
+        }
+        String palette = StrUtil.isBlank(picture.getPalette()) ? PicturePalettes.encode(pictureFeatures.getPalette()) : null;
+        UpdateWrapper<Picture> updateWrapper = new UpdateWrapper<>();
+        // 只更新仍未计算的行，期间重新上传过的图片已有新的哈希
+        updateWrapper.eq("id", picture.getId())
+                .isNull("phash")
+                .set("phash", pictureFeatures.getPhash())
+                .set("dhash", pictureFeatures.getDhash())
+                .set(palette != null, "palette", palette);
+        if (pictureMapper.update(null, updateWrapper) == 0) {
+            // 期间已被删除或重新上传
+            return false;
+        }
+        pictureHashIndex.refresh(picture.getId());
+        if (palette != null) {
+            picturePaletteIndex.refresh(picture.getId());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.zzm.picturebackend.manager.image;
+
+import cn.hutool.core.io.IoUtil;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import com.zzm.picturebackend.manager.storage.StorageObject;
+import com.zzm.picturebackend.model.dto.file.PaletteColor;
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+import com.zzm.picturebackend.utils.ImageHashUtils;
+import com.zzm.picturebackend.utils.ImageProcessUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 图片检索特征提取：调色板、pHash、dHash
+ * 所有特征都在缩略图级别的图片上计算，解码一次即可全部得到
+ */
+@Slf4j
+@Component
+public class PictureFeatureExtractor {
+
+    /**
+     * 解码的像素数上限
+     */
+    private static final long MAX_PIXELS = 50_000_000L;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    /**
+     * 从已解码的图片提取特征
+     *
+     * @param image 图片
+     * @return 特征
+     */
+    public static PictureFeatures extract(BufferedImage image) {
+        PictureFeatures pictureFeatures = new PictureFeatures();
+        pictureFeatures.setPalette(PicturePalettes.extract(image));
+        pictureFeatures.setPhash(ImageHashUtils.pHash(image));
+        pictureFeatures.setDhash(ImageHashUtils.dHash(image));
+        return pictureFeatures;
+    }
+
+    /**
+     * 读取对象存储中的图片并提取特征
+     *
+     * @param key 对象 key（应尽量使用缩略图）
+     * @return 特征；ImageIO 无法解码时返回 null
+     */
+    public PictureFeatures extract(String key) throws IOException {
+        try (StorageObject storageObject = objectStorage.getObject(key)) {
+            BufferedImage image = ImageProcessUtils.decode(IoUtil.readBytes(storageObject.getContent(), false), MAX_PIXELS);
+            return image == null ? null : extract(image);
+        }
+    }
+
+    /**
+     * 提取特征并写入上传结果，失败时只记录日志，不影响上传
+     *
+     * @param uploadPictureResult 上传结果
+     * @param key                 对象 key
+     */
+    public void fill(UploadPictureResult uploadPictureResult, String key) {
+        try {
+            PictureFeatures pictureFeatures = extract(key);
+            if (pictureFeatures != null) {
+                pictureFeatures.applyTo(uploadPictureResult);
+            }
+        } catch (Exception e) {
+            log.warn("提取图片特征失败, key = {}", key, e);
+        }
+    }
+
+    /**
+     * 图片检索特征
+     */
+    @Data
+    public static class PictureFeatures {
+
+        private List<PaletteColor> palette;
+
+        private Long phash;
+
+        private Long dhash;
+
+        public void applyTo(UploadPictureResult uploadPictureResult) {
+            uploadPictureResult.setPalette(palette);
+            uploadPictureResult.setPhash(phash);
+            uploadPictureResult.setDhash(dhash);
+        }
+    }
+}
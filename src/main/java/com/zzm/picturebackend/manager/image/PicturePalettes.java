@@ -0,0 +1,219 @@
+package com.zzm.picturebackend.manager.image;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zzm.picturebackend.model.dto.file.PaletteColor;
+import com.zzm.picturebackend.utils.ColorMetricUtils;
+import com.zzm.picturebackend.utils.ImageProcessUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 调色板的提取和存储格式
+ * 1. 提取：缩小到 64x64 以内后做中位切分（median-cut），得到最多 5 个颜色及其像素占比
+ * 2. 存储：picture.palette 保存为 "RRGGBB:占比百分数" 用逗号拼接（如 "6A8CAF:38,F2A541:22"），最长 49 个字符
+ */
+public final class PicturePalettes {
+
+    /**
+     * 调色板颜色数
+     */
+    public static final int PALETTE_SIZE = 5;
+
+    /**
+     * 提取前缩小到的最大边长，4096 个像素足以区分主要颜色
+     */
+    private static final int SAMPLE_SIZE = 64;
+
+    /**
+     * 透明度低于该值的像素不参与统计
+     */
+    private static final int MIN_ALPHA = 128;
+
+    private PicturePalettes() {
+    }
+
+    /**
+     * 提取调色板
+     *
+     * @param image 图片
+     * @return 按占比降序的颜色列表；图片完全透明时返回空列表
+     */
+    public static List<PaletteColor> extract(BufferedImage image) {
+        BufferedImage sample = ImageProcessUtils.scaleToFit(image, SAMPLE_SIZE, SAMPLE_SIZE);
+        int width = sample.getWidth();
+        int height = sample.getHeight();
+        int[] argb = sample.getRGB(0, 0, width, height, null, 0, width);
+        boolean hasAlpha = sample.getColorModel().hasAlpha();
+        int[] pixels = new int[argb.length];
+        int count = 0;
+        for (int pixel : argb) {
+            if (!hasAlpha || (pixel >>> 24) >= MIN_ALPHA) {
+                pixels[count++] = pixel & 0xFFFFFF;
+            }
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        // 每个盒子是 pixels 中的一段 [start, end)
+        List<int[]> boxes = new ArrayList<>(PALETTE_SIZE);
+        boxes.add(new int[]{0, count});
+        while (boxes.size() < PALETTE_SIZE) {
+            // 选 跨度 x 像素数 最大的盒子（避免反复切分像素很少的杂色），沿跨度最大的通道在中位数处切开
+            int[] target = null;
+            int targetShift = 0;
+            long targetScore = 0;
+            for (int[] box : boxes) {
+                if (box[1] - box[0] < 2) {
+                    continue;
+                }
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    long score = (long) channelRange(pixels, box[0], box[1], shift) * (box[1] - box[0]);
+                    if (score > targetScore) {
+                        target = box;
+                        targetShift = shift;
+                        targetScore = score;
+                    }
+                }
+            }
+            if (target == null) {
+                break;
+            }
+            sortByChannel(pixels, target[0], target[1], targetShift);
+            int median = splitPoint(pixels, target[0], target[1], targetShift);
+            boxes.add(new int[]{median, target[1]});
+            target[1] = median;
+        }
+        Map<Integer, Integer> colorCounts = new LinkedHashMap<>();
+        for (int[] box : boxes) {
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int i = box[0]; i < box[1]; i++) {
+                red += (pixels[i] >> 16) & 0xFF;
+                green += (pixels[i] >> 8) & 0xFF;
+                blue += pixels[i] & 0xFF;
+            }
+            int size = box[1] - box[0];
+            int rgb = (int) (red / size) << 16 | (int) (green / size) << 8 | (int) (blue / size);
+            // 平均色相同的盒子合并
+            colorCounts.merge(rgb, size, Integer::sum);
+        }
+        List<PaletteColor> palette = new ArrayList<>(colorCounts.size());
+        for (Map.Entry<Integer, Integer> entry : colorCounts.entrySet()) {
+            palette.add(new PaletteColor(ColorMetricUtils.toHex(entry.getKey()), (double) entry.getValue() / count));
+        }
+        palette.sort(Comparator.comparing(PaletteColor::getWeight).reversed());
+        return palette;
+    }
+
+    /**
+     * 转为存储格式
+     *
+     * @param palette 调色板
+     * @return 存储格式；调色板为空时返回 null
+     */
+    public static String encode(List<PaletteColor> palette) {
+        if (CollUtil.isEmpty(palette)) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(palette.size() * 10);
+        for (PaletteColor paletteColor : palette) {
+            Integer rgb = ColorMetricUtils.parseColor(paletteColor.getColor());
+            if (rgb == null || paletteColor.getWeight() == null) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(String.format("%06X", rgb)).append(':').append(Math.round(paletteColor.getWeight() * 100));
+        }
+        return builder.length() == 0 ? null : builder.toString();
+    }
+
+    /**
+     * 解析存储格式，忽略无法解析的项
+     *
+     * @param value 存储格式
+     * @return 调色板；为空时返回空列表
+     */
+    public static List<PaletteColor> decode(String value) {
+        if (StrUtil.isBlank(value)) {
+            return Collections.emptyList();
+        }
+        List<PaletteColor> palette = new ArrayList<>(PALETTE_SIZE);
+        for (String item : StrUtil.split(value, ',')) {
+            int separator = item.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            Integer rgb = ColorMetricUtils.parseColor("#" + item.substring(0, separator));
+            try {
+                int percent = Integer.parseInt(item.substring(separator + 1));
+                if (rgb != null) {
+                    palette.add(new PaletteColor(ColorMetricUtils.toHex(rgb), percent / 100.0));
+                }
+            } catch (NumberFormatException ignored) {
+                // 跳过损坏的项
+            }
+        }
+        return palette;
+    }
+
+    /**
+     * 切分点：取中位数附近该通道取值变化的位置，避免把同一种颜色切成两半
+     * 调用前已按该通道排序，且跨度大于 0，一定存在取值变化的位置
+     */
+    private static int splitPoint(int[] pixels, int start, int end, int shift) {
+        int median = (start + end) >>> 1;
+        for (int offset = 0; ; offset++) {
+            int right = median + offset;
+            if (right < end && right > start && channel(pixels[right - 1], shift) != channel(pixels[right], shift)) {
+                return right;
+            }
+            int left = median - offset;
+            if (left > start && left < end && channel(pixels[left - 1], shift) != channel(pixels[left], shift)) {
+                return left;
+            }
+        }
+    }
+
+    private static int channel(int rgb, int shift) {
+        return (rgb >> shift) & 0xFF;
+    }
+
+    private static int channelRange(int[] pixels, int start, int end, int shift) {
+        int min = 255;
+        int max = 0;
+        for (int i = start; i < end; i++) {
+            int value = (pixels[i] >> shift) & 0xFF;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return max - min;
+    }
+
+    /**
+     * 按某个通道做计数排序（通道只有 256 个取值）
+     */
+    private static void sortByChannel(int[] pixels, int start, int end, int shift) {
+        int[] counts = new int[257];
+        for (int i = start; i < end; i++) {
+            counts[((pixels[i] >> shift) & 0xFF) + 1]++;
+        }
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        int[] sorted = new int[end - start];
+        for (int i = start; i < end; i++) {
+            sorted[counts[(pixels[i] >> shift) & 0xFF]++] = pixels[i];
+        }
+        System.arraycopy(sorted, 0, pixels, start, sorted.length);
+    }
+}
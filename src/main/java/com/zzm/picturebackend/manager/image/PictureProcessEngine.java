@@ -0,0 +1,22 @@
+package com.zzm.picturebackend.manager.image;
+
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+
+import java.io.InputStream;
+
+/**
+ * 图片处理引擎：写入原图，生成压缩图和缩略图并解析图片信息
+ */
+public interface PictureProcessEngine {
+
+    /**
+     * 上传并处理图片
+     *
+     * @param uploadPath     原图上传路径
+     * @param inputStream    图片数据流
+     * @param contentLength  内容长度
+     * @param originFilename 原始文件名
+     * @return 上传结果（不含内容摘要）
+     */
+    UploadPictureResult process(String uploadPath, InputStream inputStream, long contentLength, String originFilename) throws Exception;
+}
@@ -0,0 +1,40 @@
+package com.zzm.picturebackend.manager.image;
+
+import cn.hutool.core.io.FileUtil;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 缩放版本的命名规则：{原图主文件名}_r{边长}.{格式}，与原图放在同一目录下
+ */
+public final class PictureRenditions {
+
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("_r(\\d+)\\.[A-Za-z0-9]+$");
+
+    private PictureRenditions() {
+    }
+
+    /**
+     * 缩放版本的文件名（不含目录）
+     *
+     * @param uploadPath 原图上传路径
+     * @param size       边长
+     * @param format     格式
+     * @return 文件名
+     */
+    public static String fileName(String uploadPath, int size, String format) {
+        return FileUtil.mainName(uploadPath) + "_r" + size + "." + format;
+    }
+
+    /**
+     * 从对象 key 中解析缩放版本的边长
+     *
+     * @param key 对象 key
+     * @return 边长；不是缩放版本时返回 null
+     */
+    public static Integer parseSize(String key) {
+        Matcher matcher = FILE_NAME_PATTERN.matcher(key);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+}
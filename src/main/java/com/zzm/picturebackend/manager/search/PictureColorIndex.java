@@ -0,0 +1,439 @@
+package com.zzm.picturebackend.manager.search;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.entity.Picture;
+import com.zzm.picturebackend.model.enums.ColorMetricEnum;
+import com.zzm.picturebackend.utils.ColorMetricUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 空间图片主色调索引
+ * 1. 按空间懒加载：首次按颜色搜索时分批读取该空间图片的 id 和主色调，打包成 RGB 整数存入基本类型数组
+ * 2. 查询时遍历数组计算距离（不创建对象），用大小为 k 的大顶堆保留最近的 k 个，再按 id 回表；Lab 分量在入索引时预先算好
+ * 3. 本实例的写操作在事务提交后增量更新已加载的空间；其他实例通过 Redis 发布订阅让该空间失效，下次查询时重建
+ */
+@Slf4j
+@Component
+public class PictureColorIndex implements MessageListener {
+
+    /**
+     * 失效通知频道，消息内容为 "实例 id:空间 id"
+     */
+    private static final String INVALIDATE_CHANNEL = "picture:color:invalidate";
+
+    /**
+     * 加载时每批读取的行数
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * 所有空间合计最多缓存的图片数
+     */
+    private static final long MAX_ENTRIES = 2_000_000L;
+
+    /**
+     * CIEDE2000 精排的候选数：取 CIE76 最近的 max(k * 32, 512) 个
+     */
+    private static final int SHORTLIST_FACTOR = 32;
+
+    private static final int SHORTLIST_MIN = 512;
+
+    /**
+     * 区分通知来源，自身发出的通知不处理（已增量更新）
+     */
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 空间 id -> 该空间的颜色索引，按图片数加权淘汰
+     */
+    private final Cache<Long, SpaceColors> spaceCache = Caffeine.newBuilder()
+            .maximumWeight(MAX_ENTRIES)
+            .weigher((Long spaceId, SpaceColors spaceColors) -> Math.max(1, spaceColors.size))
+            .expireAfterAccess(Duration.ofHours(1))
+            .recordStats()
+            .build();
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @PostConstruct
+    public void init() {
+        CaffeineCacheMetrics.monitor(meterRegistry, spaceCache, "picture.color.index");
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 查找主色调最接近的图片
+     *
+     * @param spaceId 空间 id
+     * @param rgb     目标颜色（0xRRGGBB）
+     * @param limit   最多返回条数
+     * @param metric  颜色距离算法
+     * @return 图片 id 列表，按距离从近到远
+     */
+    public List<Long> search(long spaceId, int rgb, int limit, ColorMetricEnum metric) {
+        SpaceColors spaceColors = spaceCache.get(spaceId, this::load);
+        return spaceColors.nearest(rgb, limit, metric);
+    }
+
+    /**
+     * 新增或更新图片的主色调（在事务中调用时，提交后才生效）
+     *
+     * @param id       图片 id
+     * @param spaceId  空间 id（公共图库不建索引）
+     * @param picColor 主色调，为空时从索引中移除
+     */
+    public void index(long id, Long spaceId, String picColor) {
+        if (spaceId == null) {
+            return;
+        }
+        Integer rgb = ColorMetricUtils.parseColor(picColor);
+        afterCommit(() -> {
+            // 空间正在加载时会等待加载完成再更新，不会丢失
+            spaceCache.asMap().computeIfPresent(spaceId, (key, spaceColors) -> {
+                if (rgb == null) {
+                    spaceColors.remove(id);
+                } else {
+                    spaceColors.put(id, rgb);
+                }
+                return spaceColors;
+            });
+            publishInvalidate(spaceId);
+        });
+    }
+
+    /**
+     * 删除图片（在事务中调用时，提交后才生效）
+     *
+     * @param id      图片 id
+     * @param spaceId 空间 id
+     */
+    public void remove(long id, Long spaceId) {
+        index(id, spaceId, null);
+    }
+
+    /**
+     * 收到其他实例的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0 || instanceId.equals(body.substring(0, separator))) {
+            return;
+        }
+        try {
+            spaceCache.invalidate(Long.parseLong(body.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("无效的颜色索引失效通知: {}", body);
+        }
+    }
+
+    private void publishInvalidate(long spaceId) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, instanceId + ":" + spaceId);
+        } catch (Exception e) {
+            // 通知失败时其他实例依赖过期时间兜底
+            log.warn("发布颜色索引失效通知失败, spaceId = {}", spaceId, e);
+        }
+    }
+
+    /**
+     * 分批读取空间内有主色调的图片
+     */
+    private SpaceColors load(Long spaceId) {
+        long start = System.currentTimeMillis();
+        SpaceColors spaceColors = new SpaceColors();
+        long lastId = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "picColor")
+                    .eq("spaceId", spaceId)
+                    .isNotNull("picColor")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + LOAD_BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            if (pictureList.isEmpty()) {
+                break;
+            }
+            for (Picture picture : pictureList) {
+                Integer rgb = ColorMetricUtils.parseColor(picture.getPicColor());
+                if (rgb != null) {
+                    spaceColors.put(picture.getId(), rgb);
+                }
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        log.info("空间 {} 颜色索引加载完成，共 {} 张图片，耗时 {} ms", spaceId, spaceColors.size, System.currentTimeMillis() - start);
+        return spaceColors;
+    }
+
+    /**
+     * 当前存在事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 单个空间的颜色数组（按列存放，便于 JIT 对距离计算循环做自动向量化）
+     * 写操作（上传、删除）远少于读，更新和删除按 id 线性查找，换取不需要额外的 id -> 下标映射
+     */
+    static final class SpaceColors {
+
+        private long[] ids = new long[16];
+
+        private int[] colors = new int[16];
+
+        /**
+         * 入库时预先算好的 Lab 分量
+         */
+        private float[] labL = new float[16];
+
+        private float[] labA = new float[16];
+
+        private float[] labB = new float[16];
+
+        private int size;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void put(long id, int rgb) {
+            float[] lab = new float[3];
+            ColorMetricUtils.rgbToLab(rgb, lab);
+            lock.writeLock().lock();
+            try {
+                int position = indexOf(id);
+                if (position < 0) {
+                    if (size == ids.length) {
+                        int capacity = size * 2;
+                        ids = Arrays.copyOf(ids, capacity);
+                        colors = Arrays.copyOf(colors, capacity);
+                        labL = Arrays.copyOf(labL, capacity);
+                        labA = Arrays.copyOf(labA, capacity);
+                        labB = Arrays.copyOf(labB, capacity);
+                    }
+                    position = size++;
+                    ids[position] = id;
+                }
+                colors[position] = rgb;
+                labL[position] = lab[0];
+                labA[position] = lab[1];
+                labB[position] = lab[2];
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long id) {
+            lock.writeLock().lock();
+            try {
+                int position = indexOf(id);
+                if (position < 0) {
+                    return;
+                }
+                // 用最后一个元素填补空位
+                size--;
+                ids[position] = ids[size];
+                colors[position] = colors[size];
+                labL[position] = labL[size];
+                labA[position] = labA[size];
+                labB[position] = labB[size];
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * 距离最近的 limit 个图片 id，按距离从近到远
+         * CIEDE2000 含三角函数无法批量计算，先用向量化的 Lab 欧氏距离（CIE76）粗筛出候选，再对候选按 CIEDE2000 精排
+         */
+        List<Long> nearest(int rgb, int limit, ColorMetricEnum metric) {
+            float[] targetLab = new float[3];
+            ColorMetricUtils.rgbToLab(rgb, targetLab);
+            lock.readLock().lock();
+            try {
+                float[] distances = new float[size];
+                int[] positions;
+                if (metric == ColorMetricEnum.RGB) {
+                    rgbDistances(colors, size, rgb, distances);
+                    positions = selectNearest(distances, size, limit);
+                } else {
+                    labDistances(labL, labA, labB, size, targetLab[0], targetLab[1], targetLab[2], distances);
+                    int[] candidates = selectNearest(distances, size, Math.max(limit * SHORTLIST_FACTOR, SHORTLIST_MIN));
+                    // 对候选计算 CIEDE2000，复用 distances 数组
+                    for (int i = 0; i < candidates.length; i++) {
+                        int position = candidates[i];
+                        distances[i] = (float) ColorMetricUtils.ciede2000(targetLab[0], targetLab[1], targetLab[2],
+                                labL[position], labA[position], labB[position]);
+                    }
+                    positions = selectNearest(distances, candidates.length, limit);
+                    for (int i = 0; i < positions.length; i++) {
+                        positions[i] = candidates[positions[i]];
+                    }
+                }
+                List<Long> result = new ArrayList<>(positions.length);
+                for (int position : positions) {
+                    result.add(ids[position]);
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * RGB 距离的平方（不开方不影响排序）
+         */
+        static void rgbDistances(int[] colors, int size, int rgb, float[] out) {
+            int targetRed = (rgb >> 16) & 0xFF;
+            int targetGreen = (rgb >> 8) & 0xFF;
+            int targetBlue = rgb & 0xFF;
+            for (int i = 0; i < size; i++) {
+                int color = colors[i];
+                int dr = ((color >> 16) & 0xFF) - targetRed;
+                int dg = ((color >> 8) & 0xFF) - targetGreen;
+                int db = (color & 0xFF) - targetBlue;
+                out[i] = dr * dr + dg * dg + db * db;
+            }
+        }
+
+        /**
+         * Lab 欧氏距离的平方：无分支的计数循环，C2 会编译成 SIMD 指令
+         */
+        static void labDistances(float[] labL, float[] labA, float[] labB, int size,
+                                 float targetL, float targetA, float targetB, float[] out) {
+            for (int i = 0; i < size; i++) {
+                float dl = labL[i] - targetL;
+                float da = labA[i] - targetA;
+                float db = labB[i] - targetB;
+                out[i] = dl * dl + da * da + db * db;
+            }
+        }
+
+        /**
+         * 用大小为 limit 的大顶堆选出距离最小的 limit 个
+         *
+         * @return 下标数组，按距离从近到远
+         */
+        static int[] selectNearest(float[] distances, int size, int limit) {
+            // 大顶堆：堆顶是当前保留的 k 个中距离最远的
+            float[] heapDistances = new float[Math.min(limit, size)];
+            int[] heapPositions = new int[heapDistances.length];
+            int heapSize = 0;
+            for (int i = 0; i < size; i++) {
+                float distance = distances[i];
+                if (heapSize < heapDistances.length) {
+                    heapDistances[heapSize] = distance;
+                    heapPositions[heapSize] = i;
+                    siftUp(heapDistances, heapPositions, heapSize++);
+                } else if (distance < heapDistances[0]) {
+                    heapDistances[0] = distance;
+                    heapPositions[0] = i;
+                    siftDown(heapDistances, heapPositions, heapSize);
+                }
+            }
+            // 依次弹出堆顶得到从远到近的顺序，倒序填充
+            int[] result = new int[heapSize];
+            for (int remaining = heapSize; remaining > 0; remaining--) {
+                result[remaining - 1] = heapPositions[0];
+                heapDistances[0] = heapDistances[remaining - 1];
+                heapPositions[0] = heapPositions[remaining - 1];
+                siftDown(heapDistances, heapPositions, remaining - 1);
+            }
+            return result;
+        }
+
+        private int indexOf(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static void siftUp(float[] distances, int[] positions, int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distances[parent] >= distances[index]) {
+                    return;
+                }
+                swap(distances, positions, parent, index);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(float[] distances, int[] positions, int heapSize) {
+            int index = 0;
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < heapSize && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < heapSize && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(distances, positions, index, largest);
+                index = largest;
+            }
+        }
+
+        private static void swap(float[] distances, int[] positions, int i, int j) {
+            float distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+            int position = positions[i];
+            positions[i] = positions[j];
+            positions[j] = position;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.zzm.picturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.entity.Picture;
+import com.zzm.picturebackend.utils.ImageHashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 图片感知哈希的多索引哈希表（multi-index hashing），覆盖公共图库和所有空间
+ * 64 位 pHash 切成 4 段 16 位，每段一张哈希表。两个哈希的汉明距离不超过 r 时，至少有一段的距离不超过 r / 4（抽屉原理），
+ * 因此只需在每张表中探查与查询段距离不超过 r / 4 的取值，就能不遗漏地找出全部候选，再按完整距离和空间、审核状态过滤
+ * 启动后异步分批扫表重建；重建完成前 {@link #search} 返回 null
+ * 写操作在事务提交后按 id 回表刷新本实例的索引，并通过 Redis 发布订阅通知其他实例回表刷新
+ */
+@Slf4j
+@Component
+public class PictureHashIndex implements MessageListener {
+
+    /**
+     * 变更通知频道，消息内容为 "实例 id:图片 id,图片 id,..."
+     */
+    private static final String INVALIDATE_CHANNEL = "picture:hash:invalidate";
+
+    /**
+     * 回表时读取的字段
+     */
+    private static final String[] COLUMNS = {"id", "spaceId", "reviewStatus", "phash", "dhash", "picWidth", "picHeight"};
+
+    private static final int CHUNK_COUNT = 4;
+
+    private static final int CHUNK_BITS = 16;
+
+    /**
+     * 公共图库在索引中的空间 id
+     */
+    private static final long PUBLIC_SPACE_ID = 0;
+
+    /**
+     * 启动重建时每批读取的行数
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 区分通知来源，自身发出的通知不处理（已在本实例刷新）
+     */
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 每段一张表：段取值 -> 图片 id
+     */
+    private final List<Map<Integer, Set<Long>>> chunkTables = new ArrayList<>(CHUNK_COUNT);
+
+    /**
+     * 图片 id -> 哈希
+     */
+    private final Map<Long, HashEntry> entries = new HashMap<>();
+
+    /**
+     * 重建期间被写操作更新过的图片，重建时跳过，避免旧数据覆盖新数据
+     */
+    private final Set<Long> touchedDuringRebuild = new HashSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public PictureHashIndex() {
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            chunkTables.add(new HashMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 启动完成后分批扫描图片表重建索引
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int count = 0;
+        try {
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select(COLUMNS)
+                        .isNotNull("phash")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + REBUILD_BATCH_SIZE);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                if (pictureList.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (Picture picture : pictureList) {
+                        if (!touchedDuringRebuild.contains(picture.getId())) {
+                            doIndex(picture);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                count += pictureList.size();
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("图片哈希索引重建完成，共 {} 张图片，耗时 {} ms", count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("图片哈希索引重建失败，以图搜图不可用", e);
+        }
+    }
+
+    /**
+     * 图片的哈希、尺寸、空间、审核状态发生变化（新增、重新上传、编辑、审核、回填、删除）后刷新索引
+     * 在事务中调用时，提交后才回表读取最新数据，并通知其他实例
+     *
+     * @param id 图片 id
+     */
+    public void refresh(long id) {
+        refresh(Collections.singletonList(id));
+    }
+
+    /**
+     * 批量刷新图片的索引
+     *
+     * @param ids 图片 id
+     */
+    public void refresh(Collection<Long> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        afterCommit(() -> {
+            reload(idList);
+            publishInvalidate(idList);
+        });
+    }
+
+    /**
+     * 删除图片的索引（在事务中调用时，提交后才生效）
+     *
+     * @param id 图片 id
+     */
+    public void remove(long id) {
+        refresh(id);
+    }
+
+    /**
+     * 收到其他实例的变更通知，回表刷新
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0 || instanceId.equals(body.substring(0, separator))) {
+            return;
+        }
+        try {
+            reload(StrUtil.split(body.substring(separator + 1), ',').stream()
+                    .map(Long::parseLong)
+                    .collect(Collectors.toList()));
+        } catch (NumberFormatException e) {
+            log.warn("无效的哈希索引变更通知: {}", body);
+        } catch (Exception e) {
+            log.error("处理哈希索引变更通知失败: {}", body, e);
+        }
+    }
+
+    /**
+     * 查找相似图片
+     *
+     * @param phash       查询图片的 pHash
+     * @param dhash        查询图片的 dHash，可为空
+     * @param spaceId      空间 id，为 null 时搜索公共图库
+     * @param reviewStatus 审核状态，为 null 时不限
+     * @param maxDistance  pHash 最大汉明距离
+     * @param limit        最多返回条数
+     * @param excludeId    排除的图片 id（查询图片本身），可为空
+     * @return 图片 id 列表，按 pHash 距离、dHash 距离从近到远；索引未就绪时返回 null
+     */
+    public List<Long> search(long phash, Long dhash, Long spaceId, Integer reviewStatus, int maxDistance, int limit,
+                             Long excludeId) {
+        List<HashMatch> matches = match(phash, dhash, spaceId, reviewStatus, maxDistance, excludeId);
+        if (matches == null) {
+            return null;
+        }
+        List<Long> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(matches.get(i).getId());
+        }
+        return result;
+    }
+
+    /**
+     * 查找 pHash 距离不超过 maxDistance 的全部图片，附带距离和宽高，供调用方进一步过滤
+     *
+     * @param phash       查询图片的 pHash
+     * @param dhash        查询图片的 dHash，可为空
+     * @param spaceId      空间 id，为 null 时搜索公共图库
+     * @param reviewStatus 审核状态，为 null 时不限
+     * @param maxDistance  pHash 最大汉明距离
+     * @param excludeId    排除的图片 id（查询图片本身），可为空
+     * @return 匹配列表，按 pHash 距离、dHash 距离从近到远，距离相同时新图片在前；索引未就绪时返回 null
+     */
+    public List<HashMatch> match(long phash, Long dhash, Long spaceId, Integer reviewStatus, int maxDistance, Long excludeId) {
+        if (!ready) {
+            return null;
+        }
+        long scope = spaceId == null ? PUBLIC_SPACE_ID : spaceId;
+        int chunkRadius = maxDistance / CHUNK_COUNT;
+        List<HashMatch> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = new HashSet<>();
+            for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+                probe(chunkTables.get(chunk), chunkValue(phash, chunk), 0, chunkRadius, candidates);
+            }
+            for (Long id : candidates) {
+                HashEntry entry = entries.get(id);
+                if (entry.spaceId != scope || reviewStatus != null && entry.reviewStatus != reviewStatus
+                        || id.equals(excludeId)) {
+                    continue;
+                }
+                int distance = ImageHashUtils.distance(phash, entry.phash);
+                if (distance > maxDistance) {
+                    continue;
+                }
+                // dHash 缺失时距离记为 -1，排序时视为 0
+                int dhashDistance = dhash == null || entry.dhash == null ? -1 : ImageHashUtils.distance(dhash, entry.dhash);
+                matches.add(new HashMatch(id, distance, dhashDistance, entry.width, entry.height));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // 排序键：pHash 距离优先，其次 dHash 距离
+        matches.sort((a, b) -> {
+            int keyA = a.distance * 128 + Math.max(a.dhashDistance, 0);
+            int keyB = b.distance * 128 + Math.max(b.dhashDistance, 0);
+            return keyA != keyB ? Integer.compare(keyA, keyB) : Long.compare(b.id, a.id);
+        });
+        return matches;
+    }
+
+    /**
+     * 索引是否已完成重建
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 依次翻转 startBit 之后的位，探查距离不超过 radius 的所有段取值
+     */
+    private static void probe(Map<Integer, Set<Long>> table, int value, int startBit, int radius, Set<Long> candidates) {
+        Set<Long> posting = table.get(value);
+        if (posting != null) {
+            candidates.addAll(posting);
+        }
+        if (radius == 0) {
+            return;
+        }
+        for (int bit = startBit; bit < CHUNK_BITS; bit++) {
+            probe(table, value ^ (1 << bit), bit + 1, radius - 1, candidates);
+        }
+    }
+
+    private static int chunkValue(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & 0xFFFF;
+    }
+
+    private void touch(long id) {
+        if (!ready) {
+            touchedDuringRebuild.add(id);
+        }
+    }
+
+    /**
+     * 按 id 回表读取最新数据并刷新索引，已删除的图片从索引中移除
+     */
+    private void reload(List<Long> ids) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select(COLUMNS).in("id", ids);
+        Map<Long, Picture> pictureMap = pictureMapper.selectList(queryWrapper).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                touch(id);
+                Picture picture = pictureMap.get(id);
+                if (picture == null) {
+                    doRemove(id);
+                } else {
+                    doIndex(picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void publishInvalidate(List<Long> ids) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, instanceId + ":" + CollUtil.join(ids, ","));
+        } catch (Exception e) {
+            // 通知失败时其他实例要到下次重启重建才能看到变更
+            log.warn("发布哈希索引变更通知失败, ids = {}", ids, e);
+        }
+    }
+
+    private void doIndex(Picture picture) {
+        long id = picture.getId();
+        doRemove(id);
+        Long phash = picture.getPhash();
+        if (phash == null) {
+            return;
+        }
+        entries.put(id, new HashEntry(picture.getSpaceId() == null ? PUBLIC_SPACE_ID : picture.getSpaceId(),
+                picture.getReviewStatus() == null ? -1 : picture.getReviewStatus(), phash, picture.getDhash(),
+                picture.getPicWidth() == null ? 0 : picture.getPicWidth(),
+                picture.getPicHeight() == null ? 0 : picture.getPicHeight()));
+        for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+            chunkTables.get(chunk).computeIfAbsent(chunkValue(phash, chunk), k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void doRemove(long id) {
+        HashEntry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+            Map<Integer, Set<Long>> table = chunkTables.get(chunk);
+            int value = chunkValue(entry.phash, chunk);
+            Set<Long> posting = table.get(value);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    table.remove(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前存在事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class HashEntry {
+
+        private final long spaceId;
+
+        private final int reviewStatus;
+
+        private final long phash;
+
+        private final Long dhash;
+
+        private final int width;
+
+        private final int height;
+
+        private HashEntry(long spaceId, int reviewStatus, long phash, Long dhash, int width, int height) {
+            this.spaceId = spaceId;
+            this.reviewStatus = reviewStatus;
+            this.phash = phash;
+            this.dhash = dhash;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * 匹配结果
+     */
+    public static final class HashMatch {
+
+        private final long id;
+
+        private final int distance;
+
+        private final int dhashDistance;
+
+        private final int width;
+
+        private final int height;
+
+        private HashMatch(long id, int distance, int dhashDistance, int width, int height) {
+            this.id = id;
+            this.distance = distance;
+            this.dhashDistance = dhashDistance;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * 图片 id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * pHash 汉明距离
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * dHash 汉明距离，任一方缺失 dHash 时为 -1
+         */
+        public int getDhashDistance() {
+            return dhashDistance;
+        }
+
+        /**
+         * 图片宽度，未知时为 0
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * 图片高度，未知时为 0
+         */
+        public int getHeight() {
+            return height;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.zzm.picturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.manager.image.PicturePalettes;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.dto.file.PaletteColor;
+import com.zzm.picturebackend.model.entity.Picture;
+import com.zzm.picturebackend.utils.ColorMetricUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 图片调色板的内存倒排索引（覆盖公共图库和所有空间）
+ * 1. 把 Lab 空间划分为 8 x 16 x 16 个格子，倒排表记录每个格子里有调色板颜色的图片
+ * 2. 查询时只取查询颜色所在格子及相邻格子中的图片作为候选，按 CIEDE2000 做软匹配打分：
+ *    每个查询颜色匹配到的占比 = min(查询占比, Σ 相似度 x 图片颜色占比)，总分为各查询颜色之和（0~1）
+ * 3. 先按空间、审核状态过滤候选再取 top-k，返回排序后的 id 交给数据库分页
+ * 启动后异步分批扫表重建；重建完成前 {@link #search} 返回 null
+ * 写操作在事务提交后按 id 回表刷新本实例的索引，并通过 Redis 发布订阅通知其他实例回表刷新
+ */
+@Slf4j
+@Component
+public class PicturePaletteIndex implements MessageListener {
+
+    /**
+     * 变更通知频道，消息内容为 "实例 id:图片 id,图片 id,..."
+     */
+    private static final String INVALIDATE_CHANNEL = "picture:palette:invalidate";
+
+    /**
+     * 回表时读取的字段
+     */
+    private static final String[] COLUMNS = {"id", "spaceId", "reviewStatus", "palette"};
+
+    /**
+     * CIEDE2000 色差达到该值时相似度为 0
+     */
+    private static final double MAX_DELTA_E = 20;
+
+    /**
+     * Lab 格子大小：L 取值 0~100，a / b 取值约 -128~127
+     */
+    private static final double L_CELL = 12.5;
+
+    private static final double AB_CELL = 16;
+
+    private static final int L_CELLS = 8;
+
+    private static final int AB_CELLS = 16;
+
+    /**
+     * 公共图库在索引中的空间 id
+     */
+    private static final long PUBLIC_SPACE_ID = 0;
+
+    /**
+     * 启动重建时每批读取的行数
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 区分通知来源，自身发出的通知不处理（已在本实例刷新）
+     */
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 格子 -> 图片 id
+     */
+    private final Map<Integer, Set<Long>> postings = new HashMap<>();
+
+    /**
+     * 图片 id -> 调色板
+     */
+    private final Map<Long, PaletteEntry> entries = new HashMap<>();
+
+    /**
+     * 重建期间被写操作更新过的图片，重建时跳过，避免旧数据覆盖新数据
+     */
+    private final Set<Long> touchedDuringRebuild = new HashSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 启动完成后分批扫描图片表重建索引
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int count = 0;
+        try {
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select(COLUMNS)
+                        .isNotNull("palette")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + REBUILD_BATCH_SIZE);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                if (pictureList.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (Picture picture : pictureList) {
+                        if (!touchedDuringRebuild.contains(picture.getId())) {
+                            doIndex(picture);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                count += pictureList.size();
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("图片调色板索引重建完成，共 {} 张图片，耗时 {} ms", count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("图片调色板索引重建失败，调色板搜索不可用", e);
+        }
+    }
+
+    /**
+     * 图片的调色板、空间、审核状态发生变化（新增、编辑、审核、回填、删除）后刷新索引
+     * 在事务中调用时，提交后才回表读取最新数据，并通知其他实例
+     *
+     * @param id 图片 id
+     */
+    public void refresh(long id) {
+        refresh(Collections.singletonList(id));
+    }
+
+    /**
+     * 批量刷新图片的索引
+     *
+     * @param ids 图片 id
+     */
+    public void refresh(Collection<Long> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        afterCommit(() -> {
+            reload(idList);
+            publishInvalidate(idList);
+        });
+    }
+
+    /**
+     * 删除图片的索引（在事务中调用时，提交后才生效）
+     *
+     * @param id 图片 id
+     */
+    public void remove(long id) {
+        refresh(id);
+    }
+
+    /**
+     * 收到其他实例的变更通知，回表刷新
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0 || instanceId.equals(body.substring(0, separator))) {
+            return;
+        }
+        try {
+            reload(StrUtil.split(body.substring(separator + 1), ',').stream()
+                    .map(Long::parseLong)
+                    .collect(Collectors.toList()));
+        } catch (NumberFormatException e) {
+            log.warn("无效的调色板索引变更通知: {}", body);
+        } catch (Exception e) {
+            log.error("处理调色板索引变更通知失败: {}", body, e);
+        }
+    }
+
+    /**
+     * 按调色板搜索图片
+     *
+     * @param colors  查询颜色（0xRRGGBB）
+     * @param weights 查询颜色的占比，和为 1
+     * @param spaceId      空间 id，为 null 时搜索公共图库
+     * @param reviewStatus 审核状态，为 null 时不限
+     * @param limit        最多返回条数
+     * @return 图片 id 列表，按相似度从高到低；索引未就绪时返回 null
+     */
+    public List<Long> search(int[] colors, double[] weights, Long spaceId, Integer reviewStatus, int limit) {
+        if (!ready) {
+            return null;
+        }
+        long scope = spaceId == null ? PUBLIC_SPACE_ID : spaceId;
+        float[] queryLab = new float[colors.length * 3];
+        float[] lab = new float[3];
+        for (int i = 0; i < colors.length; i++) {
+            ColorMetricUtils.rgbToLab(colors[i], lab);
+            System.arraycopy(lab, 0, queryLab, i * 3, 3);
+        }
+        lock.readLock().lock();
+        try {
+            // 候选：查询颜色所在格子及相邻格子
+            Set<Long> candidates = new HashSet<>();
+            for (int i = 0; i < colors.length; i++) {
+                int cellL = cell(queryLab[i * 3], 0, L_CELL, L_CELLS);
+                int cellA = cell(queryLab[i * 3 + 1], 128, AB_CELL, AB_CELLS);
+                int cellB = cell(queryLab[i * 3 + 2], 128, AB_CELL, AB_CELLS);
+                for (int l = Math.max(0, cellL - 1); l <= Math.min(L_CELLS - 1, cellL + 1); l++) {
+                    for (int a = Math.max(0, cellA - 1); a <= Math.min(AB_CELLS - 1, cellA + 1); a++) {
+                        for (int b = Math.max(0, cellB - 1); b <= Math.min(AB_CELLS - 1, cellB + 1); b++) {
+                            Set<Long> posting = postings.get(bin(l, a, b));
+                            if (posting != null) {
+                                candidates.addAll(posting);
+                            }
+                        }
+                    }
+                }
+            }
+            // 小顶堆保留得分最高的 limit 条
+            PriorityQueue<ScoredId> topK = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(ScoredId::getScore));
+            for (Long id : candidates) {
+                PaletteEntry entry = entries.get(id);
+                if (entry.spaceId != scope || reviewStatus != null && entry.reviewStatus != reviewStatus) {
+                    continue;
+                }
+                double score = score(queryLab, weights, entry);
+                if (score <= 0) {
+                    continue;
+                }
+                if (topK.size() < limit) {
+                    topK.offer(new ScoredId(id, score));
+                } else if (score > topK.peek().getScore()) {
+                    topK.poll();
+                    topK.offer(new ScoredId(id, score));
+                }
+            }
+            List<Long> result = new ArrayList<>(topK.size());
+            while (!topK.isEmpty()) {
+                result.add(topK.poll().getId());
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引是否已完成重建
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 软匹配得分：每个查询颜色最多匹配到自己的占比
+     */
+    private static double score(float[] queryLab, double[] weights, PaletteEntry entry) {
+        double score = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double matched = 0;
+            for (int j = 0; j < entry.weights.length; j++) {
+                double deltaE = ColorMetricUtils.ciede2000(queryLab[i * 3], queryLab[i * 3 + 1], queryLab[i * 3 + 2],
+                        entry.lab[j * 3], entry.lab[j * 3 + 1], entry.lab[j * 3 + 2]);
+                if (deltaE < MAX_DELTA_E) {
+                    matched += (1 - deltaE / MAX_DELTA_E) * entry.weights[j];
+                }
+            }
+            score += Math.min(weights[i], matched);
+        }
+        return score;
+    }
+
+    private void touch(long id) {
+        if (!ready) {
+            touchedDuringRebuild.add(id);
+        }
+    }
+
+    /**
+     * 按 id 回表读取最新数据并刷新索引，已删除的图片从索引中移除
+     */
+    private void reload(List<Long> ids) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select(COLUMNS).in("id", ids);
+        Map<Long, Picture> pictureMap = pictureMapper.selectList(queryWrapper).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                touch(id);
+                Picture picture = pictureMap.get(id);
+                if (picture == null) {
+                    doRemove(id);
+                } else {
+                    doIndex(picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void publishInvalidate(List<Long> ids) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, instanceId + ":" + CollUtil.join(ids, ","));
+        } catch (Exception e) {
+            // 通知失败时其他实例要到下次重启重建才能看到变更
+            log.warn("发布调色板索引变更通知失败, ids = {}", ids, e);
+        }
+    }
+
+    private void doIndex(Picture picture) {
+        long id = picture.getId();
+        doRemove(id);
+        List<PaletteColor> paletteColors = PicturePalettes.decode(picture.getPalette());
+        if (paletteColors.isEmpty()) {
+            return;
+        }
+        PaletteEntry entry = new PaletteEntry(picture.getSpaceId() == null ? PUBLIC_SPACE_ID : picture.getSpaceId(),
+                picture.getReviewStatus() == null ? -1 : picture.getReviewStatus(), paletteColors.size());
+        float[] lab = new float[3];
+        for (int j = 0; j < paletteColors.size(); j++) {
+            ColorMetricUtils.rgbToLab(ColorMetricUtils.parseColor(paletteColors.get(j).getColor()), lab);
+            System.arraycopy(lab, 0, entry.lab, j * 3, 3);
+            entry.weights[j] = paletteColors.get(j).getWeight().floatValue();
+            entry.bins[j] = bin(cell(lab[0], 0, L_CELL, L_CELLS), cell(lab[1], 128, AB_CELL, AB_CELLS),
+                    cell(lab[2], 128, AB_CELL, AB_CELLS));
+            postings.computeIfAbsent(entry.bins[j], k -> new HashSet<>()).add(id);
+        }
+        entries.put(id, entry);
+    }
+
+    private void doRemove(long id) {
+        PaletteEntry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int bin : entry.bins) {
+            Set<Long> posting = postings.get(bin);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(bin);
+                }
+            }
+        }
+    }
+
+    private static int cell(float value, int offset, double cellSize, int cells) {
+        int cell = (int) Math.floor((value + offset) / cellSize);
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    private static int bin(int l, int a, int b) {
+        return (l * AB_CELLS + a) * AB_CELLS + b;
+    }
+
+    /**
+     * 当前存在事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 单张图片的调色板：Lab 分量按颜色依次排列
+     */
+    private static final class PaletteEntry {
+
+        private final long spaceId;
+
+        private final int reviewStatus;
+
+        private final float[] lab;
+
+        private final float[] weights;
+
+        private final int[] bins;
+
+        private PaletteEntry(long spaceId, int reviewStatus, int size) {
+            this.spaceId = spaceId;
+            this.reviewStatus = reviewStatus;
+            this.lab = new float[size * 3];
+            this.weights = new float[size];
+            this.bins = new int[size];
+        }
+    }
+
+    private static final class ScoredId {
+
+        private final Long id;
+
+        private final double score;
+
+        private ScoredId(Long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        private Long getId() {
+            return id;
+        }
+
+        private double getScore() {
+            return score;
+        }
+    }
+}
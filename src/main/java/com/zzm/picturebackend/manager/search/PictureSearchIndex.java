@@ -0,0 +1,489 @@
+package com.zzm.picturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.zzm.picturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 图片名称 / 简介的内存倒排索引
+ * 代替 name LIKE '%x%' OR introduction LIKE '%x%' 的全表扫描：先在索引中按空间、审核状态、分类、用户过滤，
+ * 再按 BM25 取出相关度最高的 top-k 图片 id，交给数据库按 id 查询；其他过滤条件索引不支持，调用方退化为 LIKE 查询
+ * 启动后异步分批扫表重建；重建完成前 {@link #search} 返回 null
+ * 写操作在事务提交后按 id 回表刷新本实例的索引，并通过 Redis 发布订阅通知其他实例回表刷新
+ */
+@Slf4j
+@Component
+public class PictureSearchIndex implements MessageListener {
+
+    /**
+     * 变更通知频道，消息内容为 "实例 id:图片 id,图片 id,..."
+     */
+    private static final String INVALIDATE_CHANNEL = "picture:search:invalidate";
+
+    /**
+     * 回表时读取的字段
+     */
+    private static final String[] COLUMNS = {"id", "name", "introduction", "spaceId", "reviewStatus", "category", "userId"};
+
+    /**
+     * 公共图库在索引中的空间 id
+     */
+    private static final long PUBLIC_SPACE_ID = 0;
+
+    /**
+     * 名称命中的权重（简介为 1）
+     */
+    private static final int NAME_WEIGHT = 2;
+
+    /**
+     * BM25 参数
+     */
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /**
+     * 启动重建时每批读取的行数
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 区分通知来源，自身发出的通知不处理（已在本实例刷新）
+     */
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 词项 -> (图片 id -> 加权词频)
+     */
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    /**
+     * 图片 id -> (词项 -> 加权词频)，用于更新和删除时撤销旧的倒排项
+     */
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+    /**
+     * 图片 id -> 文档长度
+     */
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+
+    /**
+     * 图片 id -> 所属范围，搜索时先按范围过滤再取 top-k
+     */
+    private final Map<Long, DocumentScope> scopes = new HashMap<>();
+
+    private long totalLength;
+
+    /**
+     * 重建期间被写操作更新过的图片，重建时跳过，避免旧数据覆盖新数据
+     */
+    private final Set<Long> touchedDuringRebuild = new HashSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 启动完成后分批扫描图片表重建索引
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int count = 0;
+        try {
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select(COLUMNS)
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + REBUILD_BATCH_SIZE);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                if (pictureList.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (Picture picture : pictureList) {
+                        if (!touchedDuringRebuild.contains(picture.getId())) {
+                            doIndex(picture);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                count += pictureList.size();
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("图片搜索索引重建完成，共 {} 张图片，耗时 {} ms", count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("图片搜索索引重建失败，搜索将继续使用数据库 LIKE 查询", e);
+        }
+    }
+
+    /**
+     * 图片的名称、简介、空间、审核状态、分类等发生变化（新增、编辑、审核、删除）后刷新索引
+     * 在事务中调用时，提交后才回表读取最新数据，并通知其他实例
+     *
+     * @param id 图片 id
+     */
+    public void refresh(long id) {
+        refresh(Collections.singletonList(id));
+    }
+
+    /**
+     * 批量刷新图片的索引
+     *
+     * @param ids 图片 id
+     */
+    public void refresh(Collection<Long> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        afterCommit(() -> {
+            reload(idList);
+            publishInvalidate(idList);
+        });
+    }
+
+    /**
+     * 删除图片的索引（在事务中调用时，提交后才生效）
+     *
+     * @param id 图片 id
+     */
+    public void remove(long id) {
+        refresh(id);
+    }
+
+    /**
+     * 收到其他实例的变更通知，回表刷新
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0 || instanceId.equals(body.substring(0, separator))) {
+            return;
+        }
+        try {
+            reload(StrUtil.split(body.substring(separator + 1), ',').stream()
+                    .map(Long::parseLong)
+                    .collect(Collectors.toList()));
+        } catch (NumberFormatException e) {
+            log.warn("无效的搜索索引变更通知: {}", body);
+        } catch (Exception e) {
+            log.error("处理搜索索引变更通知失败: {}", body, e);
+        }
+    }
+
+    /**
+     * 索引是否支持该查询的全部过滤条件（只支持空间、审核状态、分类、用户）
+     *
+     * @param pictureQueryRequest 查询请求
+     * @return 不支持时调用方应使用 LIKE 查询，避免先截断 top-k 再过滤丢失结果
+     */
+    public static boolean isFilterSupported(PictureQueryRequest pictureQueryRequest) {
+        return ObjUtil.isEmpty(pictureQueryRequest.getId())
+                && StrUtil.isAllBlank(pictureQueryRequest.getName(), pictureQueryRequest.getIntroduction(),
+                pictureQueryRequest.getPicFormat(), pictureQueryRequest.getReviewMessage())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicWidth())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicHeight())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicSize())
+                && ObjUtil.isEmpty(pictureQueryRequest.getPicScale())
+                && ObjUtil.isEmpty(pictureQueryRequest.getReviewerId())
+                && ObjUtil.isEmpty(pictureQueryRequest.getStartEditTime())
+                && ObjUtil.isEmpty(pictureQueryRequest.getEndEditTime())
+                && (CollUtil.isEmpty(pictureQueryRequest.getTags())
+                || pictureQueryRequest.getTags().stream().allMatch(StrUtil::isBlank));
+    }
+
+    /**
+     * 搜索图片，所有查询词项都命中且满足过滤条件才算匹配，按相关度从高到低返回
+     *
+     * @param searchText 搜索词
+     * @param filter     过滤条件，只使用空间、审核状态、分类、用户（调用前用 {@link #isFilterSupported} 判断）
+     * @param limit      最多返回条数
+     * @return 图片 id 列表；索引未就绪或搜索词无法分词时返回 null
+     */
+    public List<Long> search(String searchText, PictureQueryRequest filter, int limit) {
+        if (!ready) {
+            return null;
+        }
+        Long spaceId = filter.getSpaceId();
+        // 指定空间时只看该空间，否则 nullSpaceId 表示只看公共图库，都不指定时不限空间
+        Long scopeSpaceId = spaceId != null ? spaceId : filter.isNullSpaceId() ? (Long) PUBLIC_SPACE_ID : null;
+        Integer reviewStatus = filter.getReviewStatus();
+        String category = StrUtil.isBlank(filter.getCategory()) ? null : filter.getCategory();
+        Long userId = filter.getUserId();
+        Set<String> queryTerms = SearchTokenizer.tokenizeForQuery(searchText);
+        if (queryTerms.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Integer>> termPostings = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                termPostings.add(posting);
+            }
+            // 从最短的倒排表开始求交集
+            termPostings.sort(Comparator.comparingInt(Map::size));
+            int docCount = documents.size();
+            double avgLength = docCount == 0 ? 1 : (double) totalLength / docCount;
+            double[] idf = new double[termPostings.size()];
+            for (int i = 0; i < idf.length; i++) {
+                int df = termPostings.get(i).size();
+                idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            }
+            // 小顶堆保留得分最高的 limit 条
+            PriorityQueue<ScoredId> topK = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(ScoredId::getScore));
+            for (Map.Entry<Long, Integer> candidate : termPostings.get(0).entrySet()) {
+                Long id = candidate.getKey();
+                double norm = K1 * (1 - B + B * documentLengths.get(id) / avgLength);
+                double score = 0;
+                int i = 0;
+                for (; i < termPostings.size(); i++) {
+                    Integer tf = i == 0 ? candidate.getValue() : termPostings.get(i).get(id);
+                    if (tf == null) {
+                        break;
+                    }
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                if (i < termPostings.size()) {
+                    continue;
+                }
+                DocumentScope scope = scopes.get(id);
+                if (scopeSpaceId != null && scope.spaceId != scopeSpaceId
+                        || reviewStatus != null && scope.reviewStatus != reviewStatus
+                        || category != null && !category.equals(scope.category)
+                        || userId != null && scope.userId != userId) {
+                    continue;
+                }
+                if (topK.size() < limit) {
+                    topK.offer(new ScoredId(id, score));
+                } else if (score > topK.peek().getScore()) {
+                    topK.poll();
+                    topK.offer(new ScoredId(id, score));
+                }
+            }
+            List<Long> result = new ArrayList<>(topK.size());
+            while (!topK.isEmpty()) {
+                result.add(topK.poll().getId());
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引是否已完成重建
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void touch(long id) {
+        if (!ready) {
+            touchedDuringRebuild.add(id);
+        }
+    }
+
+    /**
+     * 按 id 回表读取最新数据并刷新索引，已删除的图片从索引中移除
+     */
+    private void reload(List<Long> ids) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select(COLUMNS).in("id", ids);
+        Map<Long, Picture> pictureMap = pictureMapper.selectList(queryWrapper).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                touch(id);
+                Picture picture = pictureMap.get(id);
+                if (picture == null) {
+                    doRemove(id);
+                } else {
+                    doIndex(picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void publishInvalidate(List<Long> ids) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, instanceId + ":" + CollUtil.join(ids, ","));
+        } catch (Exception e) {
+            // 通知失败时其他实例要到下次重启重建才能看到变更
+            log.warn("发布搜索索引变更通知失败, ids = {}", ids, e);
+        }
+    }
+
+    private void doIndex(Picture picture) {
+        long id = picture.getId();
+        doRemove(id);
+        Map<String, Integer> termFreqs = new HashMap<>();
+        addTerms(termFreqs, SearchTokenizer.tokenizeForIndex(picture.getName()), NAME_WEIGHT);
+        addTerms(termFreqs, SearchTokenizer.tokenizeForIndex(picture.getIntroduction()), 1);
+        if (termFreqs.isEmpty()) {
+            return;
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(id, entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(id, termFreqs);
+        documentLengths.put(id, length);
+        totalLength += length;
+        scopes.put(id, new DocumentScope(picture.getSpaceId() == null ? PUBLIC_SPACE_ID : picture.getSpaceId(),
+                picture.getReviewStatus() == null ? -1 : picture.getReviewStatus(), picture.getCategory(),
+                picture.getUserId() == null ? 0 : picture.getUserId()));
+    }
+
+    private void doRemove(long id) {
+        Map<String, Integer> termFreqs = documents.remove(id);
+        if (termFreqs == null) {
+            return;
+        }
+        for (String term : termFreqs.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Integer length = documentLengths.remove(id);
+        totalLength -= length == null ? 0 : length;
+        scopes.remove(id);
+    }
+
+    private static void addTerms(Map<String, Integer> termFreqs, Collection<String> terms, int weight) {
+        for (String term : terms) {
+            termFreqs.merge(term, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * 当前存在事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 图片所属范围
+     */
+    private static final class DocumentScope {
+
+        private final long spaceId;
+
+        private final int reviewStatus;
+
+        private final String category;
+
+        private final long userId;
+
+        private DocumentScope(long spaceId, int reviewStatus, String category, long userId) {
+            this.spaceId = spaceId;
+            this.reviewStatus = reviewStatus;
+            this.category = category;
+            this.userId = userId;
+        }
+    }
+
+    private static final class ScoredId {
+
+        private final Long id;
+
+        private final double score;
+
+        private ScoredId(Long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        private Long getId() {
+            return id;
+        }
+
+        private double getScore() {
+            return score;
+        }
+    }
+}
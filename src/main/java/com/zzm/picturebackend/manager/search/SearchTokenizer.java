@@ -0,0 +1,117 @@
+package com.zzm.picturebackend.manager.search;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 搜索分词器
+ * 1. 英文、数字按连续字母或连续数字切词并转小写（"dog12" 切为 "dog" 和 "12"），
+ *    建索引时同时产出词的各个前缀（edge n-gram），使 "sun" 能匹配 "sunset"，与原来的 LIKE 查询一致
+ * 2. 中日韩文字按字切分，建索引时同时产出单字和相邻两字（bigram），
+ *    查询时连续两个字以上只用 bigram，单字才用单字词项，以提高区分度
+ */
+final class SearchTokenizer {
+
+    /**
+     * 建索引时最长的前缀，更长的查询词只能完整匹配
+     */
+    private static final int MAX_PREFIX_LENGTH = 16;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 文档分词（保留重复词项，用于统计词频）
+     *
+     * @param text 文本
+     * @return 词项列表
+     */
+    static List<String> tokenizeForIndex(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, terms, true);
+        return terms;
+    }
+
+    /**
+     * 查询分词（去重）
+     *
+     * @param text 搜索词
+     * @return 词项集合
+     */
+    static Set<String> tokenizeForQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, terms, false);
+        return new LinkedHashSet<>(terms);
+    }
+
+    private static void tokenize(String text, List<String> terms, boolean forIndex) {
+        if (StrUtil.isBlank(text)) {
+            return;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        List<String> cjkRun = new ArrayList<>();
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, terms, forIndex);
+                cjkRun.add(new String(Character.toChars(codePoint)));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, terms, forIndex);
+                // 字母和数字的交界处切开
+                if (word.length() > 0 && Character.isDigit(word.codePointBefore(word.length())) != Character.isDigit(codePoint)) {
+                    flushWord(word, terms, forIndex);
+                }
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, terms, forIndex);
+                flushCjk(cjkRun, terms, forIndex);
+            }
+        }
+        flushWord(word, terms, forIndex);
+        flushCjk(cjkRun, terms, forIndex);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> terms, boolean forIndex) {
+        if (word.length() == 0) {
+            return;
+        }
+        String term = word.toString();
+        if (forIndex) {
+            int length = term.codePointCount(0, term.length());
+            for (int j = 1; j < length && j <= MAX_PREFIX_LENGTH; j++) {
+                terms.add(term.substring(0, term.offsetByCodePoints(0, j)));
+            }
+        }
+        terms.add(term);
+        word.setLength(0);
+    }
+
+    private static void flushCjk(List<String> run, List<String> terms, boolean forIndex) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (forIndex || run.size() == 1) {
+            terms.addAll(run);
+        }
+        for (int j = 0; j + 1 < run.size(); j++) {
+            terms.add(run.get(j) + run.get(j + 1));
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,140 @@
+package com.zzm.picturebackend.manager.storage;
+
+import cn.hutool.core.util.StrUtil;
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.COSObjectSummary;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ListObjectsRequest;
+import com.qcloud.cos.model.ObjectListing;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.zzm.picturebackend.config.CosClientConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 腾讯云 COS 对象存储
+ */
+@Slf4j
+public class CosObjectStorage implements ObjectStorage {
+
+    /**
+     * 单次批量删除的 key 数量上限
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    /**
+     * 单次列举的 key 数量上限
+     */
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    private final COSClient cosClient;
+
+    private final CosClientConfig cosClientConfig;
+
+    public CosObjectStorage(COSClient cosClient, CosClientConfig cosClientConfig) {
+        this.cosClient = cosClient;
+        this.cosClientConfig = cosClientConfig;
+    }
+
+    @Override
+    public String getHost() {
+        return cosClientConfig.getHost();
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength, String contentType) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        if (contentType != null) {
+            objectMetadata.setContentType(contentType);
+        }
+        cosClient.putObject(new PutObjectRequest(cosClientConfig.getBucket(), key, inputStream, objectMetadata));
+    }
+
+    @Override
+    public void putObject(String key, File file) {
+        cosClient.putObject(new PutObjectRequest(cosClientConfig.getBucket(), key, file));
+    }
+
+    @Override
+    public StorageObject getObject(String key) {
+        return toStorageObject(key, cosClient.getObject(new GetObjectRequest(cosClientConfig.getBucket(), key)));
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
+        getObjectRequest.setRange(start, end);
+        return toStorageObject(key, cosClient.getObject(getObjectRequest));
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        cosClient.deleteObject(cosClientConfig.getBucket(), key);
+    }
+
+    @Override
+    public List<String> deleteObjects(Collection<String> keys) {
+        List<String> failedKeys = new ArrayList<>();
+        List<DeleteObjectsRequest.KeyVersion> batch = new ArrayList<>(Math.min(keys.size(), DELETE_BATCH_SIZE));
+        for (String key : keys) {
+            batch.add(new DeleteObjectsRequest.KeyVersion(StrUtil.removePrefix(key, "/")));
+            if (batch.size() == DELETE_BATCH_SIZE) {
+                deleteBatch(batch, failedKeys);
+                batch = new ArrayList<>(DELETE_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleteBatch(batch, failedKeys);
+        }
+        return failedKeys;
+    }
+
+    @Override
+    public List<StorageObjectSummary> listObjects(String prefix, int maxKeys) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(cosClientConfig.getBucket());
+        listObjectsRequest.setPrefix(StrUtil.removePrefix(prefix, "/"));
+        List<StorageObjectSummary> summaries = new ArrayList<>();
+        ObjectListing objectListing;
+        do {
+            listObjectsRequest.setMaxKeys(Math.min(maxKeys - summaries.size(), LIST_PAGE_SIZE));
+            objectListing = cosClient.listObjects(listObjectsRequest);
+            for (COSObjectSummary cosObjectSummary : objectListing.getObjectSummaries()) {
+                summaries.add(new StorageObjectSummary(cosObjectSummary.getKey(), cosObjectSummary.getSize(),
+                        cosObjectSummary.getLastModified()));
+            }
+            listObjectsRequest.setMarker(objectListing.getNextMarker());
+        } while (objectListing.isTruncated() && summaries.size() < maxKeys);
+        return summaries;
+    }
+
+    private void deleteBatch(List<DeleteObjectsRequest.KeyVersion> batch, List<String> failedKeys) {
+        DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+        deleteObjectsRequest.setKeys(batch);
+        deleteObjectsRequest.setQuiet(true);
+        try {
+            cosClient.deleteObjects(deleteObjectsRequest);
+        } catch (MultiObjectDeleteException e) {
+            e.getErrors().forEach(error -> failedKeys.add(error.getKey()));
+        } catch (Exception e) {
+            log.error("批量删除对象失败，共 {} 个", batch.size(), e);
+            batch.forEach(keyVersion -> failedKeys.add(keyVersion.getKey()));
+        }
+    }
+
+    private static StorageObject toStorageObject(String key, COSObject cosObject) {
+        ObjectMetadata objectMetadata = cosObject.getObjectMetadata();
+        return new StorageObject(key, objectMetadata.getContentLength(), objectMetadata.getContentType(),
+                cosObject.getObjectContent());
+    }
+}
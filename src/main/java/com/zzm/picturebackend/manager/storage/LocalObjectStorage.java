@@ -0,0 +1,230 @@
+package com.zzm.picturebackend.manager.storage;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘对象存储：key 映射为根目录下的相对路径，用于脱离云服务运行和压测
+ * 1. 写入时先写同目录下的临时文件再原子重命名，读者不会看到写了一半的文件
+ * 2. 读取时将文件（或请求的范围）内存映射，直接从页缓存读出，不经过堆内缓冲区的多次拷贝
+ */
+@Slf4j
+public class LocalObjectStorage implements ObjectStorage {
+
+    /**
+     * 写入中的临时文件前缀，列举时跳过
+     */
+    private static final String TEMP_FILE_PREFIX = ".upload-";
+
+    private final Path root;
+
+    private final String host;
+
+    public LocalObjectStorage(Path root, String host) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.host = StrUtil.removeSuffix(host, "/");
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), TEMP_FILE_PREFIX, null);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 ReadableByteChannel source = Channels.newChannel(inputStream)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = channel.transferFrom(source, position, Long.MAX_VALUE - position)) > 0) {
+                    position += transferred;
+                }
+                channel.force(false);
+            }
+            move(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void putObject(String key, File file) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), TEMP_FILE_PREFIX, null);
+        try {
+            Files.copy(file.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            move(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public StorageObject getObject(String key) throws IOException {
+        return getObject(key, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public StorageObject getObject(String key, long start, long end) throws IOException {
+        Path path = resolve(key);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (start < 0 || start > end || (start >= size && size > 0)) {
+                throw new IOException("无效的范围: " + start + "-" + end + ", 对象大小 " + size);
+            }
+            long length = Math.min(end, size - 1) - start + 1;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("范围过大，请分段读取: " + length);
+            }
+            // 映射建立后即可关闭通道，映射在缓冲区被回收前一直有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(length, 0));
+            return new StorageObject(key, buffer.remaining(), Files.probeContentType(path), new ByteBufferInputStream(buffer));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("对象不存在: " + key);
+        }
+    }
+
+    @Override
+    public void deleteObject(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public List<String> deleteObjects(Collection<String> keys) {
+        List<String> failedKeys = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                deleteObject(key);
+            } catch (Exception e) {
+                log.error("删除对象失败: {}", key, e);
+                failedKeys.add(key);
+            }
+        }
+        return failedKeys;
+    }
+
+    @Override
+    public List<StorageObjectSummary> listObjects(String prefix, int maxKeys) throws IOException {
+        String normalizedPrefix = StrUtil.removePrefix(StrUtil.nullToEmpty(prefix), "/");
+        // 只遍历前缀所在的目录
+        int slash = normalizedPrefix.lastIndexOf('/');
+        Path directory = slash < 0 ? root : resolve(normalizedPrefix.substring(0, slash));
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith(TEMP_FILE_PREFIX))
+                    .map(this::toKey)
+                    .filter(key -> key.startsWith(normalizedPrefix))
+                    .sorted()
+                    .limit(maxKeys)
+                    .map(this::toSummary)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * key 转换为根目录下的路径，拒绝跳出根目录的 key
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(StrUtil.removePrefix(key, "/")).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("非法的对象 key: " + key);
+        }
+        return path;
+    }
+
+    private String toKey(Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private StorageObjectSummary toSummary(String key) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+            return new StorageObjectSummary(key, attributes.size(), new Date(attributes.lastModifiedTime().toMillis()));
+        } catch (IOException e) {
+            // 列举过程中被删除
+            return new StorageObjectSummary(key, 0, null);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 基于内存映射缓冲区的输入流
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
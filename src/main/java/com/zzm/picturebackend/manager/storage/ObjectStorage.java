@@ -0,0 +1,106 @@
+package com.zzm.picturebackend.manager.storage;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 对象存储：屏蔽具体的存储后端（腾讯云 COS、本地磁盘），业务代码只依赖该接口
+ * key 允许以 / 开头，各实现自行规范化
+ */
+public interface ObjectStorage {
+
+    /**
+     * 对象的公开访问地址前缀，访问地址 = host + "/" + key
+     */
+    String getHost();
+
+    /**
+     * 上传对象
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度
+     * @param contentType   内容类型，可为空
+     */
+    void putObject(String key, InputStream inputStream, long contentLength, String contentType) throws IOException;
+
+    /**
+     * 上传对象
+     *
+     * @param key         唯一键
+     * @param bytes       内容
+     * @param contentType 内容类型，可为空
+     */
+    default void putObject(String key, byte[] bytes, String contentType) throws IOException {
+        putObject(key, new ByteArrayInputStream(bytes), bytes.length, contentType);
+    }
+
+    /**
+     * 上传文件
+     *
+     * @param key  唯一键
+     * @param file 文件
+     */
+    void putObject(String key, File file) throws IOException;
+
+    /**
+     * 下载对象
+     *
+     * @param key 唯一键
+     * @return 对象，使用完需要关闭
+     */
+    StorageObject getObject(String key) throws IOException;
+
+    /**
+     * 按范围下载对象
+     *
+     * @param key   唯一键
+     * @param start 起始位置（包含）
+     * @param end   结束位置（包含），超过对象大小时截断到末尾
+     * @return 对象，使用完需要关闭
+     */
+    StorageObject getObject(String key, long start, long end) throws IOException;
+
+    /**
+     * 删除对象（对象不存在时忽略）
+     *
+     * @param key 唯一键
+     */
+    void deleteObject(String key) throws IOException;
+
+    /**
+     * 批量删除对象
+     *
+     * @param keys 唯一键
+     * @return 删除失败的 key
+     */
+    List<String> deleteObjects(Collection<String> keys);
+
+    /**
+     * 按前缀列出对象，按 key 升序
+     *
+     * @param prefix  前缀
+     * @param maxKeys 最多返回条数
+     * @return 对象摘要
+     */
+    List<StorageObjectSummary> listObjects(String prefix, int maxKeys) throws IOException;
+
+    /**
+     * 公开访问地址转换为 key（不是本存储的地址时返回 null）
+     *
+     * @param url 访问地址
+     * @return 唯一键
+     */
+    default String getKey(String url) {
+        if (StrUtil.isBlank(url) || !url.startsWith(getHost())) {
+            return null;
+        }
+        return url.substring(getHost().length());
+    }
+}
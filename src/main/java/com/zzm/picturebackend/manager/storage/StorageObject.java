@@ -0,0 +1,46 @@
+package com.zzm.picturebackend.manager.storage;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 下载的对象，使用完需要关闭（释放网络连接或文件映射）
+ */
+@Getter
+public class StorageObject implements Closeable {
+
+    /**
+     * 唯一键
+     */
+    private final String key;
+
+    /**
+     * 本次返回的内容长度（按范围下载时为范围长度）
+     */
+    private final long contentLength;
+
+    /**
+     * 内容类型，未知时为空
+     */
+    private final String contentType;
+
+    /**
+     * 内容
+     */
+    private final InputStream content;
+
+    public StorageObject(String key, long contentLength, String contentType, InputStream content) {
+        this.key = key;
+        this.contentLength = contentLength;
+        this.contentType = contentType;
+        this.content = content;
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
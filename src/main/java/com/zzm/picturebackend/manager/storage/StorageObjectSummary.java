@@ -0,0 +1,31 @@
+package com.zzm.picturebackend.manager.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 对象摘要（列举对象时返回）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageObjectSummary {
+
+    /**
+     * 唯一键
+     */
+    private String key;
+
+    /**
+     * 对象大小
+     */
+    private long size;
+
+    /**
+     * 最后修改时间
+     */
+    private Date lastModified;
+}
@@ -0,0 +1,224 @@
+package com.zzm.picturebackend.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONUtil;
+import com.qcloud.cos.model.CompleteMultipartUploadResult;
+import com.qcloud.cos.model.PartETag;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.exception.ThrowUtils;
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片图片上传
+ * 对应对象存储的分片上传：初始化时创建 uploadId，各分片可以并行、乱序上传，全部到齐后合并并进行图片处理
+ * 会话信息和已上传分片的 ETag 保存在 Redis 中，连接中断后客户端可以查询已上传的分片并续传
+ */
+@Slf4j
+@Service
+public class ChunkPictureUpload extends PictureUploadTemplate {
+
+    /**
+     * 会话 key 前缀，值为会话 JSON
+     */
+    private static final String SESSION_KEY_PREFIX = "picture:chunk:session:";
+
+    /**
+     * 分片 key 前缀，Hash 结构，field 为分片序号，value 为 ETag
+     */
+    private static final String PARTS_KEY_PREFIX = "picture:chunk:parts:";
+
+    /**
+     * 会话过期时间（小时），每次上传分片后续期
+     */
+    private static final long EXPIRE_HOURS = 24;
+
+    /**
+     * 允许上传的文件后缀
+     */
+    private static final List<String> ALLOW_FORMAT_LIST = Arrays.asList("jpeg", "jpg", "png", "webp");
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 初始化分片上传
+     *
+     * @param fileName         原始文件名
+     * @param fileSize         文件大小
+     * @param uploadPathPrefix 上传路径前缀
+     * @param userId           用户 id
+     * @param spaceId          空间 id
+     * @param pictureId        图片 id（重新上传时传入）
+     * @return 分片上传会话
+     */
+    public PictureChunkSession init(String fileName, long fileSize, String uploadPathPrefix, Long userId, Long spaceId, Long pictureId) {
+        // 分片合并和图片处理都在 COS 中完成
+        ThrowUtils.throwIf(!storageConfig.isCos(), ErrorCode.OPERATION_ERROR, "当前存储不支持分片上传");
+        ThrowUtils.throwIf(fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件不能为空");
+        ThrowUtils.throwIf(fileSize > pictureUploadConfig.getChunkMaxFileSize().toBytes(), ErrorCode.PARAMS_ERROR,
+                "文件大小不能超过 " + pictureUploadConfig.getChunkMaxFileSize().toMegabytes() + "M");
+        ThrowUtils.throwIf(!ALLOW_FORMAT_LIST.contains(FileUtil.getSuffix(fileName)), ErrorCode.PARAMS_ERROR, "文件类型错误");
+        long partSize = pictureUploadConfig.getChunkSize().toBytes();
+        String uploadPath = buildUploadPath(fileName, uploadPathPrefix);
+        PictureChunkSession pictureChunkSession = new PictureChunkSession();
+        pictureChunkSession.setUploadId(cosManager.initiateMultipartUpload(uploadPath));
+        pictureChunkSession.setUploadPath(uploadPath);
+        pictureChunkSession.setFileName(fileName);
+        pictureChunkSession.setFileSize(fileSize);
+        pictureChunkSession.setPartSize(partSize);
+        pictureChunkSession.setPartCount((int) ((fileSize + partSize - 1) / partSize));
+        pictureChunkSession.setUserId(userId);
+        pictureChunkSession.setSpaceId(spaceId);
+        pictureChunkSession.setPictureId(pictureId);
+        stringRedisTemplate.opsForValue().set(SESSION_KEY_PREFIX + pictureChunkSession.getUploadId(),
+                JSONUtil.toJsonStr(pictureChunkSession), EXPIRE_HOURS, TimeUnit.HOURS);
+        return pictureChunkSession;
+    }
+
+    /**
+     * 获取分片上传会话
+     *
+     * @param uploadId 分片上传 id
+     * @return 会话
+     */
+    public PictureChunkSession getSession(String uploadId) {
+        String json = stringRedisTemplate.opsForValue().get(SESSION_KEY_PREFIX + uploadId);
+        ThrowUtils.throwIf(json == null, ErrorCode.NOT_FOUND_ERROR, "上传任务不存在或已过期");
+        return JSONUtil.toBean(json, PictureChunkSession.class);
+    }
+
+    /**
+     * 获取已上传的分片序号（升序）
+     *
+     * @param uploadId 分片上传 id
+     * @return 分片序号列表
+     */
+    public List<Integer> listUploadedParts(String uploadId) {
+        List<Integer> partNumbers = new ArrayList<>();
+        for (Object field : stringRedisTemplate.opsForHash().keys(PARTS_KEY_PREFIX + uploadId)) {
+            partNumbers.add(Integer.valueOf(field.toString()));
+        }
+        partNumbers.sort(Comparator.naturalOrder());
+        return partNumbers;
+    }
+
+    /**
+     * 上传一个分片，分片数据直接转发到对象存储
+     * 同一分片重复上传时以最后一次为准，可用于失败重试
+     *
+     * @param pictureChunkSession 会话
+     * @param partNumber          分片序号（从 1 开始）
+     * @param multipartFile       分片数据
+     */
+    public void uploadPart(PictureChunkSession pictureChunkSession, int partNumber, MultipartFile multipartFile) {
+        ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "分片不能为空");
+        int partCount = pictureChunkSession.getPartCount();
+        ThrowUtils.throwIf(partNumber < 1 || partNumber > partCount, ErrorCode.PARAMS_ERROR, "分片序号错误");
+        long partSize = pictureChunkSession.getPartSize();
+        long expectedSize = partNumber < partCount ? partSize : pictureChunkSession.getFileSize() - partSize * (partCount - 1);
+        ThrowUtils.throwIf(multipartFile.getSize() != expectedSize, ErrorCode.PARAMS_ERROR, "分片大小错误");
+        String uploadId = pictureChunkSession.getUploadId();
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            // 第一片包含文件头，校验图片格式
+            InputStream partInputStream = partNumber == 1 ? PictureInputStream.wrap(inputStream, expectedSize) : inputStream;
+            PartETag partETag = cosManager.uploadPart(pictureChunkSession.getUploadPath(), uploadId, partNumber, partInputStream, expectedSize);
+            String partsKey = PARTS_KEY_PREFIX + uploadId;
+            stringRedisTemplate.opsForHash().put(partsKey, String.valueOf(partNumber), partETag.getETag());
+            stringRedisTemplate.expire(partsKey, EXPIRE_HOURS, TimeUnit.HOURS);
+            stringRedisTemplate.expire(SESSION_KEY_PREFIX + uploadId, EXPIRE_HOURS, TimeUnit.HOURS);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("分片上传失败, uploadId = {}, partNumber = {}", uploadId, partNumber, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "分片上传失败");
+        }
+    }
+
+    /**
+     * 合并分片，完成上传
+     *
+     * @param inputSource      分片上传会话
+     * @param uploadPathPrefix 上传路径前缀，需与初始化时一致
+     * @return 上传结果
+     */
+    @Override
+    public UploadPictureResult uploadPicture(Object inputSource, String uploadPathPrefix) {
+        validPicture(inputSource);
+        PictureChunkSession pictureChunkSession = (PictureChunkSession) inputSource;
+        String uploadPath = pictureChunkSession.getUploadPath();
+        ThrowUtils.throwIf(!uploadPath.startsWith("/" + uploadPathPrefix + "/"), ErrorCode.NO_AUTH_ERROR);
+        String uploadId = pictureChunkSession.getUploadId();
+        Map<Object, Object> etagMap = stringRedisTemplate.opsForHash().entries(PARTS_KEY_PREFIX + uploadId);
+        List<PartETag> partETags = new ArrayList<>(etagMap.size());
+        etagMap.forEach((partNumber, etag) -> partETags.add(new PartETag(Integer.parseInt(partNumber.toString()), etag.toString())));
+        partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        try {
+            CompleteMultipartUploadResult completeMultipartUploadResult = cosManager.completePictureMultipartUpload(uploadPath, uploadId,
+                    partETags, pictureChunkSession.getFileSize());
+            UploadPictureResult uploadPictureResult = ciPictureProcessEngine.buildUploadResult(completeMultipartUploadResult.getCiUploadResult(),
+                    pictureChunkSession.getFileName(), uploadPath, pictureChunkSession.getFileSize());
+            deleteSession(uploadId);
+            return uploadPictureResult;
+        } catch (Exception e) {
+            log.error("合并分片失败, uploadId = {}", uploadId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+    }
+
+    /**
+     * 终止分片上传，清理对象存储中的分片和会话
+     *
+     * @param pictureChunkSession 会话
+     */
+    public void abort(PictureChunkSession pictureChunkSession) {
+        try {
+            cosManager.abortMultipartUpload(pictureChunkSession.getUploadPath(), pictureChunkSession.getUploadId());
+        } catch (Exception e) {
+            log.warn("终止分片上传失败, uploadId = {}", pictureChunkSession.getUploadId(), e);
+        }
+        deleteSession(pictureChunkSession.getUploadId());
+    }
+
+    @Override
+    protected void validPicture(Object inputSource) {
+        PictureChunkSession pictureChunkSession = (PictureChunkSession) inputSource;
+        ThrowUtils.throwIf(pictureChunkSession == null, ErrorCode.PARAMS_ERROR, "上传任务不存在");
+        Long uploadedCount = stringRedisTemplate.opsForHash().size(PARTS_KEY_PREFIX + pictureChunkSession.getUploadId());
+        ThrowUtils.throwIf(uploadedCount == null || uploadedCount != pictureChunkSession.getPartCount().longValue(),
+                ErrorCode.PARAMS_ERROR, "分片未全部上传");
+    }
+
+    @Override
+    protected String getOriginFilename(Object inputSource) {
+        return ((PictureChunkSession) inputSource).getFileName();
+    }
+
+    @Override
+    protected void processFile(Object inputSource, File file) {
+        throw new BusinessException(ErrorCode.OPERATION_ERROR, "分片上传不支持该方式");
+    }
+
+    @Override
+    protected PictureUploadSource openSource(Object inputSource) {
+        throw new BusinessException(ErrorCode.OPERATION_ERROR, "分片上传不支持该方式");
+    }
+
+    private void deleteSession(String uploadId) {
+        stringRedisTemplate.delete(Arrays.asList(SESSION_KEY_PREFIX + uploadId, PARTS_KEY_PREFIX + uploadId));
+    }
+}
@@ -42,4 +42,11 @@ public class FilePictureUpload extends PictureUploadTemplate {
         MultipartFile multipartFile = (MultipartFile) inputSource;  
         multipartFile.transferTo(file);  
     }  
+
+    @Override
+    protected PictureUploadSource openSource(Object inputSource) throws Exception {
+        MultipartFile multipartFile = (MultipartFile) inputSource;
+        // 不超过 file-size-threshold 的文件由容器保存在内存中，不会产生临时文件
+        return new PictureUploadSource(multipartFile.getInputStream(), multipartFile.getSize(), null);
+    }
 }
@@ -0,0 +1,147 @@
+package com.zzm.picturebackend.manager.upload;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.URLUtil;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.zzm.picturebackend.config.PictureUploadConfig;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 批量抓取图片的并发上传
+ * 下载和写对象存储在独立线程池中并行执行，同一个站点同时只允许少量请求，避免被目标站点限流或封禁；
+ * 站点并发已满的任务延迟后重新排队，不在上传线程中等待，其他站点的任务不受影响
+ * 入库仍由调用方按提交顺序串行完成，保证图片名称序号与页面顺序一致
+ */
+@Component
+public class PictureBatchUploadManager {
+
+    /**
+     * 等待站点并发许可的最长时间（秒）
+     */
+    private static final long HOST_PERMIT_TIMEOUT_SECONDS = 30;
+
+    /**
+     * 站点并发已满时重新排队的间隔（毫秒）
+     */
+    private static final long HOST_RETRY_DELAY_MILLIS = 200;
+
+    @Resource
+    private UrlPictureUpload urlPictureUpload;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 延迟重新排队，只做调度，不执行上传
+     */
+    private ScheduledExecutorService retryScheduler;
+
+    /**
+     * 站点 -> 并发许可，一段时间不访问的站点自动移除
+     */
+    private LoadingCache<String, Semaphore> hostPermits;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = pictureUploadConfig.getBatchParallelism();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                ThreadUtil.newNamedThreadFactory("picture-batch-", false));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("picture-batch-retry-", true));
+        int perHostLimit = pictureUploadConfig.getBatchPerHostLimit();
+        hostPermits = Caffeine.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build(host -> new Semaphore(perHostLimit));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        retryScheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交一张图片的上传
+     * 返回的 future 在开始执行前被取消时直接跳过，不会再下载；上传完成时已被取消的，上传结果交给 discard 清理
+     *
+     * @param fileUrl          图片地址
+     * @param uploadPathPrefix 上传路径前缀
+     * @param discard          清理不再需要的上传结果（删除对象存储中的文件）
+     * @return 上传结果
+     */
+    public CompletableFuture<UploadPictureResult> submit(String fileUrl, String uploadPathPrefix, Consumer<UploadPictureResult> discard) {
+        CompletableFuture<UploadPictureResult> future = new CompletableFuture<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(HOST_PERMIT_TIMEOUT_SECONDS);
+        execute(future, () -> upload(future, fileUrl, uploadPathPrefix, discard, deadline));
+        return future;
+    }
+
+    /**
+     * 抢到站点许可后上传；站点并发已满时延迟重新排队，超过等待时间则失败
+     */
+    private void upload(CompletableFuture<UploadPictureResult> future, String fileUrl, String uploadPathPrefix,
+                        Consumer<UploadPictureResult> discard, long deadline) {
+        if (future.isDone()) {
+            return;
+        }
+        String host;
+        Semaphore semaphore;
+        try {
+            host = URLUtil.url(fileUrl).getHost();
+            semaphore = hostPermits.get(host);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        if (!semaphore.tryAcquire()) {
+            if (System.nanoTime() - deadline > 0) {
+                future.completeExceptionally(new BusinessException(ErrorCode.OPERATION_ERROR, "站点繁忙: " + host));
+                return;
+            }
+            try {
+                retryScheduler.schedule(() -> execute(future, () -> upload(future, fileUrl, uploadPathPrefix, discard, deadline)),
+                        HOST_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+        try {
+            UploadPictureResult uploadPictureResult = urlPictureUpload.uploadPicture(fileUrl, uploadPathPrefix);
+            if (!future.complete(uploadPictureResult)) {
+                // 上传期间任务已被取消，结果不会再入库
+                discard.accept(uploadPictureResult);
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private void execute(CompletableFuture<UploadPictureResult> future, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
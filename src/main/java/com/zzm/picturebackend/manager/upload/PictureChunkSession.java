@@ -0,0 +1,59 @@
+package com.zzm.picturebackend.manager.upload;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分片上传会话，初始化时写入 Redis，完成或终止后删除
+ */
+@Data
+public class PictureChunkSession implements Serializable {
+
+    /**
+     * 对象存储分片上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 对象存储中的上传路径
+     */
+    private String uploadPath;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小（字节，最后一片可以更小）
+     */
+    private Long partSize;
+
+    /**
+     * 分片数量
+     */
+    private Integer partCount;
+
+    /**
+     * 发起上传的用户 id
+     */
+    private Long userId;
+
+    /**
+     * 空间 id（为空表示公共图库）
+     */
+    private Long spaceId;
+
+    /**
+     * 图片 id（重新上传时不为空）
+     */
+    private Long pictureId;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,276 @@
+package com.zzm.picturebackend.manager.upload;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.manager.image.PicturePalettes;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.dto.file.PictureRendition;
+import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
+import com.zzm.picturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 图片内容去重索引：去重范围 + 内容摘要（SHA-256） -> 已上传的对象存储结果
+ * 先查 Redis，未命中再按 picture.contentHash 查库并回填；命中时直接复用已有的压缩图和缩略图，
+ * 不再写对象存储，也不再触发图片处理
+ * 1. 去重范围为公共图库或单个空间，不同空间之间不复用文件（空间文件随空间清理，公共图库也不能引用私有空间的文件）
+ * 2. 查找和删除文件使用同一把锁：查找命中后登记一段时间的待引用标记，删除前在锁内确认既没有图片记录引用、也没有待引用标记
+ */
+@Slf4j
+@Component
+public class PictureDedupManager {
+
+    /**
+     * 缓存 key 前缀
+     */
+    private static final String KEY_PREFIX = "picture:hash:";
+
+    /**
+     * 缓存过期时间（天）
+     */
+    private static final long EXPIRE_DAYS = 7;
+
+    /**
+     * 锁 key 前缀
+     */
+    private static final String LOCK_KEY_PREFIX = "picture:hash:lock:";
+
+    /**
+     * 待引用标记 key 前缀：查找命中后到图片入库前，文件还没有被图片记录引用
+     */
+    private static final String PENDING_KEY_PREFIX = "picture:hash:pending:";
+
+    /**
+     * 锁的过期时间（秒），锁内只有几次 Redis 和数据库查询
+     */
+    private static final long LOCK_SECONDS = 10;
+
+    /**
+     * 获取锁的等待次数和间隔
+     */
+    private static final int LOCK_WAIT_TIMES = 20;
+
+    private static final long LOCK_WAIT_INTERVAL_MILLIS = 50;
+
+    /**
+     * 待引用标记的过期时间（秒），覆盖从查找命中到图片入库的时间
+     */
+    private static final long PENDING_SECONDS = 60;
+
+    /**
+     * 释放锁：只有值仍是自己的令牌时才删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 按内容摘要在同一去重范围内查找已上传的图片，命中时登记待引用标记，期间文件不会被删除
+     *
+     * @param contentHash      内容摘要
+     * @param uploadPathPrefix 上传路径前缀（public/{用户 id} 或 space/{空间 id}），决定去重范围
+     * @param originFilename   本次上传的原始文件名（用于图片名称）
+     * @return 可复用的上传结果，未命中（或暂时无法加锁）返回 null
+     */
+    public UploadPictureResult find(String contentHash, String uploadPathPrefix, String originFilename) {
+        if (StrUtil.isBlank(contentHash)) {
+            return null;
+        }
+        Long spaceId = parseSpaceId(uploadPathPrefix);
+        String dedupKey = buildDedupKey(contentHash, spaceId);
+        UploadPictureResult uploadPictureResult = withLock(dedupKey, () -> {
+            UploadPictureResult result = get(dedupKey);
+            if (result == null) {
+                result = findInDatabase(contentHash, spaceId);
+                if (result == null) {
+                    return null;
+                }
+                put(dedupKey, result);
+            }
+            stringRedisTemplate.opsForValue().set(PENDING_KEY_PREFIX + dedupKey, result.getUrl(), PENDING_SECONDS, TimeUnit.SECONDS);
+            return result;
+        });
+        if (uploadPictureResult == null) {
+            return null;
+        }
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        return uploadPictureResult;
+    }
+
+    /**
+     * 记录新上传的图片
+     *
+     * @param contentHash         内容摘要
+     * @param uploadPathPrefix    上传路径前缀，决定去重范围
+     * @param uploadPictureResult 上传结果
+     */
+    public void put(String contentHash, String uploadPathPrefix, UploadPictureResult uploadPictureResult) {
+        if (StrUtil.isBlank(contentHash)) {
+            return;
+        }
+        put(buildDedupKey(contentHash, parseSpaceId(uploadPathPrefix)), uploadPictureResult);
+    }
+
+    /**
+     * 删除图片文件：在去重锁内确认文件没有被引用后，先移除索引再删除
+     * 没有内容摘要的图片不会被去重复用，直接按引用情况删除
+     *
+     * @param contentHash  内容摘要，可为空
+     * @param spaceId      图片所属空间 id，为空表示公共图库
+     * @param url          图片地址
+     * @param referenced   查询文件是否仍被图片记录引用
+     * @param deleteAction 删除文件
+     * @return 是否执行了删除；仍被引用、有上传正在复用或暂时无法加锁时不删除
+     */
+    public boolean deleteIfUnreferenced(String contentHash, Long spaceId, String url, BooleanSupplier referenced, Runnable deleteAction) {
+        if (StrUtil.isBlank(contentHash)) {
+            if (referenced.getAsBoolean()) {
+                return false;
+            }
+            deleteAction.run();
+            return true;
+        }
+        String dedupKey = buildDedupKey(contentHash, spaceId);
+        Boolean deleted = withLock(dedupKey, () -> {
+            if (referenced.getAsBoolean() || url.equals(stringRedisTemplate.opsForValue().get(PENDING_KEY_PREFIX + dedupKey))) {
+                return false;
+            }
+            // 索引指向的正是要删除的文件时才移除，同一内容重新上传后的新文件不受影响
+            UploadPictureResult cached = get(dedupKey);
+            if (cached != null && url.equals(cached.getUrl())) {
+                stringRedisTemplate.delete(KEY_PREFIX + dedupKey);
+            }
+            deleteAction.run();
+            return true;
+        });
+        if (deleted == null) {
+            log.warn("获取图片去重锁失败，暂不删除文件, url = {}", url);
+            return false;
+        }
+        return deleted;
+    }
+
+    /**
+     * 加锁执行，用于去重查找和文件删除互斥
+     *
+     * @return 执行结果；没有获取到锁时返回 null
+     */
+    private <T> T withLock(String dedupKey, Supplier<T> action) {
+        String lockKey = LOCK_KEY_PREFIX + dedupKey;
+        String lockToken = IdUtil.fastSimpleUUID();
+        boolean acquired = false;
+        try {
+            for (int i = 0; i < LOCK_WAIT_TIMES && !acquired; i++) {
+                if (i > 0) {
+                    ThreadUtil.sleep(LOCK_WAIT_INTERVAL_MILLIS);
+                }
+                acquired = Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                        .setIfAbsent(lockKey, lockToken, LOCK_SECONDS, TimeUnit.SECONDS));
+            }
+        } catch (Exception e) {
+            log.warn("获取图片去重锁失败, key = {}", lockKey, e);
+        }
+        if (!acquired) {
+            return null;
+        }
+        try {
+            return action.get();
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(lockKey), lockToken);
+        }
+    }
+
+    private UploadPictureResult get(String dedupKey) {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(KEY_PREFIX + dedupKey);
+            if (json != null) {
+                return JSONUtil.toBean(json, UploadPictureResult.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取图片去重索引失败, key = {}", dedupKey, e);
+        }
+        return null;
+    }
+
+    private void put(String dedupKey, UploadPictureResult uploadPictureResult) {
+        try {
+            UploadPictureResult cached = BeanUtil.copyProperties(uploadPictureResult, UploadPictureResult.class, "picName");
+            stringRedisTemplate.opsForValue().set(KEY_PREFIX + dedupKey, JSONUtil.toJsonStr(cached), EXPIRE_DAYS, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("写入图片去重索引失败, key = {}", dedupKey, e);
+        }
+    }
+
+    /**
+     * 去重 key：{范围}:{内容摘要}，范围为 public 或 space:{空间 id}
+     */
+    private static String buildDedupKey(String contentHash, Long spaceId) {
+        return (spaceId == null ? "public" : "space:" + spaceId) + ":" + contentHash;
+    }
+
+    /**
+     * 从上传路径前缀解析空间 id（空间图片的前缀为 space/{空间 id}）
+     *
+     * @return 空间 id，公共图库返回 null
+     */
+    private static Long parseSpaceId(String uploadPathPrefix) {
+        String prefix = StrUtil.removePrefix(uploadPathPrefix, "/");
+        if (!StrUtil.startWith(prefix, "space/")) {
+            return null;
+        }
+        String value = prefix.substring("space/".length());
+        return NumberUtil.isLong(value) ? Long.parseLong(value) : null;
+    }
+
+    private UploadPictureResult findInDatabase(String contentHash, Long spaceId) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("url", "thumbnailUrl", "picSize", "picWidth", "picHeight", "picScale", "picFormat", "picColor", "renditions", "palette", "phash", "dhash")
+                .eq("contentHash", contentHash)
+                .eq(spaceId != null, "spaceId", spaceId)
+                .isNull(spaceId == null, "spaceId")
+                .last("LIMIT 1");
+        Picture picture = pictureMapper.selectOne(queryWrapper);
+        if (picture == null) {
+            return null;
+        }
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(picture.getUrl());
+        uploadPictureResult.setThumbnailUrl(picture.getThumbnailUrl());
+        uploadPictureResult.setPicSize(picture.getPicSize());
+        uploadPictureResult.setPicWidth(picture.getPicWidth());
+        uploadPictureResult.setPicHeight(picture.getPicHeight());
+        uploadPictureResult.setPicScale(picture.getPicScale());
+        uploadPictureResult.setPicFormat(picture.getPicFormat());
+        uploadPictureResult.setPicColor(picture.getPicColor());
+        if (StrUtil.isNotBlank(picture.getRenditions())) {
+            uploadPictureResult.setRenditions(JSONUtil.toList(picture.getRenditions(), PictureRendition.class));
+        }
+        if (StrUtil.isNotBlank(picture.getPalette())) {
+            uploadPictureResult.setPalette(PicturePalettes.decode(picture.getPalette()));
+        }
+        uploadPictureResult.setPhash(picture.getPhash());
+        uploadPictureResult.setDhash(picture.getDhash());
+        uploadPictureResult.setContentHash(contentHash);
+        return uploadPictureResult;
+    }
+}
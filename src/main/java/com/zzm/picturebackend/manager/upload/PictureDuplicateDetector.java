@@ -0,0 +1,104 @@
+package com.zzm.picturebackend.manager.upload;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.config.PictureUploadConfig;
+import com.zzm.picturebackend.manager.search.PictureHashIndex;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 近似重复图片检测：同一张图片经过重新编码、压缩、缩放后内容摘要不同，但感知哈希接近
+ * 先在哈希索引中取 pHash 距离足够小的图片，再用 dHash 距离和宽高比过滤（裁剪过的图片宽高比不同，不算重复）
+ * 只在同一空间（或公共图库）内检测
+ * 哈希索引通过 Redis 发布订阅在各实例间同步，通知丢失时可能残留已删除的图片，命中结果再回表确认
+ */
+@Slf4j
+@Component
+public class PictureDuplicateDetector {
+
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    /**
+     * 查找近似重复的图片
+     *
+     * @param phash     pHash，为空时不检测
+     * @param dhash     dHash，可为空
+     * @param width     图片宽度
+     * @param height    图片高度
+     * @param spaceId   空间 id，为 null 时检测公共图库
+     * @param excludeId 排除的图片 id（图片本身），可为空
+     * @return 重复图片 id，最相似的在前；无法检测（如哈希索引未就绪）时返回空列表
+     */
+    public List<Long> detect(Long phash, Long dhash, Integer width, Integer height, Long spaceId, Long excludeId) {
+        if (phash == null || !checkable(width, height)) {
+            return Collections.emptyList();
+        }
+        List<PictureHashIndex.HashMatch> matches = pictureHashIndex.match(phash, dhash, spaceId, null,
+                pictureUploadConfig.getDuplicateDistance(), excludeId);
+        if (matches == null) {
+            log.warn("图片哈希索引未就绪，跳过近似重复检测");
+            return Collections.emptyList();
+        }
+        double aspect = (double) width / height;
+        List<Long> duplicateIds = new ArrayList<>();
+        for (PictureHashIndex.HashMatch match : matches) {
+            if (match.getDhashDistance() > pictureUploadConfig.getDuplicateDhashDistance()) {
+                continue;
+            }
+            if (!checkable(match.getWidth(), match.getHeight())) {
+                continue;
+            }
+            double matchAspect = (double) match.getWidth() / match.getHeight();
+            if (Math.abs(matchAspect - aspect) > pictureUploadConfig.getDuplicateAspectTolerance() * aspect) {
+                continue;
+            }
+            duplicateIds.add(match.getId());
+        }
+        return confirm(duplicateIds, spaceId);
+    }
+
+    /**
+     * 回表确认重复图片仍存在且仍在同一空间，保持相似度顺序
+     */
+    private List<Long> confirm(List<Long> duplicateIds, Long spaceId) {
+        if (duplicateIds.isEmpty()) {
+            return duplicateIds;
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id")
+                .in("id", duplicateIds)
+                .eq(spaceId != null, "spaceId", spaceId)
+                .isNull(spaceId == null, "spaceId");
+        Set<Long> existingIds = pictureMapper.selectList(queryWrapper).stream()
+                .map(Picture::getId)
+                .collect(Collectors.toSet());
+        if (existingIds.size() < duplicateIds.size()) {
+            log.warn("哈希索引中有 {} 张图片已不存在或已移出空间，等待索引刷新", duplicateIds.size() - existingIds.size());
+        }
+        return duplicateIds.stream().filter(existingIds::contains).collect(Collectors.toList());
+    }
+
+    /**
+     * 尺寸已知且不是太小的图片才参与检测
+     */
+    private boolean checkable(Integer width, Integer height) {
+        return width != null && height != null && width > 0 && height > 0
+                && Math.min(width, height) >= pictureUploadConfig.getDuplicateMinSide();
+    }
+}
@@ -0,0 +1,189 @@
+package com.zzm.picturebackend.manager.upload;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.exception.ThrowUtils;
+import com.zzm.picturebackend.manager.search.PictureHashIndex;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.entity.Picture;
+import com.zzm.picturebackend.model.vo.PictureDuplicateClusterVO;
+import com.zzm.picturebackend.model.vo.PictureDuplicateReportVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 存量图片的近似重复扫描：按 id 分批读取有感知哈希的图片，逐张做近似重复检测，用并查集把相互重复的图片合并成簇
+ * 由管理员手动触发，在单独的后台线程中执行，同一时间只运行一个；只保留最近一次的报告
+ */
+@Slf4j
+@Component
+public class PictureDuplicateScanner {
+
+    /**
+     * 每批读取的行数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 报告中最多列出的簇数
+     */
+    private static final int MAX_REPORT_CLUSTERS = 200;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PictureDuplicateDetector pictureDuplicateDetector;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile PictureDuplicateReportVO report;
+
+    /**
+     * 启动扫描
+     *
+     * @return 是否启动；已有扫描在运行时返回 false
+     */
+    public boolean start() {
+        ThrowUtils.throwIf(!pictureHashIndex.isReady(), ErrorCode.OPERATION_ERROR, "图片哈希索引构建中，请稍后再试");
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        PictureDuplicateReportVO pictureDuplicateReportVO = new PictureDuplicateReportVO();
+        pictureDuplicateReportVO.setRunning(true);
+        pictureDuplicateReportVO.setStartTime(new Date());
+        pictureDuplicateReportVO.setScannedCount(0);
+        report = pictureDuplicateReportVO;
+        ThreadUtil.newThread(() -> {
+            try {
+                run(pictureDuplicateReportVO);
+            } catch (Exception e) {
+                log.error("近似重复图片扫描失败", e);
+            } finally {
+                pictureDuplicateReportVO.setRunning(false);
+                running.set(false);
+            }
+        }, "picture-duplicate-scanner", true).start();
+        return true;
+    }
+
+    /**
+     * 获取最近一次扫描的报告（扫描中时只有进度）
+     *
+     * @return 报告，从未扫描过时返回 null
+     */
+    public PictureDuplicateReportVO getReport() {
+        return report;
+    }
+
+    private void run(PictureDuplicateReportVO pictureDuplicateReportVO) {
+        long start = System.currentTimeMillis();
+        // 并查集：图片 id -> 父节点 id，只记录有重复的图片
+        Map<Long, Long> parents = new HashMap<>();
+        Map<Long, Picture> pictures = new HashMap<>();
+        long lastId = 0;
+        int scannedCount = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "spaceId", "picSize", "picWidth", "picHeight", "phash", "dhash")
+                    .isNotNull("phash")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            if (pictureList.isEmpty()) {
+                break;
+            }
+            for (Picture picture : pictureList) {
+                List<Long> duplicateIdList = pictureDuplicateDetector.detect(picture.getPhash(), picture.getDhash(),
+                        picture.getPicWidth(), picture.getPicHeight(), picture.getSpaceId(), picture.getId());
+                if (duplicateIdList.isEmpty()) {
+                    continue;
+                }
+                pictures.put(picture.getId(), picture);
+                for (Long duplicateId : duplicateIdList) {
+                    union(parents, picture.getId(), duplicateId);
+                }
+            }
+            scannedCount += pictureList.size();
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+            pictureDuplicateReportVO.setScannedCount(scannedCount);
+        }
+
+        Map<Long, List<Long>> clusterMap = new HashMap<>();
+        for (Long id : new ArrayList<>(parents.keySet())) {
+            clusterMap.computeIfAbsent(find(parents, id), k -> new ArrayList<>()).add(id);
+        }
+        List<PictureDuplicateClusterVO> clusters = new ArrayList<>(clusterMap.size());
+        int duplicateCount = 0;
+        long reclaimableSize = 0;
+        for (List<Long> pictureIds : clusterMap.values()) {
+            Collections.sort(pictureIds);
+            long clusterReclaimableSize = 0;
+            for (int i = 1; i < pictureIds.size(); i++) {
+                // 扫描期间新增的图片不在本次读取范围内，大小按 0 计算
+                Picture picture = pictures.get(pictureIds.get(i));
+                if (picture != null && picture.getPicSize() != null) {
+                    clusterReclaimableSize += picture.getPicSize();
+                }
+            }
+            Picture first = pictures.get(pictureIds.get(0));
+            PictureDuplicateClusterVO pictureDuplicateClusterVO = new PictureDuplicateClusterVO();
+            pictureDuplicateClusterVO.setSpaceId(first == null ? null : first.getSpaceId());
+            pictureDuplicateClusterVO.setPictureIds(pictureIds);
+            pictureDuplicateClusterVO.setReclaimableSize(clusterReclaimableSize);
+            clusters.add(pictureDuplicateClusterVO);
+            duplicateCount += pictureIds.size() - 1;
+            reclaimableSize += clusterReclaimableSize;
+        }
+        clusters.sort(Comparator.comparingInt((PictureDuplicateClusterVO cluster) -> cluster.getPictureIds().size()).reversed()
+                .thenComparing(cluster -> cluster.getPictureIds().get(0)));
+        pictureDuplicateReportVO.setClusterCount(clusters.size());
+        pictureDuplicateReportVO.setDuplicateCount(duplicateCount);
+        pictureDuplicateReportVO.setReclaimableSize(reclaimableSize);
+        pictureDuplicateReportVO.setClusters(new ArrayList<>(clusters.subList(0, Math.min(MAX_REPORT_CLUSTERS, clusters.size()))));
+        pictureDuplicateReportVO.setFinishTime(new Date());
+        log.info("近似重复图片扫描完成：扫描 {} 张，重复簇 {} 个，重复图片 {} 张，可节省 {} 字节，耗时 {} ms",
+                scannedCount, clusters.size(), duplicateCount, reclaimableSize, System.currentTimeMillis() - start);
+    }
+
+    private static void union(Map<Long, Long> parents, long id1, long id2) {
+        long root1 = find(parents, id1);
+        long root2 = find(parents, id2);
+        if (root1 != root2) {
+            // 较小的 id 作为根，簇内最早的图片
+            parents.put(Math.max(root1, root2), Math.min(root1, root2));
+        }
+    }
+
+    private static long find(Map<Long, Long> parents, long id) {
+        long root = id;
+        Long parent;
+        while ((parent = parents.get(root)) != null && parent != root) {
+            root = parent;
+        }
+        parents.put(root, root);
+        // 路径压缩
+        long current = id;
+        while (current != root) {
+            long next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+}
@@ -0,0 +1,157 @@
+package com.zzm.picturebackend.manager.upload;
+
+import cn.hutool.core.util.HexUtil;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 边读边校验的图片输入流
+ * 1. 创建时读取文件头，按魔数校验是否为 jpeg / png / webp
+ * 2. 读取过程中统计字节数，超过上限立即中断
+ * 3. 读取过程中计算 SHA-256，读完后通过 {@link #getContentHash()} 获取
+ */
+public class PictureInputStream extends FilterInputStream {
+
+    /**
+     * 识别格式需要的文件头长度
+     */
+    private static final int HEADER_LENGTH = 12;
+
+    private final MessageDigest messageDigest;
+
+    private final long maxSize;
+
+    private long readBytes;
+
+    private PictureInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+        try {
+            this.messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 包装输入流，并校验文件头
+     *
+     * @param in      原始输入流
+     * @param maxSize 最大字节数
+     * @return 校验输入流
+     * @throws IOException 读取失败
+     */
+    public static PictureInputStream wrap(InputStream in, long maxSize) throws IOException {
+        PushbackInputStream pushbackInputStream = new PushbackInputStream(in, HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int length = 0;
+        while (length < HEADER_LENGTH) {
+            int n = pushbackInputStream.read(header, length, HEADER_LENGTH - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        if (!isSupportedPicture(header, length)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件类型错误");
+        }
+        pushbackInputStream.unread(header, 0, length);
+        return new PictureInputStream(pushbackInputStream, maxSize);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            messageDigest.update((byte) b);
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            messageDigest.update(b, off, n);
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 跳过的数据也需要参与摘要计算
+        byte[] buffer = new byte[8192];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * 获取内容的 SHA-256 摘要，需在数据读取完毕后调用
+     *
+     * @return 十六进制摘要
+     */
+    public String getContentHash() {
+        return HexUtil.encodeHexStr(messageDigest.digest());
+    }
+
+    private void count(int n) throws IOException {
+        readBytes += n;
+        if (readBytes > maxSize) {
+            throw new SizeExceededException(maxSize);
+        }
+    }
+
+    /**
+     * 读取的字节数超过上限，读取立即中断
+     * 对象存储 SDK 可能包装读取异常，调用方需按异常链判断
+     */
+    public static class SizeExceededException extends IOException {
+
+        public SizeExceededException(long maxSize) {
+            super("文件大小超过限制: " + maxSize);
+        }
+    }
+
+    private static boolean isSupportedPicture(byte[] header, int length) {
+        // jpeg: FF D8 FF
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return true;
+        }
+        // png: 89 50 4E 47 0D 0A 1A 0A
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                && header[4] == 0x0D && header[5] == 0x0A && header[6] == 0x1A && header[7] == 0x0A) {
+            return true;
+        }
+        // webp: RIFF????WEBP
+        return length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P';
+    }
+}
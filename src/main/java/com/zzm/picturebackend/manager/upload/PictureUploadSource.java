@@ -0,0 +1,47 @@
+package com.zzm.picturebackend.manager.upload;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 流式上传的输入源：数据流 + 已知的内容长度
+ * 关闭时同时释放底层资源（如 HTTP 连接）
+ */
+@Getter
+public class PictureUploadSource implements Closeable {
+
+    /**
+     * 图片数据流
+     */
+    private final InputStream inputStream;
+
+    /**
+     * 内容长度（字节）
+     */
+    private final long contentLength;
+
+    /**
+     * 需要一并关闭的底层资源，可为空
+     */
+    private final Closeable resource;
+
+    public PictureUploadSource(InputStream inputStream, long contentLength, Closeable resource) {
+        this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.resource = resource;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            inputStream.close();
+        } finally {
+            if (resource != null) {
+                resource.close();
+            }
+        }
+    }
+}
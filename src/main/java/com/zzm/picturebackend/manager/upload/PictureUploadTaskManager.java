@@ -0,0 +1,153 @@
+package com.zzm.picturebackend.manager.upload;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONUtil;
+import com.zzm.picturebackend.config.PictureUploadConfig;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.exception.ThrowUtils;
+import com.zzm.picturebackend.model.enums.PictureUploadTaskStatusEnum;
+import com.zzm.picturebackend.model.vo.PictureUploadTaskVO;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 异步上传任务管理
+ * 1. 任务在独立的有界线程池中执行，队列满时拒绝提交，避免上传高峰挤占 Tomcat 线程或无限堆积任务
+ *    （线程池不注册为 Spring Bean，否则会替换掉 @Async 默认使用的执行器）
+ * 2. 任务状态保存在 Redis 中（多实例部署时任意实例都可以查询），结束后保留一段时间供客户端轮询
+ */
+@Slf4j
+@Component
+public class PictureUploadTaskManager {
+
+    /**
+     * 任务 key 前缀
+     */
+    private static final String KEY_PREFIX = "picture:upload:task:";
+
+    /**
+     * 任务状态保留时间（小时）
+     */
+    private static final long EXPIRE_HOURS = 1;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(pictureUploadConfig.getAsyncPoolSize(), pictureUploadConfig.getAsyncPoolSize(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(pictureUploadConfig.getAsyncQueueCapacity()),
+                ThreadUtil.newNamedThreadFactory("picture-upload-", false), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 提交上传任务
+     *
+     * @param pictureUploadTaskVO 任务（需先通过 create 创建）
+     * @param uploadAction        上传动作，返回上传后的图片
+     */
+    public void submit(PictureUploadTaskVO pictureUploadTaskVO, Supplier<PictureVO> uploadAction) {
+        try {
+            executor.execute(() -> {
+                markRunning(pictureUploadTaskVO);
+                try {
+                    markSucceed(pictureUploadTaskVO, uploadAction.get());
+                } catch (BusinessException e) {
+                    markFailed(pictureUploadTaskVO, e.getMessage());
+                } catch (Exception e) {
+                    log.error("异步上传图片失败, taskId = {}", pictureUploadTaskVO.getTaskId(), e);
+                    markFailed(pictureUploadTaskVO, "上传失败");
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            markFailed(pictureUploadTaskVO, "上传任务过多");
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传任务过多，请稍后重试");
+        }
+    }
+
+    /**
+     * 创建任务
+     *
+     * @param userId 提交任务的用户 id
+     * @return 任务
+     */
+    public PictureUploadTaskVO create(Long userId) {
+        PictureUploadTaskVO pictureUploadTaskVO = new PictureUploadTaskVO();
+        pictureUploadTaskVO.setTaskId(IdUtil.fastSimpleUUID());
+        pictureUploadTaskVO.setStatus(PictureUploadTaskStatusEnum.WAITING.getValue());
+        pictureUploadTaskVO.setCreateTime(new Date());
+        pictureUploadTaskVO.setUserId(userId);
+        save(pictureUploadTaskVO);
+        return pictureUploadTaskVO;
+    }
+
+    /**
+     * 标记任务开始执行
+     */
+    private void markRunning(PictureUploadTaskVO pictureUploadTaskVO) {
+        pictureUploadTaskVO.setStatus(PictureUploadTaskStatusEnum.RUNNING.getValue());
+        save(pictureUploadTaskVO);
+    }
+
+    /**
+     * 标记任务成功
+     */
+    private void markSucceed(PictureUploadTaskVO pictureUploadTaskVO, PictureVO pictureVO) {
+        pictureUploadTaskVO.setStatus(PictureUploadTaskStatusEnum.SUCCEED.getValue());
+        pictureUploadTaskVO.setPicture(pictureVO);
+        pictureUploadTaskVO.setFinishTime(new Date());
+        save(pictureUploadTaskVO);
+    }
+
+    /**
+     * 标记任务失败
+     */
+    private void markFailed(PictureUploadTaskVO pictureUploadTaskVO, String errorMessage) {
+        pictureUploadTaskVO.setStatus(PictureUploadTaskStatusEnum.FAILED.getValue());
+        pictureUploadTaskVO.setErrorMessage(errorMessage);
+        pictureUploadTaskVO.setFinishTime(new Date());
+        save(pictureUploadTaskVO);
+    }
+
+    /**
+     * 查询任务
+     *
+     * @param taskId 任务 id
+     * @return 任务
+     */
+    public PictureUploadTaskVO get(String taskId) {
+        String json = stringRedisTemplate.opsForValue().get(KEY_PREFIX + taskId);
+        ThrowUtils.throwIf(json == null, ErrorCode.NOT_FOUND_ERROR, "上传任务不存在或已过期");
+        return JSONUtil.toBean(json, PictureUploadTaskVO.class);
+    }
+
+    private void save(PictureUploadTaskVO pictureUploadTaskVO) {
+        stringRedisTemplate.opsForValue().set(KEY_PREFIX + pictureUploadTaskVO.getTaskId(),
+                JSONUtil.toJsonStr(pictureUploadTaskVO), EXPIRE_HOURS, TimeUnit.HOURS);
+    }
+}
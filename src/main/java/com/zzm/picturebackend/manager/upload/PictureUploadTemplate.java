@@ -1,25 +1,30 @@
 package com.zzm.picturebackend.manager.upload;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
-import com.qcloud.cos.model.PutObjectResult;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.qcloud.cos.model.ciModel.persistence.CIObject;
-import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
-import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
 import com.zzm.picturebackend.config.CosClientConfig;
+import com.zzm.picturebackend.config.PictureUploadConfig;
+import com.zzm.picturebackend.config.StorageConfig;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.exception.ThrowUtils;
 import com.zzm.picturebackend.manager.CosManager;
+import com.zzm.picturebackend.manager.image.CiPictureProcessEngine;
+import com.zzm.picturebackend.manager.image.LocalPictureProcessEngine;
+import com.zzm.picturebackend.manager.image.PictureProcessEngine;
 import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.util.Date;
-import java.util.List;
 
 @Slf4j
 public abstract class PictureUploadTemplate {
@@ -30,6 +35,26 @@ public abstract class PictureUploadTemplate {
     @Resource
     protected CosClientConfig cosClientConfig;
 
+    @Resource
+    protected PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    protected PictureDedupManager pictureDedupManager;
+
+    @Resource
+    protected StorageConfig storageConfig;
+
+    @Resource
+    protected CiPictureProcessEngine ciPictureProcessEngine;
+
+    @Resource
+    protected LocalPictureProcessEngine localPictureProcessEngine;
+
+    /**
+     * 图片大小上限
+     */
+    protected static final long MAX_PICTURE_SIZE = 2 * 1024 * 1024L;
+
     /**
      * 模板方法，定义上传流程  
      */
@@ -38,11 +63,13 @@ public abstract class PictureUploadTemplate {
     validPicture(inputSource);
 
     // 2. 图片上传地址
-    String uuid = RandomUtil.randomString(16);
     String originFilename = getOriginFilename(inputSource);
-    String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
-            FileUtil.getSuffix(originFilename));
-    String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+    String uploadPath = buildUploadPath(originFilename, uploadPathPrefix);
+
+    // 流式上传，不落临时文件
+    if (pictureUploadConfig.isStreaming()) {
+        return uploadPictureByStream(inputSource, originFilename, uploadPathPrefix, uploadPath);
+    }
 
     File file = null;
     try {
@@ -50,31 +77,25 @@ public abstract class PictureUploadTemplate {
         file = File.createTempFile(uploadPath, null);
         // 处理文件来源（本地或 URL）
         processFile(inputSource, file);
+        // 相同内容已上传过则直接复用
+        String contentHash = DigestUtil.sha256Hex(file);
+        UploadPictureResult existingResult = findUploaded(contentHash, uploadPathPrefix, originFilename);
+        if (existingResult != null) {
+            return existingResult;
+        }
 
-        // 4. 上传图片到对象存储
-        PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
-        // 获取图片信息
-        ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-        // 获取图片处理结果
-        ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-        List<CIObject> objectList = processResults.getObjectList();
-        if (CollUtil.isNotEmpty(objectList)) {
-            // 获取压缩之后得到文件信息
-            CIObject compressedCiObject = objectList.get(0);
-            // 缩略图默认等于压缩图片
-            CIObject thumbnailCiObject = compressedCiObject;
-            // 有生成缩略图，则获取缩略图信息
-            if (objectList.size() > 1) {
-                thumbnailCiObject = objectList.get(1);
-            }
-            // 5. 封装返回结果
-            log.info("Compressed CIObject: {}", compressedCiObject);
-            log.info("Thumbnail CIObject: {}", thumbnailCiObject);
-            return buildResult(originFilename, compressedCiObject, thumbnailCiObject,imageInfo);
+        // 4. 上传图片到对象存储并处理，5. 封装返回结果
+        UploadPictureResult uploadPictureResult;
+        try (InputStream inputStream = FileUtil.getInputStream(file)) {
+            uploadPictureResult = getProcessEngine().process(uploadPath, inputStream, FileUtil.size(file), originFilename);
         }
-        // 5. 封装返回结果
-        return buildResult(originFilename, file, uploadPath, imageInfo);
+        uploadPictureResult.setContentHash(contentHash);
+        pictureDedupManager.put(contentHash, uploadPathPrefix, uploadPictureResult);
+        return uploadPictureResult;
+    } catch (BusinessException e) {
+        throw e;
     } catch (Exception e) {
+        throwIfSizeExceeded(e);
         log.error("图片上传到对象存储失败", e);
         throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
     } finally {
@@ -83,6 +104,84 @@ public abstract class PictureUploadTemplate {
     }
 }
 
+    /**
+     * 流式上传：数据从请求体或远程响应体直接写入对象存储，读取过程中校验文件头、大小并计算摘要
+     */
+    private UploadPictureResult uploadPictureByStream(Object inputSource, String originFilename, String uploadPathPrefix, String uploadPath) {
+        try (PictureUploadSource uploadSource = openSource(inputSource)) {
+            ThrowUtils.throwIf(uploadSource.getContentLength() > MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+            PictureInputStream pictureInputStream = PictureInputStream.wrap(uploadSource.getInputStream(), MAX_PICTURE_SIZE);
+            if (!pictureUploadConfig.isDedup()) {
+                UploadPictureResult uploadPictureResult = getProcessEngine().process(uploadPath, pictureInputStream,
+                        uploadSource.getContentLength(), originFilename);
+                uploadPictureResult.setContentHash(pictureInputStream.getContentHash());
+                return uploadPictureResult;
+            }
+            // 去重需要在写入对象存储之前得到摘要：图片不超过 2M，先读入内存，边读边校验并计算摘要
+            byte[] bytes = IoUtil.readBytes(pictureInputStream, false);
+            String contentHash = pictureInputStream.getContentHash();
+            UploadPictureResult existingResult = findUploaded(contentHash, uploadPathPrefix, originFilename);
+            if (existingResult != null) {
+                return existingResult;
+            }
+            UploadPictureResult uploadPictureResult = getProcessEngine().process(uploadPath, new ByteArrayInputStream(bytes),
+                    bytes.length, originFilename);
+            uploadPictureResult.setContentHash(contentHash);
+            pictureDedupManager.put(contentHash, uploadPathPrefix, uploadPictureResult);
+            return uploadPictureResult;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            throwIfSizeExceeded(e);
+            log.error("图片流式上传到对象存储失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+    }
+
+    /**
+     * 读取过程中超过大小上限属于参数错误，不是系统错误
+     */
+    private static void throwIfSizeExceeded(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof PictureInputStream.SizeExceededException) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+            }
+        }
+    }
+
+    /**
+     * 按内容摘要在同一空间（或公共图库）内查找已上传过的相同图片（关闭去重时返回 null）
+     */
+    private UploadPictureResult findUploaded(String contentHash, String uploadPathPrefix, String originFilename) {
+        if (!pictureUploadConfig.isDedup()) {
+            return null;
+        }
+        UploadPictureResult uploadPictureResult = pictureDedupManager.find(contentHash, uploadPathPrefix, originFilename);
+        if (uploadPictureResult != null) {
+            log.info("图片内容重复，复用已有对象: {}", uploadPictureResult.getUrl());
+        }
+        return uploadPictureResult;
+    }
+
+    /**
+     * 生成对象存储中的上传路径：/{前缀}/{日期}_{随机串}.{后缀}
+     */
+    protected String buildUploadPath(String originFilename, String uploadPathPrefix) {
+        String uuid = RandomUtil.randomString(16);
+        String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
+                FileUtil.getSuffix(originFilename));
+        return String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+    }
+
+    /**
+     * 按配置选择图片处理引擎（数据万象依赖 COS，其他存储只能在本地处理）
+     */
+    protected PictureProcessEngine getProcessEngine() {
+        if ("local".equals(pictureUploadConfig.getEngine()) || !storageConfig.isCos()) {
+            return localPictureProcessEngine;
+        }
+        return ciPictureProcessEngine;
+    }
 
     private UploadPictureResult buildResult(String originFilename, CIObject compressedCiObject, CIObject thumbnailCiObject) {
     UploadPictureResult uploadPictureResult = new UploadPictureResult();
@@ -120,66 +219,10 @@ public abstract class PictureUploadTemplate {
      */
     protected abstract void processFile(Object inputSource, File file) throws Exception;
 
-
     /**
-     * 封装返回结果
-     *
-     * @param originalFilename   原始文件名
-     * @param compressedCiObject 压缩后的对象
-     * @param thumbnailCiObject 缩略图对象
-     * @param imageInfo 图片信息
-     * @return
+     * 打开输入源的数据流（流式上传使用），需要给出准确的内容长度
      */
-    private UploadPictureResult buildResult(String originalFilename, CIObject compressedCiObject, CIObject thumbnailCiObject,
-                                            ImageInfo imageInfo) {
-        // 计算宽高
-        int picWidth = compressedCiObject.getWidth();
-        int picHeight = compressedCiObject.getHeight();
-        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
-        // 封装返回结果
-        UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        // 设置压缩后的原图地址
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
-        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
-        uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
-        uploadPictureResult.setPicWidth(picWidth);
-        uploadPictureResult.setPicHeight(picHeight);
-        uploadPictureResult.setPicScale(picScale);
-        uploadPictureResult.setPicFormat(compressedCiObject.getFormat());
-        uploadPictureResult.setPicColor(imageInfo.getAve());
-        // 设置缩略图地址
-        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
-        // 返回可访问的地址
-        return uploadPictureResult;
-    }
-
-    /**
-     * 封装返回结果
-     *
-     * @param originalFilename
-     * @param file
-     * @param uploadPath
-     * @param imageInfo        对象存储返回的图片信息
-     * @return
-     */
-    private UploadPictureResult buildResult(String originalFilename, File file, String uploadPath, ImageInfo imageInfo) {
-        // 计算宽高
-        int picWidth = imageInfo.getWidth();
-        int picHeight = imageInfo.getHeight();
-        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
-        // 封装返回结果
-        UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
-        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
-        uploadPictureResult.setPicSize(FileUtil.size(file));
-        uploadPictureResult.setPicWidth(picWidth);
-        uploadPictureResult.setPicHeight(picHeight);
-        uploadPictureResult.setPicScale(picScale);
-        uploadPictureResult.setPicFormat(imageInfo.getFormat());
-        uploadPictureResult.setPicColor(imageInfo.getAve());
-        // 返回可访问的地址
-        return uploadPictureResult;
-    }
+    protected abstract PictureUploadSource openSource(Object inputSource) throws Exception;
 
 
     /**
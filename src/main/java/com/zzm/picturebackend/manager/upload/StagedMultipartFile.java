@@ -0,0 +1,71 @@
+package com.zzm.picturebackend.manager.upload;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * 暂存在内存中的上传文件
+ * 请求结束后容器会清理原始的 MultipartFile，异步上传前需要先把内容暂存下来
+ */
+public class StagedMultipartFile implements MultipartFile {
+
+    private final String name;
+
+    private final String originalFilename;
+
+    private final String contentType;
+
+    private final byte[] content;
+
+    public StagedMultipartFile(MultipartFile multipartFile) throws IOException {
+        this.name = multipartFile.getName();
+        this.originalFilename = multipartFile.getOriginalFilename();
+        this.contentType = multipartFile.getContentType();
+        this.content = multipartFile.getBytes();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return content.length == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return content.length;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return content;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.write(dest.toPath(), content);
+    }
+}
@@ -1,23 +1,43 @@
 package com.zzm.picturebackend.manager.upload;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpStatus;
-import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
 import com.zzm.picturebackend.exception.ThrowUtils;
+import com.zzm.picturebackend.manager.http.OutboundHttpClient;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.http.HttpResponse;
 import java.util.Arrays;
 import java.util.List;
 
 @Service
 public class UrlPictureUpload extends PictureUploadTemplate {
+
+    /**
+     * 监控中的集成方名称
+     */
+    private static final String INTEGRATION = "picture-fetch";
+
+    /**
+     * 允许的响应内容类型
+     */
+    private static final List<String> ALLOW_CONTENT_TYPES = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/webp",
+            "application/octet-stream");
+
+    @Resource
+    private OutboundHttpClient outboundHttpClient;
+
     /**
      * 验证图片URL的有效性
      * @param inputSource 输入源（图片URL字符串）
@@ -39,38 +59,7 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         ThrowUtils.throwIf(!(fileUrl.startsWith("http://") || fileUrl.startsWith("https://")),
                 ErrorCode.PARAMS_ERROR, "仅支持 HTTP 或 HTTPS 协议的文件地址");
 
-        // 发送HEAD请求验证文件存在及属性
-        HttpResponse httpResponse = null;
-        try {
-            httpResponse = HttpUtil.createRequest(Method.HEAD, fileUrl).execute();
-            if (httpResponse.getStatus() != HttpStatus.HTTP_OK) {
-                return;
-            }
-
-            // 验证内容类型
-            String contentType = httpResponse.header("Content-Type");
-            if (StrUtil.isNotBlank(contentType)) {
-                final List<String> ALLOW_CONTENT_TYPES = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/webp");
-                ThrowUtils.throwIf(!ALLOW_CONTENT_TYPES.contains(contentType.toLowerCase()),
-                        ErrorCode.PARAMS_ERROR, "文件类型错误");
-            }
-
-            // 验证文件大小
-            String contentLengthStr = httpResponse.header("Content-Length");
-            if (StrUtil.isNotBlank(contentLengthStr)) {
-                try {
-                    long contentLength = Long.parseLong(contentLengthStr);
-                    final long TWO_MB = 2 * 1024 * 1024L;
-                    ThrowUtils.throwIf(contentLength > TWO_MB, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
-                } catch (NumberFormatException e) {
-                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小格式错误");
-                }
-            }
-        } finally {
-            if (httpResponse != null) {
-                httpResponse.close();
-            }
-        }
+        // 文件是否存在、类型和大小在下载时校验，不再单独发送 HEAD 请求
     }
 
     /**
@@ -95,8 +84,59 @@ public class UrlPictureUpload extends PictureUploadTemplate {
      */
     @Override
     protected void processFile(Object inputSource, File file) throws Exception {
+        // 与流式上传使用同一个 GET 请求，边下载边校验文件头和大小
+        try (PictureUploadSource uploadSource = openSource(inputSource)) {
+            FileUtil.writeFromStream(PictureInputStream.wrap(uploadSource.getInputStream(), MAX_PICTURE_SIZE), file);
+        }
+    }
+
+    /**
+     * 打开远程图片的响应体（只发送一次 GET 请求）
+     * 先根据响应头校验状态码、内容类型和声明的大小；响应头带有 Content-Length 时直接流式转发，
+     * 否则在内存中缓冲（不超过图片大小上限）以得到准确长度。文件头和实际读取的字节数由 PictureInputStream 校验
+     * @param inputSource 输入源（图片URL字符串）
+     * @return 流式上传输入源
+     */
+    @Override
+    protected PictureUploadSource openSource(Object inputSource) throws Exception {
         String fileUrl = (String) inputSource;
-        HttpUtil.downloadFile(fileUrl, file);
+        // 不接受压缩编码，保证 Content-Length 与实际内容长度一致
+        HttpResponse<InputStream> httpResponse = outboundHttpClient.getStream(INTEGRATION,
+                outboundHttpClient.newRequest(fileUrl).header("Accept-Encoding", "identity"));
+        InputStream bodyStream = httpResponse.body();
+        try {
+            ThrowUtils.throwIf(httpResponse.statusCode() != HttpStatus.HTTP_OK, ErrorCode.PARAMS_ERROR, "文件下载失败");
+            // 验证内容类型（服务器未声明或声明为二进制流时以文件头为准）
+            String contentType = StrUtil.subBefore(httpResponse.headers().firstValue("Content-Type").orElse(""), ";", false).trim().toLowerCase();
+            ThrowUtils.throwIf(StrUtil.isNotEmpty(contentType) && !ALLOW_CONTENT_TYPES.contains(contentType),
+                    ErrorCode.PARAMS_ERROR, "文件类型错误");
+            long contentLength = httpResponse.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (contentLength >= 0) {
+                ThrowUtils.throwIf(contentLength > MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+                return new PictureUploadSource(bodyStream, contentLength, null);
+            }
+            byte[] bytes = readAtMost(bodyStream, MAX_PICTURE_SIZE);
+            bodyStream.close();
+            return new PictureUploadSource(new ByteArrayInputStream(bytes), bytes.length, null);
+        } catch (Exception e) {
+            bodyStream.close();
+            throw e;
+        }
     }
-}
 
+    /**
+     * 读取全部内容，超过上限立即中断
+     */
+    private static byte[] readAtMost(InputStream inputStream, long maxSize) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, n);
+            if (outputStream.size() > maxSize) {
+                throw new PictureInputStream.SizeExceededException(maxSize);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,12 @@
+package com.zzm.picturebackend.mapper;
+
+import com.zzm.picturebackend.model.entity.PictureTag;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【picture_tag(图片标签)】的数据库操作Mapper
+* @Entity com.zzm.picturebackend.model.entity.PictureTag
+*/
+public interface PictureTagMapper extends BaseMapper<PictureTag> {
+
+}
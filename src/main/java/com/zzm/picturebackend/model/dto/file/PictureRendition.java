@@ -0,0 +1,39 @@
+package com.zzm.picturebackend.model.dto.file;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 图片的一个缩放版本（响应式图片 srcset 的一项）
+ */
+@Data
+public class PictureRendition implements Serializable {
+
+    /**
+     * 访问地址
+     */
+    private String url;
+
+    /**
+     * 宽度
+     */
+    private Integer width;
+
+    /**
+     * 高度
+     */
+    private Integer height;
+
+    /**
+     * 格式
+     */
+    private String format;
+
+    /**
+     * 文件体积
+     */
+    private Long size;
+
+    private static final long serialVersionUID = 1L;
+}
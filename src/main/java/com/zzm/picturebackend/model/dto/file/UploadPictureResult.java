@@ -2,6 +2,8 @@ package com.zzm.picturebackend.model.dto.file;
 
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * 上传图片的结果
  */
@@ -53,5 +55,29 @@ public class UploadPictureResult {
      */
     private String picColor;
 
+    /**
+     * 原始文件内容的 SHA-256 摘要（十六进制）
+     */
+    private String contentHash;
+
+    /**
+     * 缩放版本列表（按宽度升序）
+     */
+    private List<PictureRendition> renditions;
+
+    /**
+     * 调色板（按占比降序）
+     */
+    private List<PaletteColor> palette;
+
+    /**
+     * 感知哈希 pHash
+     */
+    private Long phash;
+
+    /**
+     * 差异哈希 dHash
+     */
+    private Long dhash;
 
 }
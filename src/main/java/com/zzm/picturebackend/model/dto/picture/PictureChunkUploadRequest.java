@@ -0,0 +1,29 @@
+package com.zzm.picturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分片上传请求（上传分片 / 查询进度 / 完成 / 终止）
+ */
+@Data
+public class PictureChunkUploadRequest implements Serializable {
+
+    /**
+     * 分片上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分片序号（从 1 开始，上传分片时使用）
+     */
+    private Integer partNumber;
+
+    /**
+     * 图片名称（完成上传时使用）
+     */
+    private String picName;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,64 @@
+package com.zzm.picturebackend.model.dto.picture;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 图片列表游标
+ * 记录上一页最后一条数据的排序字段、排序值和 id，对前端是不透明的字符串
+ */
+@Data
+@AllArgsConstructor
+public class PictureCursor {
+
+    /**
+     * 排序字段
+     */
+    private String sortField;
+
+    /**
+     * 排序字段的值（时间类型为毫秒时间戳）
+     */
+    private long sortValue;
+
+    /**
+     * 图片 id
+     */
+    private long id;
+
+    /**
+     * 编码为不透明字符串
+     */
+    public String encode() {
+        String raw = String.format("%s:%d:%d", sortField, sortValue, id);
+        return Base64.encodeUrlSafe(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 从字符串解码游标
+     *
+     * @param cursor 前端回传的游标
+     * @return 游标对象
+     */
+    public static PictureCursor decode(String cursor) {
+        try {
+            String raw = Base64.decodeStr(cursor, StandardCharsets.UTF_8);
+            List<String> parts = StrUtil.split(raw, ':');
+            if (parts.size() != 3) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+            }
+            return new PictureCursor(parts.get(0), Long.parseLong(parts.get(1)), Long.parseLong(parts.get(2)));
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+        }
+    }
+}
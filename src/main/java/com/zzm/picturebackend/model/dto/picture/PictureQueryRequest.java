@@ -112,5 +112,15 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private Date endEditTime;
 
+    /**
+     * 游标（游标分页时使用，首页不传，之后回传上一页返回的 nextCursor）
+     */
+    private String cursor;
+
+    /**
+     * 是否查询总数（无限滚动场景可传 false，跳过 COUNT 查询，通过 hasMore 判断是否有下一页）
+     */
+    private boolean searchCount = true;
+
     private static final long serialVersionUID = 1L;  
 }
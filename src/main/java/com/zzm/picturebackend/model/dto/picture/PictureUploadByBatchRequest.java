@@ -24,6 +24,11 @@ public class PictureUploadByBatchRequest {
      */
     private Integer count = 10;
 
+    /**
+     * 近似重复图片的处理策略：allow 照常入库，reuse / reject 跳过重复图片（不计入抓取数量），为空时使用配置的默认策略
+     */
+    private String duplicatePolicy;
+
     /*private Integer page; // 新增分页参数
 
     private Integer offset; // 新增偏移量参数*/
@@ -25,5 +25,10 @@ public class PictureUploadRequest implements Serializable {
      */
     private Long spaceId;
 
+    /**
+     * 近似重复图片的处理策略：allow / reuse / reject，为空时使用配置的默认策略
+     */
+    private String duplicatePolicy;
+
     private static final long serialVersionUID = 1L;  
 }
@@ -17,5 +17,10 @@ public class SearchPictureByColorRequest implements Serializable {
      */
     private Long spaceId;
 
+    /**
+     * 颜色距离算法：rgb / ciede2000，为空时使用 ciede2000
+     */
+    private String metric;
+
     private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,33 @@
+package com.zzm.picturebackend.model.dto.picture;
+
+import com.zzm.picturebackend.common.PageRequest;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 按调色板搜索图片请求
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class SearchPictureByPaletteRequest extends PageRequest implements Serializable {
+
+    /**
+     * 颜色列表（1~5 个，如 #3A6EA5、0xF2A541）
+     */
+    private List<String> colors;
+
+    /**
+     * 各颜色的占比，与 colors 一一对应；为空时平均分配
+     */
+    private List<Double> weights;
+
+    /**
+     * 空间 id，为空时搜索公共图库
+     */
+    private Long spaceId;
+
+    private static final long serialVersionUID = 1L;
+}
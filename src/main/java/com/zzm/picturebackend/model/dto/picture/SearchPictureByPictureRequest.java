@@ -15,5 +15,15 @@ public class SearchPictureByPictureRequest implements Serializable {
      */
     private Long pictureId;
 
+    /**
+     * 站内搜索的空间 id，为空时搜索公共图库
+     */
+    private Long spaceId;
+
+    /**
+     * 站内搜索的最大汉明距离（pHash），默认 10，最大 16
+     */
+    private Integer maxDistance;
+
     private static final long serialVersionUID = 1L;
 }
@@ -119,6 +119,31 @@ public class Picture implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 原始文件内容的 SHA-256 摘要，用于上传去重
+     */
+    private String contentHash;
+
+    /**
+     * 缩放版本列表（JSON 数组）
+     */
+    private String renditions;
+
+    /**
+     * 调色板（"RRGGBB:占比百分数" 逗号拼接，按占比降序）
+     */
+    private String palette;
+
+    /**
+     * 感知哈希 pHash（64 位），用于以图搜图
+     */
+    private Long phash;
+
+    /**
+     * 差异哈希 dHash（64 位），pHash 距离相同时辅助排序
+     */
+    private Long dhash;
+
 
 
     /**
@@ -0,0 +1,56 @@
+package com.zzm.picturebackend.model.enums;
+
+import cn.hutool.core.util.StrUtil;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.exception.ThrowUtils;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 以色搜图的颜色距离算法
+ */
+@Getter
+public enum ColorMetricEnum {
+    /**
+     * RGB 欧氏距离，计算最快，但与人眼感知差异较大
+     */
+    RGB("RGB 欧氏距离", "rgb"),
+    /**
+     * CIELAB 空间的 CIEDE2000 色差，接近人眼感知
+     */
+    CIEDE2000("CIEDE2000 色差", "ciede2000");
+
+    private final String text;
+
+    private final String value;
+
+    private static final Map<String, ColorMetricEnum> COLOR_METRIC_ENUM_MAP =
+            Arrays.stream(ColorMetricEnum.values())
+                    .collect(Collectors.toMap(ColorMetricEnum::getValue, e -> e));
+
+    ColorMetricEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据值获取枚举，为空时默认使用 CIEDE2000
+     *
+     * @param value 算法值
+     * @return 对应的枚举实例
+     * @throws BusinessException 如果值无效
+     */
+    public static ColorMetricEnum getEnumByValue(String value) {
+        if (StrUtil.isBlank(value)) {
+            return CIEDE2000;
+        }
+        ColorMetricEnum colorMetricEnum = COLOR_METRIC_ENUM_MAP.get(value);
+        ThrowUtils.throwIf(Objects.isNull(colorMetricEnum), new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的颜色距离算法"));
+        return colorMetricEnum;
+    }
+}
@@ -0,0 +1,56 @@
+package com.zzm.picturebackend.model.enums;
+
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.exception.ThrowUtils;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 上传近似重复图片时的处理策略
+ */
+@Getter
+public enum PictureDuplicatePolicyEnum {
+    /**
+     * 不检测，照常入库
+     */
+    ALLOW("允许", "allow"),
+    /**
+     * 丢弃本次上传，返回已有图片（不占用空间额度）
+     */
+    REUSE("返回已有图片", "reuse"),
+    /**
+     * 拒绝上传
+     */
+    REJECT("拒绝上传", "reject");
+
+    private final String text;
+
+    private final String value;
+
+    private static final Map<String, PictureDuplicatePolicyEnum> DUPLICATE_POLICY_ENUM_MAP =
+            Arrays.stream(PictureDuplicatePolicyEnum.values())
+                    .collect(Collectors.toMap(PictureDuplicatePolicyEnum::getValue, e -> e));
+
+    PictureDuplicatePolicyEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据值获取枚举
+     *
+     * @param value 策略值
+     * @return 对应的枚举实例
+     * @throws BusinessException 如果值无效
+     */
+    public static PictureDuplicatePolicyEnum getEnumByValue(String value) {
+        PictureDuplicatePolicyEnum duplicatePolicyEnum = value == null ? null : DUPLICATE_POLICY_ENUM_MAP.get(value);
+        ThrowUtils.throwIf(Objects.isNull(duplicatePolicyEnum), new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的重复图片处理策略"));
+        return duplicatePolicyEnum;
+    }
+}
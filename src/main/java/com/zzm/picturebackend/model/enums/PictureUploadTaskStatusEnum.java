@@ -0,0 +1,24 @@
+package com.zzm.picturebackend.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 异步上传任务状态枚举
+ */
+@Getter
+public enum PictureUploadTaskStatusEnum {
+
+    WAITING("排队中", 0),
+    RUNNING("上传中", 1),
+    SUCCEED("成功", 2),
+    FAILED("失败", 3);
+
+    private final String text;
+
+    private final int value;
+
+    PictureUploadTaskStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+}
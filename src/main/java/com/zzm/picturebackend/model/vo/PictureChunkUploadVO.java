@@ -0,0 +1,48 @@
+package com.zzm.picturebackend.model.vo;
+
+import com.zzm.picturebackend.manager.upload.PictureChunkSession;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分片上传进度视图
+ */
+@Data
+public class PictureChunkUploadVO implements Serializable {
+
+    /**
+     * 分片上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分片大小（字节，最后一片可以更小）
+     */
+    private Long partSize;
+
+    /**
+     * 分片数量
+     */
+    private Integer partCount;
+
+    /**
+     * 已上传的分片序号，续传时跳过
+     */
+    private List<Integer> uploadedParts;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 会话转视图
+     */
+    public static PictureChunkUploadVO of(PictureChunkSession pictureChunkSession, List<Integer> uploadedParts) {
+        PictureChunkUploadVO pictureChunkUploadVO = new PictureChunkUploadVO();
+        pictureChunkUploadVO.setUploadId(pictureChunkSession.getUploadId());
+        pictureChunkUploadVO.setPartSize(pictureChunkSession.getPartSize());
+        pictureChunkUploadVO.setPartCount(pictureChunkSession.getPartCount());
+        pictureChunkUploadVO.setUploadedParts(uploadedParts);
+        return pictureChunkUploadVO;
+    }
+}
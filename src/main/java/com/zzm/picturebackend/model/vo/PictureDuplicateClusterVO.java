@@ -0,0 +1,30 @@
+package com.zzm.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 近似重复图片簇
+ */
+@Data
+public class PictureDuplicateClusterVO implements Serializable {
+
+    /**
+     * 空间 id，公共图库为空
+     */
+    private Long spaceId;
+
+    /**
+     * 簇内图片 id，从小到大（第一张为最早上传的图片）
+     */
+    private List<Long> pictureIds;
+
+    /**
+     * 除最早一张外其余图片的总大小（字节），即清理后可节省的空间
+     */
+    private Long reclaimableSize;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,56 @@
+package com.zzm.picturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 近似重复图片扫描报告
+ */
+@Data
+public class PictureDuplicateReportVO implements Serializable {
+
+    /**
+     * 是否正在扫描
+     */
+    private Boolean running;
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 结束时间，扫描中为空
+     */
+    private Date finishTime;
+
+    /**
+     * 已扫描的图片数
+     */
+    private Integer scannedCount;
+
+    /**
+     * 重复簇数量
+     */
+    private Integer clusterCount;
+
+    /**
+     * 重复图片数（不含每个簇中最早的一张）
+     */
+    private Integer duplicateCount;
+
+    /**
+     * 清理全部重复图片可节省的空间（字节）
+     */
+    private Long reclaimableSize;
+
+    /**
+     * 重复簇，按图片数从多到少，最多返回前 200 个
+     */
+    private List<PictureDuplicateClusterVO> clusters;
+
+    private static final long serialVersionUID = 1L;
+}
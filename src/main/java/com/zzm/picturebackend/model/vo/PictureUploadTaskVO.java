@@ -0,0 +1,52 @@
+package com.zzm.picturebackend.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 异步上传任务视图（同时作为 Redis 中保存的任务状态）
+ */
+@Data
+public class PictureUploadTaskVO implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private String taskId;
+
+    /**
+     * 任务状态：0-排队中; 1-上传中; 2-成功; 3-失败
+     */
+    private Integer status;
+
+    /**
+     * 上传成功后的图片
+     */
+    private PictureVO picture;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 提交时间
+     */
+    private Date createTime;
+
+    /**
+     * 结束时间
+     */
+    private Date finishTime;
+
+    /**
+     * 提交任务的用户 id（仅用于权限校验）
+     */
+    @JsonIgnore
+    private Long userId;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -1,13 +1,20 @@
 package com.zzm.picturebackend.model.vo;
 
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.zzm.picturebackend.manager.image.PicturePalettes;
+import com.zzm.picturebackend.model.dto.file.PaletteColor;
+import com.zzm.picturebackend.model.dto.file.PictureRendition;
 import com.zzm.picturebackend.model.entity.Picture;
 import lombok.Data;
 import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class PictureVO implements Serializable {
@@ -101,6 +108,20 @@ public class PictureVO implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 缩放版本列表（按宽度升序）
+     */
+    private List<PictureRendition> renditions;
+
+    /**
+     * 响应式图片 srcset，格式 -> "url 宽度w, ..."（含压缩图），前端按格式生成 picture/source
+     */
+    private Map<String, String> srcset;
+
+    /**
+     * 调色板（按占比降序）
+     */
+    private List<PaletteColor> palette;
 
     /**  
      * 创建用户信息  
@@ -120,6 +141,10 @@ public class PictureVO implements Serializable {
         BeanUtils.copyProperties(pictureVO, picture);
         // 类型不同，需要转换  
         picture.setTags(JSONUtil.toJsonStr(pictureVO.getTags()));
+        if (pictureVO.getRenditions() != null) {
+            picture.setRenditions(JSONUtil.toJsonStr(pictureVO.getRenditions()));
+        }
+        picture.setPalette(PicturePalettes.encode(pictureVO.getPalette()));
         return picture;  
     }  
   
@@ -134,6 +159,40 @@ public class PictureVO implements Serializable {
         BeanUtils.copyProperties(picture, pictureVO);  
         // 类型不同，需要转换  
         pictureVO.setTags(JSONUtil.toList(picture.getTags(), String.class));  
+        if (StrUtil.isNotBlank(picture.getRenditions())) {
+            pictureVO.setRenditions(JSONUtil.toList(picture.getRenditions(), PictureRendition.class));
+        }
+        pictureVO.setSrcset(buildSrcset(pictureVO));
+        if (StrUtil.isNotBlank(picture.getPalette())) {
+            pictureVO.setPalette(PicturePalettes.decode(picture.getPalette()));
+        }
         return pictureVO;  
-    }  
+    }
+
+    /**
+     * 按格式生成 srcset：缩放版本加上同格式的压缩图
+     */
+    public static Map<String, String> buildSrcset(PictureVO pictureVO) {
+        if (CollUtil.isEmpty(pictureVO.getRenditions())) {
+            return null;
+        }
+        Map<String, StringBuilder> builders = new LinkedHashMap<>();
+        for (PictureRendition pictureRendition : pictureVO.getRenditions()) {
+            appendCandidate(builders, pictureRendition.getFormat(), pictureRendition.getUrl(), pictureRendition.getWidth());
+        }
+        if (pictureVO.getPicFormat() != null && builders.containsKey(pictureVO.getPicFormat()) && pictureVO.getPicWidth() != null) {
+            appendCandidate(builders, pictureVO.getPicFormat(), pictureVO.getUrl(), pictureVO.getPicWidth());
+        }
+        Map<String, String> srcset = new LinkedHashMap<>();
+        builders.forEach((format, builder) -> srcset.put(format, builder.toString()));
+        return srcset;
+    }
+
+    private static void appendCandidate(Map<String, StringBuilder> builders, String format, String url, Integer width) {
+        StringBuilder builder = builders.computeIfAbsent(format, key -> new StringBuilder());
+        if (builder.length() > 0) {
+            builder.append(", ");
+        }
+        builder.append(url).append(' ').append(width).append('w');
+    }
 }
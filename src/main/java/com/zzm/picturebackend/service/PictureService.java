@@ -3,10 +3,13 @@ package com.zzm.picturebackend.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.zzm.picturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.zzm.picturebackend.common.ScrollPage;
 import com.zzm.picturebackend.model.dto.picture.*;
 import com.zzm.picturebackend.model.entity.Picture;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.zzm.picturebackend.model.entity.User;
+import com.zzm.picturebackend.model.vo.PictureChunkUploadVO;
+import com.zzm.picturebackend.model.vo.PictureUploadTaskVO;
 import com.zzm.picturebackend.model.vo.PictureVO;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -39,6 +42,63 @@ public interface PictureService extends IService<Picture> {
                             PictureUploadRequest pictureUploadRequest,
                             User loginUser);
 
+    /**
+     * 提交异步上传任务
+     * 在请求线程中完成权限校验并暂存输入源，随后由上传线程池执行上传和入库
+     * @param inputSource 文件输入源（MultipartFile 或图片 URL）
+     * @param pictureUploadRequest 图片上传请求对象
+     * @param loginUser 当前登录的用户对象
+     * @return 上传任务
+     */
+    PictureUploadTaskVO submitPictureUploadTask(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser);
+
+    /**
+     * 查询异步上传任务
+     * @param taskId 任务 id
+     * @param loginUser 当前登录的用户对象
+     * @return 上传任务
+     */
+    PictureUploadTaskVO getPictureUploadTask(String taskId, User loginUser);
+
+    /**
+     * 初始化分片上传
+     * @param pictureChunkUploadInitRequest 文件信息及目标空间
+     * @param loginUser 当前登录的用户对象
+     * @return 分片上传进度
+     */
+    PictureChunkUploadVO initPictureChunkUpload(PictureChunkUploadInitRequest pictureChunkUploadInitRequest, User loginUser);
+
+    /**
+     * 上传一个分片（各分片可并行上传）
+     * @param pictureChunkUploadRequest 分片上传 id 及分片序号
+     * @param multipartFile 分片数据
+     * @param loginUser 当前登录的用户对象
+     */
+    void uploadPictureChunk(PictureChunkUploadRequest pictureChunkUploadRequest, MultipartFile multipartFile, User loginUser);
+
+    /**
+     * 查询分片上传进度，用于断点续传
+     * @param uploadId 分片上传 id
+     * @param loginUser 当前登录的用户对象
+     * @return 分片上传进度
+     */
+    PictureChunkUploadVO getPictureChunkUpload(String uploadId, User loginUser);
+
+    /**
+     * 合并分片，完成图片上传
+     * @param pictureChunkUploadRequest 分片上传 id 及图片名称
+     * @param loginUser 当前登录的用户对象
+     * @return 包含上传图片信息的 PictureVO 对象
+     */
+    PictureVO completePictureChunkUpload(PictureChunkUploadRequest pictureChunkUploadRequest, User loginUser);
+
+    /**
+     * 终止分片上传
+     * @param uploadId 分片上传 id
+     * @param loginUser 当前登录的用户对象
+     */
+    void abortPictureChunkUpload(String uploadId, User loginUser);
+
     /**
      * 获取图片的 VO 对象
      * 该方法将图片实体对象转换为前端展示的 VO 对象
@@ -57,6 +117,24 @@ public interface PictureService extends IService<Picture> {
      */
     Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request);
 
+    /**
+     * 分页查询图片
+     * searchCount 为 false 时不查询总数，多查一条判断是否有下一页，返回 {@link ScrollPage}；
+     * 仅按空间、审核状态、分类过滤时，总数走缓存
+     * @param pictureQueryRequest 图片查询请求对象
+     * @return 图片分页对象
+     */
+    Page<Picture> pagePicture(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 游标分页获取图片列表（封装类）
+     * 按 (排序字段, id) 定位上一页的最后一条记录，不使用 OFFSET，也不查询总数
+     * @param pictureQueryRequest 图片查询请求对象，cursor 为空时查询第一页
+     * @param request HTTP 请求对象
+     * @return 滚动分页结果，包含下一页游标
+     */
+    ScrollPage<PictureVO> listPictureVOByCursor(PictureQueryRequest pictureQueryRequest, HttpServletRequest request);
+
     /**
      * 获取查询条件包装器
      * 该方法根据图片查询请求对象生成 MyBatis-Plus 的查询条件包装器
@@ -123,10 +201,26 @@ public interface PictureService extends IService<Picture> {
      * 根据颜色搜索图片
      * @param spaceId
      * @param picColor
+     * @param metric 颜色距离算法，为空时使用 CIEDE2000
+     * @param loginUser
+     * @return
+     */
+    List<PictureVO> searchPictureByColor(Long spaceId, String picColor, String metric, User loginUser);
+
+    /**
+     * 按调色板搜索图片（按相似度排序分页）
+     * @param searchPictureByPaletteRequest
+     * @return
+     */
+    Page<Picture> searchPictureByPalette(SearchPictureByPaletteRequest searchPictureByPaletteRequest);
+
+    /**
+     * 在站内按感知哈希搜索相似图片
+     * @param searchPictureByPictureRequest
      * @param loginUser
      * @return
      */
-    List<PictureVO> searchPictureByColor(Long spaceId, String picColor, User loginUser);
+    List<PictureVO> searchSimilarPicture(SearchPictureByPictureRequest searchPictureByPictureRequest, User loginUser);
 
     /**
      * 批量编辑图片
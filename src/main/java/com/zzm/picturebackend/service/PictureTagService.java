@@ -0,0 +1,36 @@
+package com.zzm.picturebackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.zzm.picturebackend.model.entity.PictureTag;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+* @description 针对表【picture_tag(图片标签)】的数据库操作Service
+*/
+public interface PictureTagService extends IService<PictureTag> {
+
+    /**
+     * 同步图片的标签索引（先删后插）
+     * @param pictureId 图片 id
+     * @param spaceId 图片所属空间 id
+     * @param tagsJson 图片的标签 JSON 数组，为空表示清空标签
+     */
+    void syncPictureTags(Long pictureId, Long spaceId, String tagsJson);
+
+    /**
+     * 删除图片的标签索引
+     * @param pictureId 图片 id
+     */
+    void removeByPictureId(Long pictureId);
+
+    /**
+     * 统计标签使用次数
+     * @param queryAll 是否统计全部图片
+     * @param queryPublic 是否只统计公共图库
+     * @param spaceId 空间 id
+     * @return 标签 -> 使用次数
+     */
+    Map<String, Long> countTags(boolean queryAll, boolean queryPublic, Long spaceId);
+}
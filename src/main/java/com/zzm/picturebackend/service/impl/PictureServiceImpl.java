@@ -4,6 +4,7 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
@@ -12,49 +13,75 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zzm.picturebackend.api.aliyunai.AliYunAiApi;
 import com.zzm.picturebackend.api.aliyunai.model.CreateOutPaintingTaskRequest;
 import com.zzm.picturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.zzm.picturebackend.common.ScrollPage;
+import com.zzm.picturebackend.config.PictureUploadConfig;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
 import com.zzm.picturebackend.exception.ThrowUtils;
-import com.zzm.picturebackend.manager.CosManager;
 import com.zzm.picturebackend.manager.FileManager;
+import com.zzm.picturebackend.manager.cache.PictureCountCacheManager;
+import com.zzm.picturebackend.manager.http.OutboundHttpClient;
+import com.zzm.picturebackend.manager.cache.PictureListCacheManager;
+import com.zzm.picturebackend.manager.cache.UserCacheManager;
+import com.zzm.picturebackend.manager.image.PicturePalettes;
+import com.zzm.picturebackend.manager.search.PictureColorIndex;
+import com.zzm.picturebackend.manager.search.PictureHashIndex;
+import com.zzm.picturebackend.manager.search.PicturePaletteIndex;
+import com.zzm.picturebackend.manager.search.PictureSearchIndex;
+import com.zzm.picturebackend.manager.storage.ObjectStorage;
+import com.zzm.picturebackend.manager.upload.ChunkPictureUpload;
+import com.zzm.picturebackend.manager.upload.PictureBatchUploadManager;
 import com.zzm.picturebackend.manager.upload.FilePictureUpload;
+import com.zzm.picturebackend.manager.upload.PictureChunkSession;
+import com.zzm.picturebackend.manager.upload.PictureDedupManager;
+import com.zzm.picturebackend.manager.upload.PictureDuplicateDetector;
+import com.zzm.picturebackend.manager.upload.PictureUploadTaskManager;
+import com.zzm.picturebackend.manager.upload.StagedMultipartFile;
 import com.zzm.picturebackend.manager.upload.PictureUploadTemplate;
 import com.zzm.picturebackend.manager.upload.UrlPictureUpload;
 import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.dto.file.PictureRendition;
 import com.zzm.picturebackend.model.dto.file.UploadPictureResult;
 import com.zzm.picturebackend.model.dto.picture.*;
 import com.zzm.picturebackend.model.entity.Picture;
 import com.zzm.picturebackend.model.entity.Space;
 import com.zzm.picturebackend.model.entity.User;
+import com.zzm.picturebackend.model.enums.ColorMetricEnum;
+import com.zzm.picturebackend.model.enums.PictureDuplicatePolicyEnum;
 import com.zzm.picturebackend.model.enums.PictureReviewStatusEnum;
+import com.zzm.picturebackend.model.vo.PictureChunkUploadVO;
+import com.zzm.picturebackend.model.vo.PictureUploadTaskVO;
 import com.zzm.picturebackend.model.vo.PictureVO;
 import com.zzm.picturebackend.model.vo.UserVO;
 import com.zzm.picturebackend.service.PictureService;
+import com.zzm.picturebackend.service.PictureTagService;
 import com.zzm.picturebackend.service.SpaceService;
 import com.zzm.picturebackend.service.UserService;
-import com.zzm.picturebackend.utils.ColorSimilarUtils;
-import com.zzm.picturebackend.utils.ColorTransformUtils;
+import com.zzm.picturebackend.utils.ColorMetricUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.awt.*;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * @author zhou
@@ -79,8 +106,29 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
 
     @Resource
     private UrlPictureUpload urlPictureUpload;
-    @Autowired
-    private CosManager cosManager;
+
+    @Resource
+    private ChunkPictureUpload chunkPictureUpload;
+
+    @Resource
+    private PictureDedupManager pictureDedupManager;
+
+    @Resource
+    private PictureDuplicateDetector pictureDuplicateDetector;
+
+    @Resource
+    private PictureUploadTaskManager pictureUploadTaskManager;
+
+    @Resource
+    private PictureBatchUploadManager pictureBatchUploadManager;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private OutboundHttpClient outboundHttpClient;
+    @Resource
+    private ObjectStorage objectStorage;
 
     @Resource
     private SpaceService spaceService;
@@ -90,6 +138,55 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
 
     @Resource
     private AliYunAiApi aliYunAiApi;
+
+    @Resource
+    private PictureCountCacheManager pictureCountCacheManager;
+
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+
+    @Resource
+    private UserCacheManager userCacheManager;
+
+    @Resource
+    private PictureSearchIndex pictureSearchIndex;
+
+    @Resource
+    private PictureColorIndex pictureColorIndex;
+
+    @Resource
+    private PicturePaletteIndex picturePaletteIndex;
+
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PictureTagService pictureTagService;
+
+    /**
+     * 搜索词最多匹配的候选图片数（按相关度取前 N 条）
+     */
+    private static final int SEARCH_CANDIDATE_LIMIT = 1000;
+
+    /**
+     * 站内以图搜图：默认 / 最大汉明距离和返回条数
+     */
+    private static final int DEFAULT_SIMILAR_DISTANCE = 10;
+
+    private static final int MAX_SIMILAR_DISTANCE = 16;
+
+    private static final int SIMILAR_SEARCH_LIMIT = 20;
+
+    /**
+     * 支持游标分页的排序字段（值非空且创建后不变；editTime 每次编辑都会变化，翻页时会跳过或重复数据，不支持）
+     */
+    private static final Set<String> CURSOR_SORT_FIELDS = new HashSet<>(Arrays.asList("id", "createTime"));
+
+    /**
+     * 游标分页和不查总数的分页的每页条数上限
+     */
+    private static final int CURSOR_MAX_PAGE_SIZE = 20;
+
     /**
      * 校验图片
      * 该方法用于校验图片对象的有效性
@@ -125,75 +222,115 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
      */
     @Override
     public PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
-        // 如果当前登录用户为空，抛出无权限异常
-        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR); // 校验空间是否存在
-
-        // 空间权限校验
-        Long spaceId = pictureUploadRequest.getSpaceId();
+        // 校验权限和空间额度，确定图片所属空间；分片上传合并前按声明的文件大小重新校验，初始化之后的其他上传可能已占用额度
+        Long spaceId = inputSource instanceof PictureChunkSession
+                ? checkUploadPermission(pictureUploadRequest, loginUser, Math.max(((PictureChunkSession) inputSource).getFileSize(), 1))
+                : checkUploadPermission(pictureUploadRequest, loginUser);
+        PictureDuplicatePolicyEnum duplicatePolicy = getDuplicatePolicy(pictureUploadRequest.getDuplicatePolicy());
+        // 上传图片，得到信息
+        String uploadPathPrefix = getUploadPathPrefix(spaceId, loginUser);
+        //根据 inputSourced 的类型区分上传方式
+        PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
+        if (inputSource instanceof String) {
+            pictureUploadTemplate = urlPictureUpload;
+        } else if (inputSource instanceof PictureChunkSession) {
+            pictureUploadTemplate = chunkPictureUpload;
+        }
+        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+        // 新增图片时检测近似重复（重新上传已有图片时不检测）
+        if (pictureUploadRequest.getId() == null && duplicatePolicy != PictureDuplicatePolicyEnum.ALLOW) {
+            List<Long> duplicateIdList = detectDuplicates(uploadPictureResult, spaceId);
+            if (!duplicateIdList.isEmpty()) {
+                if (duplicatePolicy == PictureDuplicatePolicyEnum.REJECT) {
+                    discardUpload(uploadPictureResult, spaceId);
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "已存在相似图片");
+                }
+                Picture duplicatePicture = findVisibleDuplicate(duplicateIdList, loginUser);
+                // 重复的图片都还不可见（如他人上传、待审核）时照常入库
+                if (duplicatePicture != null) {
+                    discardUpload(uploadPictureResult, spaceId);
+                    log.info("上传的图片与已有图片重复，返回已有图片, id = {}", duplicatePicture.getId());
+                    return PictureVO.objToVo(duplicatePicture);
+                }
+            }
+        }
+        return savePicture(uploadPictureResult, pictureUploadRequest, spaceId, loginUser);
+    }
 
-        if (spaceId != null) {
-            Space space = spaceService.getById(spaceId);
-            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+    /**
+     * 解析近似重复处理策略，为空时使用配置的默认策略
+     */
+    private PictureDuplicatePolicyEnum getDuplicatePolicy(String duplicatePolicy) {
+        return PictureDuplicatePolicyEnum.getEnumByValue(StrUtil.blankToDefault(duplicatePolicy, pictureUploadConfig.getDuplicatePolicy()));
+    }
 
-            // 必须空间创建人（管理员）才能上传
-            if (!loginUser.getId().equals(space.getUserId())) {
-                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
-            }
+    /**
+     * 在图片将要入库的空间内查找近似重复的图片
+     */
+    private List<Long> detectDuplicates(UploadPictureResult uploadPictureResult, Long spaceId) {
+        return pictureDuplicateDetector.detect(uploadPictureResult.getPhash(), uploadPictureResult.getDhash(),
+                uploadPictureResult.getPicWidth(), uploadPictureResult.getPicHeight(), spaceId, null);
+    }
 
-            // 校验额度
-            if (space.getTotalCount() >= space.getMaxCount()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+    /**
+     * 取第一张当前用户可见的重复图片：私有空间的图片（上传前已校验空间权限）、已过审或本人上传的公共图片
+     *
+     * @param duplicateIdList 重复图片 id，最相似的在前
+     * @param loginUser       当前登录用户
+     * @return 可返回给用户的已有图片，没有时返回 null
+     */
+    private Picture findVisibleDuplicate(List<Long> duplicateIdList, User loginUser) {
+        Map<Long, Picture> pictureMap = this.listByIds(duplicateIdList).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        for (Long duplicateId : duplicateIdList) {
+            Picture picture = pictureMap.get(duplicateId);
+            if (picture == null) {
+                continue;
             }
-            if (space.getTotalSize() >= space.getMaxSize()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
+            if (picture.getSpaceId() != null
+                    || Integer.valueOf(PictureReviewStatusEnum.PASS.getValue()).equals(picture.getReviewStatus())
+                    || picture.getUserId().equals(loginUser.getId())) {
+                return picture;
             }
         }
+        return null;
+    }
 
+    /**
+     * 丢弃没有入库的上传结果：对象存储文件没有被其他图片引用时删除（内容去重命中时文件是共享的，不会删除）
+     */
+    private void discardUpload(UploadPictureResult uploadPictureResult, Long spaceId) {
+        Picture uploadedPicture = new Picture();
+        uploadedPicture.setSpaceId(spaceId);
+        uploadedPicture.setUrl(uploadPictureResult.getUrl());
+        uploadedPicture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        uploadedPicture.setContentHash(uploadPictureResult.getContentHash());
+        if (uploadPictureResult.getRenditions() != null) {
+            uploadedPicture.setRenditions(JSONUtil.toJsonStr(uploadPictureResult.getRenditions()));
+        }
+        try {
+            this.clearPictureFile(uploadedPicture);
+        } catch (Exception e) {
+            log.warn("清理重复图片的上传文件失败, url = {}", uploadPictureResult.getUrl(), e);
+        }
+    }
 
+    /**
+     * 将上传结果入库，并更新空间额度、列表缓存和搜索索引
+     *
+     * @param uploadPictureResult  对象存储上传结果
+     * @param pictureUploadRequest 上传请求（图片 id、名称）
+     * @param spaceId              图片所属空间 id
+     * @param loginUser            当前登录用户
+     * @return 图片 VO
+     */
+    private PictureVO savePicture(UploadPictureResult uploadPictureResult, PictureUploadRequest pictureUploadRequest,
+                                  Long spaceId, User loginUser) {
         // 用于判断是新增还是更新图片
         Long pictureId = null;
         if (pictureUploadRequest != null) {
             pictureId = pictureUploadRequest.getId();
         }
-        // 如果是更新图片，需要校验图片是否存在
-        Picture oldPicture = null;
-        if (pictureId != null) {
-            oldPicture = this.getById(pictureId);
-            ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
-
-            // 仅本人或管理员可编辑
-            if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
-                throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
-            }
-
-            // 校验空间是否一致
-            // 没传 spaceId，则复用原有图片的 spaceId
-            if (spaceId == null) {
-                if (oldPicture.getSpaceId() != null) {
-                    spaceId = oldPicture.getSpaceId();
-                }
-            } else {
-                // 传了 spaceId，必须和原有图片一致
-                if (ObjUtil.notEqual(spaceId, oldPicture.getSpaceId())) {
-                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "空间 id 不一致");
-                }
-            }
-        }
-        // 上传图片，得到信息
-
-        // 按照用户 id 划分目录 => 按照空间划分目录
-        String uploadPathPrefix;
-        if (spaceId == null) {
-            uploadPathPrefix = String.format("public/%s", loginUser.getId());
-        } else {
-            uploadPathPrefix = String.format("space/%s", spaceId);
-        }
-        //根据 inputSourced 的类型区分上传方式
-        PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
-        if (inputSource instanceof String) {
-            pictureUploadTemplate = urlPictureUpload;
-        }
-        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
         // 构造要入库的图片信息
         Picture picture = new Picture();
         // 补充设置 spaceId
@@ -223,8 +360,17 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         picture.setUserId(loginUser.getId());
         // 设置图片的颜色
         //picture.setPicColor(uploadPictureResult.getPicColor());
-        //转换为标准颜色
-        picture.setPicColor(ColorTransformUtils.getStandardColor(uploadPictureResult.getPicColor()));
+        //转换为标准颜色（0xRRGGBB）
+        picture.setPicColor(ColorMetricUtils.normalizeColor(uploadPictureResult.getPicColor()));
+        // 内容摘要，用于上传去重
+        picture.setContentHash(uploadPictureResult.getContentHash());
+        // 缩放版本（重新上传时也要覆盖旧值，没有时写空数组）
+        picture.setRenditions(JSONUtil.toJsonStr(ObjUtil.defaultIfNull(uploadPictureResult.getRenditions(), Collections.emptyList())));
+        // 调色板
+        picture.setPalette(PicturePalettes.encode(uploadPictureResult.getPalette()));
+        // 感知哈希
+        picture.setPhash(uploadPictureResult.getPhash());
+        picture.setDhash(uploadPictureResult.getDhash());
 
         //补充审核参数
         this.fillReviewParams(picture, loginUser);
@@ -252,11 +398,203 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
 
             return picture;
         });
+        // 图片数量或审核状态发生变化，清理列表缓存
+        pictureListCacheManager.invalidate(finalSpaceId);
+        // 更新搜索索引
+        pictureSearchIndex.refresh(picture.getId());
+        // 更新颜色索引
+        pictureColorIndex.index(picture.getId(), finalSpaceId, picture.getPicColor());
+        picturePaletteIndex.refresh(picture.getId());
+        pictureHashIndex.refresh(picture.getId());
 
         // 返回图片的 VO 对象
         return PictureVO.objToVo(picture);
     }
 
+    /**
+     * 上传前校验：空间权限、空间额度、被更新的图片是否存在及其所属空间
+     *
+     * @param pictureUploadRequest 上传请求
+     * @param loginUser            当前登录用户
+     * @return 图片所属空间 id，为空表示公共图库
+     */
+    private Long checkUploadPermission(PictureUploadRequest pictureUploadRequest, User loginUser) {
+        // 文件大小未知，至少需要 1 字节的剩余空间
+        return checkUploadPermission(pictureUploadRequest, loginUser, 1);
+    }
+
+    /**
+     * 校验上传权限和空间额度
+     *
+     * @param pictureUploadRequest 上传请求
+     * @param loginUser            当前登录用户
+     * @param fileSize             待上传文件的大小（字节），空间剩余大小必须足够容纳
+     * @return 图片所属空间 id，为空表示公共图库
+     */
+    private Long checkUploadPermission(PictureUploadRequest pictureUploadRequest, User loginUser, long fileSize) {
+        // 如果当前登录用户为空，抛出无权限异常
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR); // 校验空间是否存在
+
+        // 空间权限校验
+        Long spaceId = pictureUploadRequest.getSpaceId();
+
+        if (spaceId != null) {
+            Space space = spaceService.getById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+
+            // 必须空间创建人（管理员）才能上传
+            if (!loginUser.getId().equals(space.getUserId())) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
+            }
+
+            // 校验额度
+            if (space.getTotalCount() >= space.getMaxCount()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+            }
+            if (space.getTotalSize() + fileSize > space.getMaxSize()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
+            }
+        }
+
+
+        // 用于判断是新增还是更新图片
+        Long pictureId = null;
+        if (pictureUploadRequest != null) {
+            pictureId = pictureUploadRequest.getId();
+        }
+        // 如果是更新图片，需要校验图片是否存在
+        Picture oldPicture = null;
+        if (pictureId != null) {
+            oldPicture = this.getById(pictureId);
+            ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+
+            // 仅本人或管理员可编辑
+            if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+            }
+
+            // 校验空间是否一致
+            // 没传 spaceId，则复用原有图片的 spaceId
+            if (spaceId == null) {
+                if (oldPicture.getSpaceId() != null) {
+                    spaceId = oldPicture.getSpaceId();
+                }
+            } else {
+                // 传了 spaceId，必须和原有图片一致
+                if (ObjUtil.notEqual(spaceId, oldPicture.getSpaceId())) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "空间 id 不一致");
+                }
+            }
+        }
+        return spaceId;
+    }
+
+    /**
+     * 按照用户 id 划分目录 => 按照空间划分目录
+     */
+    private static String getUploadPathPrefix(Long spaceId, User loginUser) {
+        if (spaceId == null) {
+            return String.format("public/%s", loginUser.getId());
+        }
+        return String.format("space/%s", spaceId);
+    }
+
+    @Override
+    public PictureUploadTaskVO submitPictureUploadTask(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
+        ThrowUtils.throwIf(inputSource == null || pictureUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        // 提前校验权限和额度，明显无法上传的请求直接返回错误，不占用上传线程
+        checkUploadPermission(pictureUploadRequest, loginUser);
+        // 请求结束后上传文件会被容器清理，先暂存到内存（图片不超过 2M）
+        Object stagedInputSource = inputSource;
+        if (inputSource instanceof MultipartFile) {
+            MultipartFile multipartFile = (MultipartFile) inputSource;
+            ThrowUtils.throwIf(multipartFile.getSize() > 2 * 1024 * 1024L, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+            try {
+                stagedInputSource = new StagedMultipartFile(multipartFile);
+            } catch (IOException e) {
+                log.error("暂存上传文件失败", e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+            }
+        }
+        PictureUploadTaskVO pictureUploadTaskVO = pictureUploadTaskManager.create(loginUser.getId());
+        Object finalInputSource = stagedInputSource;
+        pictureUploadTaskManager.submit(pictureUploadTaskVO, () -> this.uploadPicture(finalInputSource, pictureUploadRequest, loginUser));
+        return pictureUploadTaskVO;
+    }
+
+    @Override
+    public PictureUploadTaskVO getPictureUploadTask(String taskId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(taskId), ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        PictureUploadTaskVO pictureUploadTaskVO = pictureUploadTaskManager.get(taskId);
+        ThrowUtils.throwIf(!loginUser.getId().equals(pictureUploadTaskVO.getUserId()), ErrorCode.NO_AUTH_ERROR);
+        return pictureUploadTaskVO;
+    }
+
+    /**
+     * 初始化分片上传
+     * 初始化时即完成空间权限和额度校验，上传路径在此时确定
+     */
+    @Override
+    public PictureChunkUploadVO initPictureChunkUpload(PictureChunkUploadInitRequest pictureChunkUploadInitRequest, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(pictureChunkUploadInitRequest == null || StrUtil.isBlank(pictureChunkUploadInitRequest.getFileName())
+                || pictureChunkUploadInitRequest.getFileSize() == null, ErrorCode.PARAMS_ERROR);
+        PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+        pictureUploadRequest.setId(pictureChunkUploadInitRequest.getId());
+        pictureUploadRequest.setSpaceId(pictureChunkUploadInitRequest.getSpaceId());
+        // 分片上传的文件较大，按声明的文件大小校验剩余额度
+        Long spaceId = checkUploadPermission(pictureUploadRequest, loginUser, Math.max(pictureChunkUploadInitRequest.getFileSize(), 1));
+        PictureChunkSession pictureChunkSession = chunkPictureUpload.init(pictureChunkUploadInitRequest.getFileName(),
+                pictureChunkUploadInitRequest.getFileSize(), getUploadPathPrefix(spaceId, loginUser),
+                loginUser.getId(), spaceId, pictureChunkUploadInitRequest.getId());
+        return PictureChunkUploadVO.of(pictureChunkSession, Collections.emptyList());
+    }
+
+    @Override
+    public void uploadPictureChunk(PictureChunkUploadRequest pictureChunkUploadRequest, MultipartFile multipartFile, User loginUser) {
+        ThrowUtils.throwIf(pictureChunkUploadRequest == null || pictureChunkUploadRequest.getPartNumber() == null, ErrorCode.PARAMS_ERROR);
+        PictureChunkSession pictureChunkSession = getOwnChunkSession(pictureChunkUploadRequest.getUploadId(), loginUser);
+        chunkPictureUpload.uploadPart(pictureChunkSession, pictureChunkUploadRequest.getPartNumber(), multipartFile);
+    }
+
+    @Override
+    public PictureChunkUploadVO getPictureChunkUpload(String uploadId, User loginUser) {
+        PictureChunkSession pictureChunkSession = getOwnChunkSession(uploadId, loginUser);
+        return PictureChunkUploadVO.of(pictureChunkSession, chunkPictureUpload.listUploadedParts(uploadId));
+    }
+
+    /**
+     * 合并分片，之后与普通上传一样入库（合并前按声明的文件大小重新校验权限和额度）
+     */
+    @Override
+    public PictureVO completePictureChunkUpload(PictureChunkUploadRequest pictureChunkUploadRequest, User loginUser) {
+        ThrowUtils.throwIf(pictureChunkUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        PictureChunkSession pictureChunkSession = getOwnChunkSession(pictureChunkUploadRequest.getUploadId(), loginUser);
+        PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+        pictureUploadRequest.setId(pictureChunkSession.getPictureId());
+        pictureUploadRequest.setSpaceId(pictureChunkSession.getSpaceId());
+        pictureUploadRequest.setPicName(pictureChunkUploadRequest.getPicName());
+        return this.uploadPicture(pictureChunkSession, pictureUploadRequest, loginUser);
+    }
+
+    @Override
+    public void abortPictureChunkUpload(String uploadId, User loginUser) {
+        PictureChunkSession pictureChunkSession = getOwnChunkSession(uploadId, loginUser);
+        chunkPictureUpload.abort(pictureChunkSession);
+    }
+
+    /**
+     * 获取分片上传会话，仅发起人可操作
+     */
+    private PictureChunkSession getOwnChunkSession(String uploadId, User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR);
+        PictureChunkSession pictureChunkSession = chunkPictureUpload.getSession(uploadId);
+        ThrowUtils.throwIf(!loginUser.getId().equals(pictureChunkSession.getUserId()), ErrorCode.NO_AUTH_ERROR);
+        return pictureChunkSession;
+    }
+
     /**
      * 获取图片的 VO 对象
      * 该方法将图片实体对象转换为前端展示的 VO 对象
@@ -271,9 +609,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         // 关联查询用户信息
         Long userId = picture.getUserId();
         if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVO(user);
-            pictureVO.setUser(userVO);
+            pictureVO.setUser(userCacheManager.getUserVO(userId));
         }
         return pictureVO;
     }
@@ -289,30 +625,152 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
     public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request) {
         // 获取分页中的图片列表
         List<Picture> pictureList = picturePage.getRecords();
-        // 创建分页 VO 对象
-        Page<PictureVO> pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        // 创建分页 VO 对象（不查总数的分页保留 hasMore）
+        Page<PictureVO> pictureVOPage;
+        if (picturePage instanceof ScrollPage) {
+            ScrollPage<PictureVO> scrollPage = new ScrollPage<>(picturePage.getCurrent(), picturePage.getSize());
+            scrollPage.setHasMore(((ScrollPage<Picture>) picturePage).isHasMore());
+            scrollPage.setNextCursor(((ScrollPage<Picture>) picturePage).getNextCursor());
+            pictureVOPage = scrollPage;
+        } else {
+            pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        }
         // 如果图片列表为空，直接返回空的分页 VO 对象
         if (CollUtil.isEmpty(pictureList)) {
             return pictureVOPage;
         }
+        // 设置分页 VO 对象的记录列表
+        pictureVOPage.setRecords(getPictureVOList(pictureList));
+        return pictureVOPage;
+    }
+
+    /**
+     * 图片列表转封装类列表，并关联查询用户信息
+     * @param pictureList 图片列表
+     * @return 封装类列表
+     */
+    private List<PictureVO> getPictureVOList(List<Picture> pictureList) {
+        if (CollUtil.isEmpty(pictureList)) {
+            return new ArrayList<>();
+        }
         // 对象列表 => 封装对象列表
         List<PictureVO> pictureVOList = pictureList.stream().map(PictureVO::objToVo).collect(Collectors.toList());
-        // 1. 关联查询用户信息
+        // 1. 关联查询用户信息（优先走用户缓存，只查询缺失的用户）
         Set<Long> userIdSet = pictureList.stream().map(Picture::getUserId).collect(Collectors.toSet());
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userIdUserVOMap = userCacheManager.getUserVOMap(userIdSet);
         // 2. 填充信息
-        pictureVOList.forEach(pictureVO -> {
-            Long userId = pictureVO.getUserId();
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
+        pictureVOList.forEach(pictureVO -> pictureVO.setUser(userIdUserVOMap.get(pictureVO.getUserId())));
+        return pictureVOList;
+    }
+
+    /**
+     * 分页查询图片
+     * 1. searchCount 为 false：不执行 COUNT，多查一条判断是否有下一页
+     * 2. 仅按空间、审核状态、分类过滤：COUNT 结果走缓存，写操作时失效
+     * 3. 其他情况：正常分页
+     * @param pictureQueryRequest 图片查询请求对象
+     * @return 图片分页对象
+     */
+    @Override
+    public Page<Picture> pagePicture(PictureQueryRequest pictureQueryRequest) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        long current = pictureQueryRequest.getCurrent();
+        long size = pictureQueryRequest.getPageSize();
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureQueryRequest);
+        // 1. 不查询总数
+        if (!pictureQueryRequest.isSearchCount()) {
+            // 偏移量和条数直接拼接到 LIMIT 中，先校验范围
+            ThrowUtils.throwIf(current < 1, ErrorCode.PARAMS_ERROR, "页码应从 1 开始");
+            ThrowUtils.throwIf(size < 1 || size > CURSOR_MAX_PAGE_SIZE, ErrorCode.PARAMS_ERROR, "每页条数应为 1~" + CURSOR_MAX_PAGE_SIZE);
+            ScrollPage<Picture> scrollPage = new ScrollPage<>(current, size);
+            queryWrapper.last(String.format("LIMIT %d, %d", (current - 1) * size, size + 1));
+            List<Picture> pictureList = this.list(queryWrapper);
+            boolean hasMore = pictureList.size() > size;
+            scrollPage.setHasMore(hasMore);
+            scrollPage.setRecords(hasMore ? pictureList.subList(0, (int) size) : pictureList);
+            return scrollPage;
+        }
+        // 2. 总数走缓存
+        if (pictureCountCacheManager.isCacheable(pictureQueryRequest)) {
+            Long total = pictureCountCacheManager.getTotal(pictureQueryRequest);
+            if (total == null) {
+                total = this.count(queryWrapper);
+                pictureCountCacheManager.putTotal(pictureQueryRequest, total);
             }
-            pictureVO.setUser(userService.getUserVO(user));
-        });
-        // 设置分页 VO 对象的记录列表
-        pictureVOPage.setRecords(pictureVOList);
-        return pictureVOPage;
+            Page<Picture> picturePage = this.page(new Page<>(current, size, false), queryWrapper);
+            picturePage.setTotal(total);
+            return picturePage;
+        }
+        // 3. 正常分页
+        return this.page(new Page<>(current, size), queryWrapper);
+    }
+
+    /**
+     * 游标分页获取图片列表（封装类）
+     * 查询条件形如 (sortField < v) OR (sortField = v AND id < lastId)，按 createTime 排序时走 (spaceId, reviewStatus, createTime, id)
+     * 联合索引，默认按 id 排序时走 (spaceId, reviewStatus, id) 联合索引，都可以直接定位到上一页末尾，深翻页耗时与第一页一致
+     * @param pictureQueryRequest 图片查询请求对象，cursor 为空时查询第一页
+     * @param request HTTP 请求对象
+     * @return 滚动分页结果，包含下一页游标
+     */
+    @Override
+    public ScrollPage<PictureVO> listPictureVOByCursor(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        long size = pictureQueryRequest.getPageSize();
+        ThrowUtils.throwIf(size < 1 || size > CURSOR_MAX_PAGE_SIZE, ErrorCode.PARAMS_ERROR, "每页条数应为 1~" + CURSOR_MAX_PAGE_SIZE);
+        // 游标分页只支持值非空且创建后不变的排序字段，默认按 id（雪花 id 随时间递增）
+        String sortField = StrUtil.blankToDefault(pictureQueryRequest.getSortField(), "id");
+        ThrowUtils.throwIf(!CURSOR_SORT_FIELDS.contains(sortField), ErrorCode.PARAMS_ERROR, "该排序字段不支持游标分页");
+        boolean asc = "ascend".equals(pictureQueryRequest.getSortOrder());
+        // 复用通用查询条件，排序由游标逻辑自行追加
+        PictureQueryRequest queryRequest = new PictureQueryRequest();
+        BeanUtils.copyProperties(pictureQueryRequest, queryRequest);
+        queryRequest.setSortField(null);
+        QueryWrapper<Picture> queryWrapper = this.buildQueryWrapper(queryRequest, false);
+        // 从游标位置开始查找
+        String cursor = pictureQueryRequest.getCursor();
+        if (StrUtil.isNotBlank(cursor)) {
+            PictureCursor pictureCursor = PictureCursor.decode(cursor);
+            ThrowUtils.throwIf(!sortField.equals(pictureCursor.getSortField()), ErrorCode.PARAMS_ERROR, "游标与排序字段不一致");
+            long lastId = pictureCursor.getId();
+            if ("id".equals(sortField)) {
+                queryWrapper.gt(asc, "id", lastId).lt(!asc, "id", lastId);
+            } else {
+                Date lastValue = new Date(pictureCursor.getSortValue());
+                queryWrapper.and(qw -> qw.gt(asc, sortField, lastValue).lt(!asc, sortField, lastValue)
+                        .or(sameValue -> sameValue.eq(sortField, lastValue)
+                                .gt(asc, "id", lastId).lt(!asc, "id", lastId)));
+            }
+        }
+        // 多查一条用于判断是否还有下一页
+        queryWrapper.orderBy(!"id".equals(sortField), asc, sortField)
+                .orderBy(true, asc, "id")
+                .last("LIMIT " + (size + 1));
+        List<Picture> pictureList = this.list(queryWrapper);
+        boolean hasMore = pictureList.size() > size;
+        if (hasMore) {
+            pictureList = pictureList.subList(0, (int) size);
+        }
+        ScrollPage<PictureVO> scrollPage = new ScrollPage<>(1, size);
+        scrollPage.setHasMore(hasMore);
+        if (hasMore) {
+            Picture last = pictureList.get(pictureList.size() - 1);
+            scrollPage.setNextCursor(new PictureCursor(sortField, getCursorSortValue(last, sortField), last.getId()).encode());
+        }
+        scrollPage.setRecords(getPictureVOList(pictureList));
+        return scrollPage;
+    }
+
+    /**
+     * 获取游标排序字段的值
+     */
+    private static long getCursorSortValue(Picture picture, String sortField) {
+        switch (sortField) {
+            case "createTime":
+                return picture.getCreateTime().getTime();
+            default:
+                return picture.getId();
+        }
     }
 
     /**
@@ -323,6 +781,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
      */
     @Override
     public QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest) {
+        return buildQueryWrapper(pictureQueryRequest, true);
+    }
+
+    /**
+     * 构造查询条件包装器
+     * @param pictureQueryRequest 图片查询请求对象
+     * @param orderByRelevance 有搜索词且未指定排序字段时，是否按搜索相关度排序（游标分页需自行排序，传 false）
+     * @return MyBatis-Plus 的查询条件包装器 QueryWrapper
+     */
+    private QueryWrapper<Picture> buildQueryWrapper(PictureQueryRequest pictureQueryRequest, boolean orderByRelevance) {
         // 创建查询条件包装器
         QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
         // 如果查询请求对象为空，直接返回空地查询条件包装器
@@ -353,11 +821,25 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         String sortOrder = pictureQueryRequest.getSortOrder(); // 获取排序顺序
         // 从多字段中搜索
         if (StrUtil.isNotBlank(searchText)) {
-            // 需要拼接查询条件
-            queryWrapper.and(qw -> qw.like("name", searchText)
-                    .or()
-                    .like("introduction", searchText)
-            );
+            // 优先使用内存倒排索引：在索引中先按空间、审核状态、分类、用户过滤，再取相关度最高的候选图片
+            // 有索引不支持的过滤条件或索引未就绪时退化为 LIKE 查询，避免先截断再过滤丢失结果
+            List<Long> matchedIdList = PictureSearchIndex.isFilterSupported(pictureQueryRequest)
+                    ? pictureSearchIndex.search(searchText, pictureQueryRequest, SEARCH_CANDIDATE_LIMIT) : null;
+            if (matchedIdList == null) {
+                // 需要拼接查询条件
+                queryWrapper.and(qw -> qw.like("name", searchText)
+                        .or()
+                        .like("introduction", searchText)
+                );
+            } else if (matchedIdList.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", matchedIdList);
+                // 未指定排序字段时按相关度排序
+                if (orderByRelevance && StrUtil.isEmpty(sortField)) {
+                    queryWrapper.orderByAsc("FIELD(id, " + CollUtil.join(matchedIdList, ",") + ")");
+                }
+            }
         }
         // 添加查询条件
         // 根据id查询，如果id不为空
@@ -391,10 +873,15 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         queryWrapper.ge(ObjUtil.isNotEmpty(startEditTime), "editTime", startEditTime);
         queryWrapper.lt(ObjUtil.isNotEmpty(endEditTime), "editTime", endEditTime);
 
-        // JSON 数组查询
+        // 标签查询：在 picture_tag 标签索引表中取同时包含所有标签的图片
         if (CollUtil.isNotEmpty(tags)) {
-            for (String tag : tags) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
+            List<String> distinctTags = tags.stream().filter(StrUtil::isNotBlank).distinct().collect(Collectors.toList());
+            if (!distinctTags.isEmpty()) {
+                String placeholders = IntStream.range(0, distinctTags.size())
+                        .mapToObj(i -> "{" + i + "}")
+                        .collect(Collectors.joining(", "));
+                queryWrapper.apply("id IN (SELECT pictureId FROM picture_tag WHERE tag IN (" + placeholders + ")"
+                        + " GROUP BY pictureId HAVING COUNT(*) = " + distinctTags.size() + ")", distinctTags.toArray());
             }
         }
         // 排序
@@ -436,6 +923,12 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         updatePicture.setReviewTime(new Date());
         boolean result = this.updateById(updatePicture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 审核状态变化，清理列表缓存（驳回后不能再展示，旧数据副本一并失效）
+        pictureListCacheManager.invalidate(oldPicture.getSpaceId(), PictureReviewStatusEnum.REJECT.equals(reviewStatusEnum));
+        // 搜索索引按审核状态过滤，需要刷新
+        pictureSearchIndex.refresh(id);
+        picturePaletteIndex.refresh(id);
+        pictureHashIndex.refresh(id);
     }
 
     /**
@@ -475,12 +968,15 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         if (StrUtil.isBlank(namePrefix)) {
             namePrefix = searchText;
         }
+        PictureDuplicatePolicyEnum duplicatePolicy = getDuplicatePolicy(pictureUploadByBatchRequest.getDuplicatePolicy());
 
         // 要抓取的地址
-        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
+        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", URLUtil.encodeQuery(searchText));
         Document document;
         try {
-            document = Jsoup.connect(fetchUrl).get();
+            HttpResponse<String> httpResponse = outboundHttpClient.get("bing-image-search", fetchUrl);
+            ThrowUtils.throwIf(httpResponse.statusCode() != 200, ErrorCode.OPERATION_ERROR, "获取页面失败");
+            document = Jsoup.parse(httpResponse.body(), fetchUrl);
         } catch (IOException e) {
             log.error("获取页面失败", e);
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
@@ -492,10 +988,76 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
         //图片元素
         //Elements imgElementList = div.select("img.mimg");
         Elements imgElementList = div.select(".iusc");  // 修改选择器，获取包含完整数据的元素
+        List<String> fileUrlList = parseBatchFileUrls(imgElementList);
+
+        // 并行下载和上传，按页面顺序依次入库：在途任务数不超过并发数，也不超过还需要的数量，避免多余的抓取
+        String uploadPathPrefix = getUploadPathPrefix(null, loginUser);
+        int parallelism = pictureUploadConfig.getBatchParallelism();
+        Deque<CompletableFuture<UploadPictureResult>> inFlight = new ArrayDeque<>();
+        int nextIndex = 0;
         int uploadCount = 0;
-        for (Element imgElement : imgElementList) {
-            //String fileUrl = imgElement.attr("src");
+        int failedCount = 0;
+        int duplicateCount = 0;
+        while (uploadCount < count) {
+            while (nextIndex < fileUrlList.size() && inFlight.size() < Math.min(parallelism, count - uploadCount)) {
+                inFlight.add(pictureBatchUploadManager.submit(fileUrlList.get(nextIndex++), uploadPathPrefix,
+                        uploadPictureResult -> discardUpload(uploadPictureResult, null)));
+            }
+            if (inFlight.isEmpty()) {
+                break;
+            }
+            UploadPictureResult uploadPictureResult;
+            try {
+                uploadPictureResult = inFlight.poll().join();
+            } catch (CompletionException e) {
+                failedCount++;
+                log.error("图片上传失败", e.getCause());
+                continue;
+            }
+            // 跳过公共图库中已有的近似重复图片（本批次已入库的图片也在哈希索引中）
+            if (duplicatePolicy != PictureDuplicatePolicyEnum.ALLOW) {
+                List<Long> duplicateIdList = detectDuplicates(uploadPictureResult, null);
+                if (!duplicateIdList.isEmpty()) {
+                    duplicateCount++;
+                    discardUpload(uploadPictureResult, null);
+                    log.info("跳过重复图片, url = {}, 已有图片 id = {}", uploadPictureResult.getUrl(), duplicateIdList.get(0));
+                    continue;
+                }
+            }
+            // 上传图片
+            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+            if (StrUtil.isNotBlank(namePrefix)) {
+                // 设置图片名称，序号连续递增
+                pictureUploadRequest.setPicName(namePrefix + (uploadCount + 1));
+            }
+            try {
+                PictureVO pictureVO = this.savePicture(uploadPictureResult, pictureUploadRequest, null, loginUser);
+                uploadCount++;
+                log.info("图片上传成功, id = {}, 进度 {}/{}", pictureVO.getId(), uploadCount, count);
+            } catch (Exception e) {
+                failedCount++;
+                log.error("图片入库失败", e);
+                // 入库失败，已上传的文件不会被引用
+                discardUpload(uploadPictureResult, null);
+            }
+        }
+        // 已达到数量，取消尚未完成的任务（执行中的任务完成后自行清理），已完成但不再入库的上传结果直接清理
+        inFlight.forEach(future -> {
+            if (!future.cancel(false) && !future.isCompletedExceptionally()) {
+                discardUpload(future.join(), null);
+            }
+        });
+        log.info("批量抓取结束, 搜索词 = {}, 成功 {}/{}, 失败 {}, 重复 {}, 候选 {}", searchText, uploadCount, count, failedCount,
+                duplicateCount, fileUrlList.size());
+        return uploadCount;
+    }
 
+    /**
+     * 从搜索结果中解析图片原始地址（去掉查询参数），保持页面顺序
+     */
+    private List<String> parseBatchFileUrls(Elements imgElementList) {
+        List<String> fileUrlList = new ArrayList<>();
+        for (Element imgElement : imgElementList) {
             // 获取data-m属性中的JSON字符串
             String dataM = imgElement.attr("m");
             String fileUrl;
@@ -517,31 +1079,14 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
             if (questionMarkIndex > -1) {
                 fileUrl = fileUrl.substring(0, questionMarkIndex);
             }
-            // 上传图片
-            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-            pictureUploadRequest.setFileUrl(fileUrl);
-            if (StrUtil.isNotBlank(namePrefix)) {
-                // 设置图片名称，序号连续递增
-                pictureUploadRequest.setPicName(namePrefix + (uploadCount + 1));
-            }
-            try {
-                PictureVO pictureVO = this.uploadPicture(fileUrl, pictureUploadRequest, loginUser);
-                log.info("图片上传成功, id = {}", pictureVO.getId());
-                uploadCount++;
-            } catch (Exception e) {
-                log.error("图片上传失败", e);
-                continue;
-            }
-            if (uploadCount >= count) {
-                break;
-            }
+            fileUrlList.add(fileUrl);
         }
-        return uploadCount;
+        return fileUrlList;
     }
 
 @Async
 /**
- * 异步清理图片文件及其缩略图。仅当图片仅被一条记录引用时执行删除操作。
+ * 异步清理图片文件及其缩略图。仅当图片不再被其他记录引用时执行删除操作。
  *
  * @param oldPicture 要清理的图片对象，包含原图URL和缩略图URL
  */
@@ -549,29 +1094,52 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> // 
 public void clearPictureFile(Picture oldPicture) {
     // 检查该图片是否被多条记录引用，避免删除共享图片
     String pictureUrl = oldPicture.getUrl();
-    long count = this.lambdaQuery()
-            .eq(Picture::getUrl, pictureUrl)
-            .count();
-    if (count > 1) {
-        return;
-    }
+    // 调用时记录已删除或已替换，剩余引用数大于 0 即不能删除（相同内容上传会复用文件）
+    // 引用检查、移除去重索引和删除文件都在去重锁内执行，期间不会有新的上传复用该文件
+    pictureDedupManager.deleteIfUnreferenced(oldPicture.getContentHash(), oldPicture.getSpaceId(), pictureUrl,
+            () -> this.lambdaQuery().eq(Picture::getUrl, pictureUrl).count() > 0,
+            () -> deletePictureFile(oldPicture));
+}
+
+/**
+ * 删除图片的缩略图和缩放版本文件
+ *
+ * @param oldPicture 要清理的图片对象
+ */
+private void deletePictureFile(Picture oldPicture) {
+    String pictureUrl = oldPicture.getUrl();
     try {
         // 提取并处理原图路径（当前原图删除操作被注释）
         String picturePath = new URL(pictureUrl).getPath();
         // wei
-        // cosManager.deleteObject(picturePath);
+        // objectStorage.deleteObject(picturePath);
         // log.info("原图已删除: {}", picturePath);
         // 清理缩略图文件（仅当存在有效缩略图URL时执行）
         String thumbnailUrl = oldPicture.getThumbnailUrl();
         if (StrUtil.isNotBlank(thumbnailUrl)) {
-            String thumbnailPath = new URL(thumbnailUrl).getPath();
-            cosManager.deleteObject(thumbnailPath);
-            log.info("缩略图已删除: {}", thumbnailPath);
+            String thumbnailPath = objectStorage.getKey(thumbnailUrl);
+            if (thumbnailPath != null) {
+                objectStorage.deleteObject(thumbnailPath);
+                log.info("缩略图已删除: {}", thumbnailPath);
+            }
+        }
+        // 清理缩放版本
+        if (StrUtil.isNotBlank(oldPicture.getRenditions())) {
+            List<String> renditionPaths = JSONUtil.toList(oldPicture.getRenditions(), PictureRendition.class).stream()
+                    .map(pictureRendition -> objectStorage.getKey(pictureRendition.getUrl()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            List<String> failedPaths = objectStorage.deleteObjects(renditionPaths);
+            if (!failedPaths.isEmpty()) {
+                log.warn("缩放版本删除失败: {}", failedPaths);
+            }
         }
     } catch (MalformedURLException e) {
         // 异常处理：记录错误日志并抛出业务异常
         log.error("处理图片删除时遇到格式错误的 URL。图片 URL: {}", pictureUrl, e);
         throw new BusinessException(ErrorCode.SYSTEM_ERROR, "格式错误的 URL");
+    } catch (IOException e) {
+        log.error("缩略图删除失败。缩略图 URL: {}", oldPicture.getThumbnailUrl(), e);
     }
 }
 
@@ -596,6 +1164,8 @@ public void deletePicture(long pictureId, User loginUser) {
         // 操作数据库
         boolean result = this.removeById(pictureId);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 删除标签索引
+        pictureTagService.removeByPictureId(pictureId);
         // 释放额度
         Long spaceId = oldPicture.getSpaceId();
         if (spaceId != null) {
@@ -608,6 +1178,13 @@ public void deletePicture(long pictureId, User loginUser) {
         }
         return true;
     });
+    // 清理列表缓存（已删除的图片不能再展示，旧数据副本一并失效）
+    pictureListCacheManager.invalidate(oldPicture.getSpaceId(), true);
+    // 移除搜索索引
+    pictureSearchIndex.remove(pictureId);
+    pictureColorIndex.remove(pictureId, oldPicture.getSpaceId());
+    picturePaletteIndex.remove(pictureId);
+    pictureHashIndex.remove(pictureId);
     // 异步清理文件
     this.clearPictureFile(oldPicture);
 }
@@ -642,9 +1219,21 @@ public void deletePicture(long pictureId, User loginUser) {
         // 补充审核参数
         this.fillReviewParams(picture, loginUser);
 
-        // 操作数据库
-        boolean result = this.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 操作数据库，标签有变化时同步标签索引
+        transactionTemplate.execute(status -> {
+            boolean result = this.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            if (pictureEditRequest.getTags() != null) {
+                pictureTagService.syncPictureTags(id, oldPicture.getSpaceId(), picture.getTags());
+            }
+            return true;
+        });
+        // 分类或审核状态可能变化，清理列表缓存
+        pictureListCacheManager.invalidate(oldPicture.getSpaceId());
+        // 名称、简介、分类、审核状态可能变化，刷新搜索索引
+        pictureSearchIndex.refresh(id);
+        picturePaletteIndex.refresh(id);
+        pictureHashIndex.refresh(id);
     }
 /**
  * 校验图片操作权限
@@ -678,14 +1267,16 @@ public void deletePicture(long pictureId, User loginUser) {
      *
      * @param spaceId   空间ID
      * @param picColor  十六进制颜色字符串（如#FFFFFF）
+     * @param metric    颜色距离算法（rgb / ciede2000，默认 ciede2000）
      * @param loginUser 登录用户信息
      * @return 按颜色相似度排序后的图片列表（最多12条）
      */
     @Override
-    public List<PictureVO> searchPictureByColor(Long spaceId, String picColor, User loginUser) {
+    public List<PictureVO> searchPictureByColor(Long spaceId, String picColor, String metric, User loginUser) {
         // 校验参数合法性
         ThrowUtils.throwIf(spaceId == null || StrUtil.isBlank(picColor), ErrorCode.PARAMS_ERROR);
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ColorMetricEnum colorMetricEnum = ColorMetricEnum.getEnumByValue(metric);
 
         // 校验空间访问权限
         Space space = spaceService.getById(spaceId);
@@ -694,35 +1285,119 @@ public void deletePicture(long pictureId, User loginUser) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间访问权限");
         }
 
-        // 查询该空间下所有具有主色调的图片
-        List<Picture> pictureList = this.lambdaQuery()
-                .eq(Picture::getSpaceId, spaceId)
-                .isNotNull(Picture::getPicColor)
-                .list();
-        if (CollUtil.isEmpty(pictureList)) {
+        Integer targetRgb = ColorMetricUtils.parseColor(picColor);
+        ThrowUtils.throwIf(targetRgb == null, ErrorCode.PARAMS_ERROR, "颜色格式错误");
+
+        // 从颜色索引中取最接近的 12 张图片，再按 id 回表
+        List<Long> pictureIdList = pictureColorIndex.search(spaceId, targetRgb, 12, colorMetricEnum);
+        if (CollUtil.isEmpty(pictureIdList)) {
             return Collections.emptyList();
         }
+        Map<Long, Picture> pictureMap = this.listByIds(pictureIdList).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
 
-        // 将目标颜色转换为Color对象
-        Color targetColor = Color.decode(picColor);
-
-        // 计算颜色相似度并排序（取前12个）
-        List<Picture> sortedPictures = pictureList.stream()
-                .sorted(Comparator.comparingDouble(picture -> {
-                    String hexColor = picture.getPicColor();
-                    if (StrUtil.isBlank(hexColor)) {
-                        return Double.MAX_VALUE;
-                    }
-                    Color pictureColor = Color.decode(hexColor);
-                    return -ColorSimilarUtils.calculateSimilarity(targetColor, pictureColor);
-                }))
-                .limit(12)
+        // 按相似度顺序转换为VO对象（索引尚未感知的删除会被跳过）
+        return pictureIdList.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
+    }
 
-        // 转换为VO对象
-        return sortedPictures.stream()
-                .map(PictureVO::objToVo)
+    /**
+     * 按调色板搜索图片
+     * 调色板索引在过审图片中取出相似度最高的候选，再由数据库按相似度顺序分页（最多翻到第 1000 条）
+     *
+     * @param searchPictureByPaletteRequest 搜索请求（空间权限由调用方校验）
+     * @return 图片分页
+     */
+    @Override
+    public Page<Picture> searchPictureByPalette(SearchPictureByPaletteRequest searchPictureByPaletteRequest) {
+        ThrowUtils.throwIf(searchPictureByPaletteRequest == null, ErrorCode.PARAMS_ERROR);
+        List<String> colors = searchPictureByPaletteRequest.getColors();
+        List<Double> weights = searchPictureByPaletteRequest.getWeights();
+        ThrowUtils.throwIf(CollUtil.isEmpty(colors) || colors.size() > PicturePalettes.PALETTE_SIZE,
+                ErrorCode.PARAMS_ERROR, "颜色数量应为 1~" + PicturePalettes.PALETTE_SIZE + " 个");
+        ThrowUtils.throwIf(weights != null && weights.size() != colors.size(), ErrorCode.PARAMS_ERROR, "占比与颜色数量不一致");
+        // 解析颜色，占比归一化
+        int[] rgbs = new int[colors.size()];
+        double[] normalizedWeights = new double[colors.size()];
+        double weightSum = 0;
+        for (int i = 0; i < colors.size(); i++) {
+            Integer rgb = ColorMetricUtils.parseColor(colors.get(i));
+            ThrowUtils.throwIf(rgb == null, ErrorCode.PARAMS_ERROR, "颜色格式错误");
+            rgbs[i] = rgb;
+            double weight = weights == null ? 1 : ObjUtil.defaultIfNull(weights.get(i), 0.0);
+            ThrowUtils.throwIf(weight < 0, ErrorCode.PARAMS_ERROR, "占比不能为负数");
+            normalizedWeights[i] = weight;
+            weightSum += weight;
+        }
+        ThrowUtils.throwIf(weightSum <= 0, ErrorCode.PARAMS_ERROR, "占比之和必须大于 0");
+        for (int i = 0; i < normalizedWeights.length; i++) {
+            normalizedWeights[i] /= weightSum;
+        }
+
+        Long spaceId = searchPictureByPaletteRequest.getSpaceId();
+        long current = searchPictureByPaletteRequest.getCurrent();
+        long size = searchPictureByPaletteRequest.getPageSize();
+        // 索引内先按空间和审核状态过滤再截断，数据库查询只做兜底校验
+        List<Long> matchedIdList = picturePaletteIndex.search(rgbs, normalizedWeights, spaceId,
+                PictureReviewStatusEnum.PASS.getValue(), SEARCH_CANDIDATE_LIMIT);
+        ThrowUtils.throwIf(matchedIdList == null, ErrorCode.OPERATION_ERROR, "调色板索引构建中，请稍后再试");
+        if (matchedIdList.isEmpty()) {
+            return new Page<>(current, size, 0);
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.in("id", matchedIdList)
+                .eq(spaceId != null, "spaceId", spaceId)
+                .isNull(spaceId == null, "spaceId")
+                .eq("reviewStatus", PictureReviewStatusEnum.PASS.getValue())
+                .orderByAsc("FIELD(id, " + CollUtil.join(matchedIdList, ",") + ")");
+        return this.page(new Page<>(current, size), queryWrapper);
+    }
+
+    /**
+     * 在站内按感知哈希搜索相似图片（公共图库或自己的空间）
+     * 哈希索引按汉明距离在过审图片中取出候选，再回表读取图片
+     *
+     * @param searchPictureByPictureRequest 搜索请求（目标空间权限由调用方校验）
+     * @param loginUser                     登录用户
+     * @return 相似图片列表，按相似度从高到低，最多 20 条
+     */
+    @Override
+    public List<PictureVO> searchSimilarPicture(SearchPictureByPictureRequest searchPictureByPictureRequest, User loginUser) {
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null, ErrorCode.PARAMS_ERROR);
+        Long pictureId = searchPictureByPictureRequest.getPictureId();
+        ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
+        int maxDistance = ObjUtil.defaultIfNull(searchPictureByPictureRequest.getMaxDistance(), DEFAULT_SIMILAR_DISTANCE);
+        ThrowUtils.throwIf(maxDistance < 0 || maxDistance > MAX_SIMILAR_DISTANCE, ErrorCode.PARAMS_ERROR,
+                "最大距离应为 0~" + MAX_SIMILAR_DISTANCE);
+        Picture picture = this.getById(pictureId);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 只能用自己能看到的图片来搜：私有空间的图片仅本人，公共图库的图片需已过审
+        if (picture.getSpaceId() != null || !Integer.valueOf(PictureReviewStatusEnum.PASS.getValue()).equals(picture.getReviewStatus())) {
+            checkPictureAuth(loginUser, picture);
+        }
+        ThrowUtils.throwIf(picture.getPhash() == null, ErrorCode.OPERATION_ERROR, "该图片尚未计算感知哈希");
+
+        Long spaceId = searchPictureByPictureRequest.getSpaceId();
+        // 索引内先按空间和审核状态过滤再截断，数据库查询只做兜底校验
+        List<Long> matchedIdList = pictureHashIndex.search(picture.getPhash(), picture.getDhash(), spaceId,
+                PictureReviewStatusEnum.PASS.getValue(), maxDistance, SIMILAR_SEARCH_LIMIT, pictureId);
+        ThrowUtils.throwIf(matchedIdList == null, ErrorCode.OPERATION_ERROR, "图片哈希索引构建中，请稍后再试");
+        if (matchedIdList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Picture> pictureList = this.lambdaQuery()
+                .in(Picture::getId, matchedIdList)
+                .eq(Picture::getReviewStatus, PictureReviewStatusEnum.PASS.getValue())
+                .list();
+        Map<Long, Picture> pictureMap = pictureList.stream().collect(Collectors.toMap(Picture::getId, p -> p));
+        List<Picture> sortedPictureList = matchedIdList.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return getPictureVOList(sortedPictureList);
     }
 
     /**
@@ -750,9 +1425,9 @@ public void deletePicture(long pictureId, User loginUser) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间访问权限");
         }
 
-        // 3. 查询指定图片，仅选择需要的字段
+        // 3. 查询指定图片，仅选择需要的字段（名称、简介用于更新搜索索引）
         List<Picture> pictureList = this.lambdaQuery()
-                .select(Picture::getId, Picture::getSpaceId)
+                .select(Picture::getId, Picture::getSpaceId, Picture::getName, Picture::getIntroduction)
                 .eq(Picture::getSpaceId, spaceId)
                 .in(Picture::getId, pictureIdList)
                 .list();
@@ -776,6 +1451,14 @@ public void deletePicture(long pictureId, User loginUser) {
         // 5. 批量更新
         boolean result = this.updateBatchById(pictureList);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 同步标签索引
+        if (CollUtil.isNotEmpty(tags)) {
+            pictureList.forEach(picture -> pictureTagService.syncPictureTags(picture.getId(), spaceId, picture.getTags()));
+        }
+        // 分类可能变化，事务提交后清理列表缓存
+        pictureListCacheManager.invalidate(spaceId);
+        // 名称、分类可能变化，事务提交后刷新搜索索引
+        pictureSearchIndex.refresh(pictureList.stream().map(Picture::getId).collect(Collectors.toList()));
     }
 
     /**
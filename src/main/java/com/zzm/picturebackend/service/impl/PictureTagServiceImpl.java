@@ -0,0 +1,73 @@
+package com.zzm.picturebackend.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.zzm.picturebackend.mapper.PictureTagMapper;
+import com.zzm.picturebackend.model.entity.PictureTag;
+import com.zzm.picturebackend.service.PictureTagService;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+* @description 针对表【picture_tag(图片标签)】的数据库操作Service实现
+*/
+@Service
+public class PictureTagServiceImpl extends ServiceImpl<PictureTagMapper, PictureTag>
+    implements PictureTagService {
+
+    @Override
+    public void syncPictureTags(Long pictureId, Long spaceId, String tagsJson) {
+        if (pictureId == null) {
+            return;
+        }
+        this.removeByPictureId(pictureId);
+        if (StrUtil.isBlank(tagsJson) || !JSONUtil.isTypeJSONArray(tagsJson)) {
+            return;
+        }
+        List<PictureTag> pictureTagList = JSONUtil.toList(tagsJson, String.class).stream()
+                .filter(StrUtil::isNotBlank)
+                .distinct()
+                .map(tag -> {
+                    PictureTag pictureTag = new PictureTag();
+                    pictureTag.setPictureId(pictureId);
+                    pictureTag.setTag(tag);
+                    pictureTag.setSpaceId(spaceId);
+                    return pictureTag;
+                })
+                .collect(Collectors.toList());
+        if (!pictureTagList.isEmpty()) {
+            this.saveBatch(pictureTagList);
+        }
+    }
+
+    @Override
+    public void removeByPictureId(Long pictureId) {
+        this.lambdaUpdate().eq(PictureTag::getPictureId, pictureId).remove();
+    }
+
+    @Override
+    public Map<String, Long> countTags(boolean queryAll, boolean queryPublic, Long spaceId) {
+        QueryWrapper<PictureTag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("tag", "COUNT(*) AS count");
+        if (!queryAll) {
+            if (queryPublic) {
+                queryWrapper.isNull("spaceId");
+            } else {
+                queryWrapper.eq("spaceId", spaceId);
+            }
+        }
+        queryWrapper.groupBy("tag");
+        List<Map<String, Object>> resultList = this.getBaseMapper().selectMaps(queryWrapper);
+        Map<String, Long> tagCountMap = new HashMap<>(resultList.size());
+        for (Map<String, Object> result : resultList) {
+            tagCountMap.put((String) result.get("tag"), ((Number) result.get("count")).longValue());
+        }
+        return tagCountMap;
+    }
+}
@@ -2,7 +2,6 @@ package com.zzm.picturebackend.service.impl;
 
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ObjUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zzm.picturebackend.exception.BusinessException;
@@ -15,6 +14,7 @@ import com.zzm.picturebackend.model.entity.Space;
 import com.zzm.picturebackend.model.entity.User;
 import com.zzm.picturebackend.model.vo.space.analyze.*;
 import com.zzm.picturebackend.service.PictureService;
+import com.zzm.picturebackend.service.PictureTagService;
 import com.zzm.picturebackend.service.SpaceAnalyzeService;
 import com.zzm.picturebackend.service.SpaceService;
 import com.zzm.picturebackend.service.UserService;
@@ -40,6 +40,8 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space>
     private UserService userService;
     @Resource
     private PictureService pictureService;
+    @Resource
+    private PictureTagService pictureTagService;
 
     /**
      * 获取空间使用分析数据
@@ -150,22 +152,12 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space>
         // 检查权限
         checkSpaceAnalyzeAuth(spaceTagAnalyzeRequest, loginUser);
 
-        // 构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-        fillAnalyzeQueryWrapper(spaceTagAnalyzeRequest, queryWrapper);
-
-        // 查询所有符合条件的标签
-        queryWrapper.select("tags");
-        List<String> tagsJsonList = pictureService.getBaseMapper().selectObjs(queryWrapper)
-                .stream()
-                .filter(ObjUtil::isNotNull)
-                .map(Object::toString)
-                .collect(Collectors.toList());
+        ThrowUtils.throwIf(!spaceTagAnalyzeRequest.isQueryAll() && !spaceTagAnalyzeRequest.isQueryPublic()
+                && spaceTagAnalyzeRequest.getSpaceId() == null, ErrorCode.PARAMS_ERROR, "未指定查询范围");
 
-        // 合并所有标签并统计使用次数
-        Map<String, Long> tagCountMap = tagsJsonList.stream()
-                .flatMap(tagsJson -> JSONUtil.toList(tagsJson, String.class).stream())
-                .collect(Collectors.groupingBy(tag -> tag, Collectors.counting()));
+        // 直接在标签索引表中按标签分组统计使用次数
+        Map<String, Long> tagCountMap = pictureTagService.countTags(spaceTagAnalyzeRequest.isQueryAll(),
+                spaceTagAnalyzeRequest.isQueryPublic(), spaceTagAnalyzeRequest.getSpaceId());
 
         // 转换为响应对象，按使用次数降序排序
         return tagCountMap.entrySet().stream()
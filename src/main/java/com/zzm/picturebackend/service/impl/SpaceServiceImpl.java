@@ -9,6 +9,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
 import com.zzm.picturebackend.exception.ThrowUtils;
+import com.zzm.picturebackend.manager.cache.UserCacheManager;
 import com.zzm.picturebackend.mapper.SpaceMapper;
 import com.zzm.picturebackend.model.dto.space.SpaceAddRequest;
 import com.zzm.picturebackend.model.dto.space.SpaceQueryRequest;
@@ -43,6 +44,9 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
     @Resource
     private UserService userService;
 
+    @Resource
+    private UserCacheManager userCacheManager;
+
     @Resource
     private TransactionTemplate transactionTemplate;
 
@@ -154,9 +158,7 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         // 关联查询用户信息
         Long userId = space.getUserId();
         if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVO(user);
-            spaceVO.setUser(userVO);
+            spaceVO.setUser(userCacheManager.getUserVO(userId));
         }
         return spaceVO;
     }
@@ -178,20 +180,12 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         // 将空间实体列表转换为视图对象列表
         List<SpaceVO> spaceVOList = spaceList.stream().map(SpaceVO::objToVo).collect(Collectors.toList());
 
-        // 执行用户信息关联查询
+        // 执行用户信息关联查询（优先走用户缓存，只查询缺失的用户）
         Set<Long> userIdSet = spaceList.stream().map(Space::getUserId).collect(Collectors.toSet());
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userIdUserVOMap = userCacheManager.getUserVOMap(userIdSet);
 
         // 填充用户信息到视图对象
-        spaceVOList.forEach(spaceVO -> {
-            Long userId = spaceVO.getUserId();
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
-            }
-            spaceVO.setUser(userService.getUserVO(user));
-        });
+        spaceVOList.forEach(spaceVO -> spaceVO.setUser(userIdUserVOMap.get(spaceVO.getUserId())));
 
         spaceVOPage.setRecords(spaceVOList);
         return spaceVOPage;
@@ -8,6 +8,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zzm.picturebackend.constant.UserConstant;
 import com.zzm.picturebackend.exception.BusinessException;
 import com.zzm.picturebackend.exception.ErrorCode;
+import com.zzm.picturebackend.manager.cache.UserCacheManager;
 import com.zzm.picturebackend.mapper.UserMapper;
 import com.zzm.picturebackend.model.dto.user.UserQueryRequest;
 import com.zzm.picturebackend.model.entity.User;
@@ -20,6 +21,7 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +38,14 @@ import java.util.stream.Collectors;
 public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     implements UserService {
 
+    /**
+     * 当前请求中缓存登录用户的属性名
+     */
+    private static final String REQUEST_LOGIN_USER_ATTRIBUTE = UserServiceImpl.class.getName() + ".loginUser";
+
+    @Resource
+    private UserCacheManager userCacheManager;
+
     /**
      * 用户注册
      *
@@ -209,6 +219,12 @@ public LoginUserVO userLogin(String userAccount, String userPassword, HttpServle
      */
    @Override
 public User getLoginUser(HttpServletRequest request) {
+    // 同一请求内多次调用（如权限校验 + 业务方法）直接复用
+    Object memoUser = request.getAttribute(REQUEST_LOGIN_USER_ATTRIBUTE);
+    if (memoUser instanceof User) {
+        return (User) memoUser;
+    }
+
     // 1. 获取当前会话中的登录用户信息
 
     // 从会话中获取用户对象
@@ -222,20 +238,21 @@ public User getLoginUser(HttpServletRequest request) {
         throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR); // 如果未登录，抛出业务异常
     }
 
-    // 2. 从数据库中查询用户信息（可选步骤，追求性能的话可以省略）
+    // 2. 查询最新的用户信息（优先走用户缓存，用户修改、删除时缓存会失效）
 
     // 获取用户的ID
     long userId = currentUser.getId();
 
-    // 从数据库中重新查询用户信息以确保数据最新
-    currentUser = this.getById(userId);
+    // 从用户缓存中获取用户信息，未命中时查询数据库
+    currentUser = userCacheManager.getUser(userId);
 
     // 如果用户不存在，抛出业务异常
     if (currentUser == null) {
         throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
     }
 
-    // 返回查询到的用户信息
+    // 记录到当前请求，返回查询到的用户信息
+    request.setAttribute(REQUEST_LOGIN_USER_ATTRIBUTE, currentUser);
     return currentUser;
 }
 
@@ -285,6 +302,7 @@ public boolean userLogout(HttpServletRequest request) {
 
     // 从会话中移除用户对象
     request.getSession().removeAttribute(UserConstant.USER_LOGIN_STATE);
+    request.removeAttribute(REQUEST_LOGIN_USER_ATTRIBUTE);
 
     // 返回true表示注销成功
     return true;
@@ -0,0 +1,187 @@
+package com.zzm.picturebackend.utils;
+
+import cn.hutool.core.util.StrUtil;
+
+/**
+ * 工具类：颜色解析、CIELAB 转换与色差计算
+ * 颜色统一用 0xRRGGBB 打包成 int；Lab 基于 sRGB、D65 白点，色差采用 CIEDE2000
+ */
+public class ColorMetricUtils {
+
+    /**
+     * D65 参考白
+     */
+    private static final double REF_X = 0.95047;
+
+    private static final double REF_Y = 1.0;
+
+    private static final double REF_Z = 1.08883;
+
+    /**
+     * 25 的 7 次方，CIEDE2000 中 G 和 R_C 项使用
+     */
+    private static final double POW25_7 = 6103515625.0;
+
+    /**
+     * sRGB 分量（0~255）到线性值的查表，避免每次计算 pow
+     */
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    private ColorMetricUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 解析并规整颜色
+     * 支持 0xRRGGBB、#RRGGBB、#RGB；数据万象返回的 7 位 0x 颜色按 {@link ColorTransformUtils#getStandardColor} 补位
+     *
+     * @param color 颜色字符串
+     * @return 0xRRGGBB 打包的整数；为空或格式错误时返回 null
+     */
+    public static Integer parseColor(String color) {
+        if (StrUtil.isBlank(color)) {
+            return null;
+        }
+        String hex = color.trim();
+        if (StrUtil.startWithIgnoreCase(hex, "0x")) {
+            hex = ColorTransformUtils.getStandardColor(hex).substring(2);
+        } else if (hex.startsWith("#")) {
+            hex = hex.substring(1);
+            if (hex.length() == 3) {
+                hex = new String(new char[]{hex.charAt(0), hex.charAt(0), hex.charAt(1), hex.charAt(1), hex.charAt(2), hex.charAt(2)});
+            }
+        }
+        if (hex.length() != 6) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(hex, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 规整颜色字符串为 0xRRGGBB
+     *
+     * @param color 颜色字符串
+     * @return 规整后的颜色；无法解析时返回 null
+     */
+    public static String normalizeColor(String color) {
+        Integer rgb = parseColor(color);
+        return rgb == null ? null : toHex(rgb);
+    }
+
+    /**
+     * 打包的颜色转为 0xRRGGBB 字符串
+     */
+    public static String toHex(int rgb) {
+        return String.format("0x%06X", rgb & 0xFFFFFF);
+    }
+
+    /**
+     * sRGB 转 CIELAB
+     *
+     * @param rgb 0xRRGGBB
+     * @param lab 输出，依次为 L、a、b
+     */
+    public static void rgbToLab(int rgb, float[] lab) {
+        double r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+        double g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+        double b = SRGB_TO_LINEAR[rgb & 0xFF];
+        double fx = labF((0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / REF_X);
+        double fy = labF((0.2126729 * r + 0.7151522 * g + 0.0721750 * b) / REF_Y);
+        double fz = labF((0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / REF_Z);
+        lab[0] = (float) (116 * fy - 16);
+        lab[1] = (float) (500 * (fx - fy));
+        lab[2] = (float) (200 * (fy - fz));
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
+    /**
+     * CIEDE2000 色差（kL = kC = kH = 1）
+     * 小于 1 人眼基本不可分辨，2~10 为一眼可见的差异
+     *
+     * @return 色差，越小越接近
+     */
+    public static double ciede2000(double l1, double a1, double b1, double l2, double a2, double b2) {
+        double c1 = Math.sqrt(a1 * a1 + b1 * b1);
+        double c2 = Math.sqrt(a2 * a2 + b2 * b2);
+        double cMean7 = pow7((c1 + c2) / 2);
+        double g = 0.5 * (1 - Math.sqrt(cMean7 / (cMean7 + POW25_7)));
+        double a1p = (1 + g) * a1;
+        double a2p = (1 + g) * a2;
+        double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+        double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+        double h1p = hueAngle(b1, a1p);
+        double h2p = hueAngle(b2, a2p);
+
+        double deltaLp = l2 - l1;
+        double deltaCp = c2p - c1p;
+        double deltahp;
+        if (c1p * c2p == 0) {
+            deltahp = 0;
+        } else if (Math.abs(h2p - h1p) <= 180) {
+            deltahp = h2p - h1p;
+        } else if (h2p - h1p > 180) {
+            deltahp = h2p - h1p - 360;
+        } else {
+            deltahp = h2p - h1p + 360;
+        }
+        double deltaHp = 2 * Math.sqrt(c1p * c2p) * Math.sin(Math.toRadians(deltahp / 2));
+
+        double lpMean = (l1 + l2) / 2;
+        double cpMean = (c1p + c2p) / 2;
+        double hpMean;
+        if (c1p * c2p == 0) {
+            hpMean = h1p + h2p;
+        } else if (Math.abs(h1p - h2p) <= 180) {
+            hpMean = (h1p + h2p) / 2;
+        } else if (h1p + h2p < 360) {
+            hpMean = (h1p + h2p + 360) / 2;
+        } else {
+            hpMean = (h1p + h2p - 360) / 2;
+        }
+        double t = 1 - 0.17 * Math.cos(Math.toRadians(hpMean - 30))
+                + 0.24 * Math.cos(Math.toRadians(2 * hpMean))
+                + 0.32 * Math.cos(Math.toRadians(3 * hpMean + 6))
+                - 0.20 * Math.cos(Math.toRadians(4 * hpMean - 63));
+        double deltaTheta = 30 * Math.exp(-((hpMean - 275) / 25) * ((hpMean - 275) / 25));
+        double cpMean7 = pow7(cpMean);
+        double rc = 2 * Math.sqrt(cpMean7 / (cpMean7 + POW25_7));
+        double lpMeanOffset = (lpMean - 50) * (lpMean - 50);
+        double sl = 1 + 0.015 * lpMeanOffset / Math.sqrt(20 + lpMeanOffset);
+        double sc = 1 + 0.045 * cpMean;
+        double sh = 1 + 0.015 * cpMean * t;
+        double rt = -Math.sin(Math.toRadians(2 * deltaTheta)) * rc;
+
+        double termL = deltaLp / sl;
+        double termC = deltaCp / sc;
+        double termH = deltaHp / sh;
+        return Math.sqrt(termL * termL + termC * termC + termH * termH + rt * termC * termH);
+    }
+
+    private static double hueAngle(double b, double ap) {
+        if (b == 0 && ap == 0) {
+            return 0;
+        }
+        double angle = Math.toDegrees(Math.atan2(b, ap));
+        return angle < 0 ? angle + 360 : angle;
+    }
+
+    private static double pow7(double x) {
+        double x2 = x * x;
+        double x3 = x2 * x;
+        return x3 * x3 * x;
+    }
+}
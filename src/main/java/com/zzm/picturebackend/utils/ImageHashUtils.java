@@ -0,0 +1,130 @@
+package com.zzm.picturebackend.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 工具类：64 位感知哈希
+ * 1. pHash：缩放到 32x32 灰度图做二维 DCT，取左上角 8x8 低频系数与中位数比较，对缩放、压缩、轻微调色不敏感
+ * 2. dHash：缩放到 9x8 灰度图，比较每行相邻像素的亮度，计算量小，对渐变和亮度整体变化不敏感
+ * 两张图片哈希的汉明距离越小越相似，通常 pHash 距离不超过 10 可认为是同一张图片的变体
+ */
+public class ImageHashUtils {
+
+    private static final int DCT_SIZE = 32;
+
+    private static final int LOW_FREQUENCY_SIZE = 8;
+
+    /**
+     * DCT 系数表：COS_TABLE[u][x] = cos((2x + 1) * u * PI / 64)
+     */
+    private static final double[][] COS_TABLE = new double[LOW_FREQUENCY_SIZE][DCT_SIZE];
+
+    static {
+        for (int u = 0; u < LOW_FREQUENCY_SIZE; u++) {
+            for (int x = 0; x < DCT_SIZE; x++) {
+                COS_TABLE[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * DCT_SIZE));
+            }
+        }
+    }
+
+    private ImageHashUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 计算 pHash
+     *
+     * @param image 图片
+     * @return 64 位哈希
+     */
+    public static long pHash(BufferedImage image) {
+        double[] pixels = grayscale(image, DCT_SIZE, DCT_SIZE);
+        // 只需要左上角 8x8 的系数：先对行做一维 DCT（只算前 8 个频率），再对列做
+        double[] rows = new double[DCT_SIZE * LOW_FREQUENCY_SIZE];
+        for (int y = 0; y < DCT_SIZE; y++) {
+            for (int u = 0; u < LOW_FREQUENCY_SIZE; u++) {
+                double sum = 0;
+                for (int x = 0; x < DCT_SIZE; x++) {
+                    sum += pixels[y * DCT_SIZE + x] * COS_TABLE[u][x];
+                }
+                rows[y * LOW_FREQUENCY_SIZE + u] = sum;
+            }
+        }
+        double[] coefficients = new double[LOW_FREQUENCY_SIZE * LOW_FREQUENCY_SIZE];
+        for (int v = 0; v < LOW_FREQUENCY_SIZE; v++) {
+            for (int u = 0; u < LOW_FREQUENCY_SIZE; u++) {
+                double sum = 0;
+                for (int y = 0; y < DCT_SIZE; y++) {
+                    sum += rows[y * LOW_FREQUENCY_SIZE + u] * COS_TABLE[v][y];
+                }
+                coefficients[v * LOW_FREQUENCY_SIZE + u] = sum;
+            }
+        }
+        // 直流分量只反映整体亮度，不参与中位数计算
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 计算 dHash
+     *
+     * @param image 图片
+     * @return 64 位哈希
+     */
+    public static long dHash(BufferedImage image) {
+        double[] pixels = grayscale(image, 9, 8);
+        long hash = 0;
+        int bit = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                if (pixels[y * 9 + x] < pixels[y * 9 + x + 1]) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 汉明距离
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * 缩放到指定尺寸（不保持比例）并转为亮度，透明像素按白色背景处理
+     */
+    private static double[] grayscale(BufferedImage image, int width, int height) {
+        // 先用逐级减半缩小，避免一次插值到极小尺寸时丢失大部分像素
+        BufferedImage source = ImageProcessUtils.scaleToFit(image, width * 4, height * 4);
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        int[] rgbs = target.getRGB(0, 0, width, height, null, 0, width);
+        double[] pixels = new double[rgbs.length];
+        for (int i = 0; i < rgbs.length; i++) {
+            int rgb = rgbs[i];
+            pixels[i] = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+        }
+        return pixels;
+    }
+}
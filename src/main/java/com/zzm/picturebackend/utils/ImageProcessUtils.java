@@ -0,0 +1,176 @@
+package com.zzm.picturebackend.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 工具类：本地图片解码、缩放、编码和取主色调
+ */
+public class ImageProcessUtils {
+
+    private ImageProcessUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 解码图片，统一转换为 INT_RGB / INT_ARGB 便于后续按像素处理
+     * 解码前先读取文件头中的宽高，像素数超过上限时直接拒绝，避免体积很小但尺寸极大的图片占满内存
+     *
+     * @param bytes     图片内容
+     * @param maxPixels 像素数上限
+     * @return 图片；格式无法识别时返回 null
+     * @throws IOException 图片损坏或像素数超过上限
+     */
+    public static BufferedImage decode(byte[] bytes, long maxPixels) throws IOException {
+        BufferedImage image;
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new IOException("图片尺寸过大: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                image = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        return image.getType() == type ? image : convert(image, type);
+    }
+
+    /**
+     * 等比缩小到不超过指定宽高（小于指定宽高时原样返回）
+     * 每次缩小一半时双线性插值恰好是 2x2 区域平均，逐级减半直到剩余比例不足 2 倍，最后一步再插值到目标尺寸，
+     * 效果接近区域平均（area-averaging），速度比 Image.SCALE_AREA_AVERAGING 快一个数量级
+     *
+     * @param image     图片
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @return 缩小后的图片
+     */
+    public static BufferedImage scaleToFit(BufferedImage image, int maxWidth, int maxHeight) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= maxWidth && height <= maxHeight) {
+            return image;
+        }
+        double ratio = Math.min(maxWidth * 1.0 / width, maxHeight * 1.0 / height);
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = resize(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    /**
+     * 计算平均颜色，格式与数据万象返回的主色调一致（0xRRGGBB）
+     *
+     * @param image 图片（传入缩略图即可，区域平均后的均值与原图基本一致）
+     * @return 平均颜色
+     */
+    public static String averageColor(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int rgb : row) {
+                red += (rgb >> 16) & 0xFF;
+                green += (rgb >> 8) & 0xFF;
+                blue += rgb & 0xFF;
+            }
+        }
+        long count = (long) width * height;
+        return String.format("0x%02X%02X%02X", red / count, green / count, blue / count);
+    }
+
+    /**
+     * 编码图片
+     *
+     * @param image   图片
+     * @param format  格式（jpg / png）
+     * @param quality 压缩质量（0 到 1 之间，仅对有损格式生效）
+     * @return 编码后的内容
+     */
+    public static byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图片格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        // JPEG 不支持透明通道
+        BufferedImage output = image.getColorModel().hasAlpha() && !writerSupportsAlpha(format)
+                ? convert(image, BufferedImage.TYPE_INT_RGB) : image;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            if (writeParam.canWriteCompressed() && writeParam.getCompressionTypes() != null
+                    && writeParam.getCompressionTypes().length == 1) {
+                writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                writeParam.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(output, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static boolean writerSupportsAlpha(String format) {
+        return "png".equalsIgnoreCase(format) || "gif".equalsIgnoreCase(format);
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, image.getType());
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private static BufferedImage convert(BufferedImage image, int type) {
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = converted.createGraphics();
+        try {
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                // 透明区域按白色背景合成
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            }
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return converted;
+    }
+}
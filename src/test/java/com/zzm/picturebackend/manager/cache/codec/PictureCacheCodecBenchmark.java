@@ -0,0 +1,164 @@
+package com.zzm.picturebackend.manager.cache.codec;
+
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import com.zzm.picturebackend.model.vo.UserVO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片列表缓存编解码性能对比（JMH）
+ * 运行：在 IDE 中直接执行 main 方法，或 mvn test-compile 后以 test classpath 运行本类
+ * 对比项：原 Hutool JSON（toJsonStr + toBean(Page.class)）、JSON 编解码器、二进制编解码器、二进制 + LZ4
+ * 解码测试同时以辅助计数器 encodedBytes 输出各格式编码后的大小
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PictureCacheCodecBenchmark {
+
+    /**
+     * 每页条数，接口限制最大 20
+     */
+    @Param({"10", "20"})
+    private int pageSize;
+
+    private Page<PictureVO> pictureVOPage;
+
+    private final PictureCacheCodec jsonCodec = new JsonPictureCacheCodec();
+
+    private final PictureCacheCodec binaryCodec = new BinaryPictureCacheCodec();
+
+    private final PictureCacheCodec binaryLz4Codec = new Lz4PictureCacheCodec(new BinaryPictureCacheCodec());
+
+    private String hutoolJson;
+
+    private byte[] jsonBytes;
+
+    private byte[] binaryBytes;
+
+    private byte[] binaryLz4Bytes;
+
+    private int hutoolLength;
+
+    /**
+     * 编码后大小，作为 JMH 辅助计数器随结果输出
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        public int encodedBytes;
+    }
+
+    @Setup
+    public void setup() {
+        pictureVOPage = new Page<>(1, pageSize, 1000);
+        List<PictureVO> records = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            records.add(mockPictureVO(i));
+        }
+        pictureVOPage.setRecords(records);
+        hutoolJson = JSONUtil.toJsonStr(pictureVOPage);
+        jsonBytes = jsonCodec.encode(pictureVOPage);
+        binaryBytes = binaryCodec.encode(pictureVOPage);
+        binaryLz4Bytes = binaryLz4Codec.encode(pictureVOPage);
+        hutoolLength = hutoolJson.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public String hutoolEncode() {
+        return JSONUtil.toJsonStr(pictureVOPage);
+    }
+
+    @Benchmark
+    public Page<?> hutoolDecode(EncodedSize encodedSize) {
+        encodedSize.encodedBytes = hutoolLength;
+        return JSONUtil.toBean(hutoolJson, Page.class);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return jsonCodec.encode(pictureVOPage);
+    }
+
+    @Benchmark
+    public Page<PictureVO> jsonDecode(EncodedSize encodedSize) {
+        encodedSize.encodedBytes = jsonBytes.length;
+        return jsonCodec.decode(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binaryCodec.encode(pictureVOPage);
+    }
+
+    @Benchmark
+    public Page<PictureVO> binaryDecode(EncodedSize encodedSize) {
+        encodedSize.encodedBytes = binaryBytes.length;
+        return binaryCodec.decode(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] binaryLz4Encode() {
+        return binaryLz4Codec.encode(pictureVOPage);
+    }
+
+    @Benchmark
+    public Page<PictureVO> binaryLz4Decode(EncodedSize encodedSize) {
+        encodedSize.encodedBytes = binaryLz4Bytes.length;
+        return binaryLz4Codec.decode(binaryLz4Bytes);
+    }
+
+    private static PictureVO mockPictureVO(int i) {
+        PictureVO pictureVO = new PictureVO();
+        pictureVO.setId(1895000000000000000L + i);
+        pictureVO.setUrl("https://picture-1300000000.cos.ap-shanghai.myqcloud.com/public/1895000000000000000/2025-03-01_abcdefgh" + i + ".webp");
+        pictureVO.setThumbnailUrl("https://picture-1300000000.cos.ap-shanghai.myqcloud.com/public/1895000000000000000/2025-03-01_abcdefgh" + i + "_thumbnail.png");
+        pictureVO.setName("风景壁纸" + i);
+        pictureVO.setIntroduction("雪山湖泊倒影，适合作为桌面壁纸的高清风景图片");
+        pictureVO.setTags(Arrays.asList("风景", "高清", "壁纸"));
+        pictureVO.setCategory("壁纸");
+        pictureVO.setPicSize(523_456L + i);
+        pictureVO.setPicWidth(1920);
+        pictureVO.setPicHeight(1080);
+        pictureVO.setPicScale(1.78);
+        pictureVO.setPicFormat("webp");
+        pictureVO.setUserId(1894000000000000000L);
+        pictureVO.setCreateTime(new Date());
+        pictureVO.setEditTime(new Date());
+        pictureVO.setUpdateTime(new Date());
+        pictureVO.setPicColor("0x6a8caf");
+        UserVO userVO = new UserVO();
+        userVO.setId(1894000000000000000L);
+        userVO.setUserAccount("zzm");
+        userVO.setUserName("管理员");
+        userVO.setUserAvatar("https://picture-1300000000.cos.ap-shanghai.myqcloud.com/avatar/default.png");
+        userVO.setUserProfile("热爱摄影");
+        userVO.setUserRole("admin");
+        userVO.setCreateTime(new Date());
+        pictureVO.setUser(userVO);
+        return pictureVO;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PictureCacheCodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
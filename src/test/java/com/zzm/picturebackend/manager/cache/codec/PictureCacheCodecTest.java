@@ -0,0 +1,175 @@
+package com.zzm.picturebackend.manager.cache.codec;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.zzm.picturebackend.common.ScrollPage;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.model.dto.file.PaletteColor;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import com.zzm.picturebackend.utils.ColorMetricUtils;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 图片列表缓存编解码测试
+ * 用反射给 PictureVO（包括嵌套对象）的每个字段赋非空值，编码再解码后必须完全相等；
+ * 二进制编解码器按固定顺序写字段，新增字段忘记写入时这里会失败
+ */
+class PictureCacheCodecTest {
+
+    private final List<PictureCacheCodec> codecs = Arrays.asList(new JsonPictureCacheCodec(),
+            new BinaryPictureCacheCodec(), new Lz4PictureCacheCodec(new BinaryPictureCacheCodec()));
+
+    @Test
+    void roundTripEveryField() throws Exception {
+        Page<PictureVO> pictureVOPage = new Page<>(3, 20, 1234);
+        pictureVOPage.setRecords(mockRecords(20));
+        for (PictureCacheCodec codec : codecs) {
+            Page<PictureVO> decoded = codec.decode(codec.encode(pictureVOPage));
+            String name = codec.getClass().getSimpleName();
+            assertEquals(pictureVOPage.getCurrent(), decoded.getCurrent(), name);
+            assertEquals(pictureVOPage.getSize(), decoded.getSize(), name);
+            assertEquals(pictureVOPage.getTotal(), decoded.getTotal(), name);
+            assertEquals(pictureVOPage.getRecords(), decoded.getRecords(), name);
+        }
+    }
+
+    @Test
+    void roundTripScrollPage() throws Exception {
+        ScrollPage<PictureVO> scrollPage = new ScrollPage<>(1, 2);
+        scrollPage.setHasMore(true);
+        scrollPage.setNextCursor("cursor");
+        scrollPage.setRecords(mockRecords(2));
+        for (PictureCacheCodec codec : codecs) {
+            Page<PictureVO> decoded = codec.decode(codec.encode(scrollPage));
+            String name = codec.getClass().getSimpleName();
+            assertInstanceOf(ScrollPage.class, decoded, name);
+            assertTrue(((ScrollPage<PictureVO>) decoded).isHasMore(), name);
+            assertEquals("cursor", ((ScrollPage<PictureVO>) decoded).getNextCursor(), name);
+            assertEquals(scrollPage.getRecords(), decoded.getRecords(), name);
+        }
+    }
+
+    @Test
+    void roundTripNullFields() {
+        Page<PictureVO> pictureVOPage = new Page<>(1, 10, 1);
+        pictureVOPage.setRecords(new ArrayList<>(Arrays.asList(new PictureVO())));
+        for (PictureCacheCodec codec : codecs) {
+            Page<PictureVO> decoded = codec.decode(codec.encode(pictureVOPage));
+            assertEquals(pictureVOPage.getRecords(), decoded.getRecords(), codec.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void lz4RejectCorruptedRawLength() throws Exception {
+        Lz4PictureCacheCodec codec = new Lz4PictureCacheCodec(new BinaryPictureCacheCodec());
+        Page<PictureVO> pictureVOPage = new Page<>(1, 20, 20);
+        pictureVOPage.setRecords(mockRecords(20));
+        byte[] bytes = codec.encode(pictureVOPage);
+        // 数据足够大，确实经过了压缩
+        assertEquals(1, bytes[0]);
+        for (int rawLength : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 64 * 1024 * 1024}) {
+            byte[] corrupted = bytes.clone();
+            ByteBuffer.wrap(corrupted, 1, 4).putInt(rawLength);
+            assertThrows(BusinessException.class, () -> codec.decode(corrupted), String.valueOf(rawLength));
+        }
+        assertThrows(BusinessException.class, () -> codec.decode(new byte[]{1, 0, 0}));
+    }
+
+    private static List<PictureVO> mockRecords(int count) throws Exception {
+        List<PictureVO> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PictureVO pictureVO = fill(PictureVO.class, i);
+            // srcset 由缩放版本推导，不单独保存
+            pictureVO.setSrcset(PictureVO.buildSrcset(pictureVO));
+            assertAllFieldsPresent(pictureVO);
+            records.add(pictureVO);
+        }
+        return records;
+    }
+
+    /**
+     * 按字段类型给每个字段赋非空值，遇到不认识的类型直接失败，提醒补充测试数据
+     */
+    private static <T> T fill(Class<T> clazz, int seed) throws Exception {
+        T object = clazz.getDeclaredConstructor().newInstance();
+        int index = 0;
+        for (Field field : clazz.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            field.set(object, value(clazz, field.getName(), field.getGenericType(), seed * 100 + index++));
+        }
+        return object;
+    }
+
+    private static Object value(Class<?> owner, String name, Type type, int seed) throws Exception {
+        if (type == Long.class) {
+            return 1_900_000_000_000_000_000L + seed;
+        }
+        if (type == Integer.class) {
+            return 100 + seed;
+        }
+        if (type == Double.class) {
+            // 调色板占比按百分数保存
+            return owner == PaletteColor.class ? (seed % 100) / 100.0 : seed + 0.123456789;
+        }
+        if (type == Boolean.class) {
+            return seed % 2 == 0;
+        }
+        if (type == Date.class) {
+            return new Date(1_740_000_000_000L + seed);
+        }
+        if (type == String.class) {
+            // 调色板颜色为规范化的十六进制格式
+            return owner == PaletteColor.class ? ColorMetricUtils.toHex(0x102030 * (seed + 1)) : name + "-" + seed + "-图片";
+        }
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == List.class) {
+            Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                list.add(value(owner, name, elementType, seed * 10 + i));
+            }
+            return list;
+        }
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Map.class) {
+            // 派生字段（srcset），由调用方填充
+            return null;
+        }
+        if (type instanceof Class && ((Class<?>) type).getName().startsWith("com.zzm.picturebackend")) {
+            return fill((Class<?>) type, seed);
+        }
+        throw new AssertionError("测试数据不支持的字段类型：" + owner.getSimpleName() + "." + name + " " + type);
+    }
+
+    private static void assertAllFieldsPresent(Object object) throws IllegalAccessException {
+        for (Field field : object.getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            Object value = field.get(object);
+            assertNotNull(value, field.getName());
+            if (value instanceof List) {
+                assertFalse(((List<?>) value).isEmpty(), field.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.zzm.picturebackend.manager.search;
+
+import com.zzm.picturebackend.model.enums.ColorMetricEnum;
+import com.zzm.picturebackend.utils.ColorMetricUtils;
+import com.zzm.picturebackend.utils.ColorSimilarUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 以色搜图性能对比（JMH）
+ * 运行：在 IDE 中直接执行 main 方法，或 mvn test-compile 后以 test classpath 运行本类
+ * 对比项：原实现（Color.decode + ColorSimilarUtils 全量排序）、索引 RGB 扫描、索引 CIEDE2000（CIE76 粗筛 + 精排）、CIEDE2000 全量计算
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PictureColorSearchBenchmark {
+
+    private static final int TOP_K = 12;
+
+    /**
+     * 空间内有主色调的图片数
+     */
+    @Param({"1000", "10000", "100000"})
+    private int pictureCount;
+
+    private List<String> picColors;
+
+    private PictureColorIndex.SpaceColors spaceColors;
+
+    private float[][] labs;
+
+    private String targetHex;
+
+    private int targetRgb;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        picColors = new ArrayList<>(pictureCount);
+        spaceColors = new PictureColorIndex.SpaceColors();
+        labs = new float[pictureCount][3];
+        for (int i = 0; i < pictureCount; i++) {
+            int rgb = random.nextInt(0x1000000);
+            picColors.add(ColorMetricUtils.toHex(rgb));
+            spaceColors.put(i, rgb);
+            ColorMetricUtils.rgbToLab(rgb, labs[i]);
+        }
+        targetRgb = 0x6A8CAF;
+        targetHex = ColorMetricUtils.toHex(targetRgb);
+    }
+
+    @Benchmark
+    public List<Integer> legacySort() {
+        Color targetColor = Color.decode(targetHex);
+        List<Integer> indexes = new ArrayList<>(pictureCount);
+        for (int i = 0; i < pictureCount; i++) {
+            indexes.add(i);
+        }
+        return indexes.stream()
+                .sorted(Comparator.comparingDouble(i -> -ColorSimilarUtils.calculateSimilarity(targetColor, Color.decode(picColors.get(i)))))
+                .limit(TOP_K)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Long> indexRgb() {
+        return spaceColors.nearest(targetRgb, TOP_K, ColorMetricEnum.RGB);
+    }
+
+    @Benchmark
+    public List<Long> indexCiede2000() {
+        return spaceColors.nearest(targetRgb, TOP_K, ColorMetricEnum.CIEDE2000);
+    }
+
+    @Benchmark
+    public int[] exactCiede2000() {
+        float[] targetLab = new float[3];
+        ColorMetricUtils.rgbToLab(targetRgb, targetLab);
+        float[] distances = new float[pictureCount];
+        for (int i = 0; i < pictureCount; i++) {
+            distances[i] = (float) ColorMetricUtils.ciede2000(targetLab[0], targetLab[1], targetLab[2], labs[i][0], labs[i][1], labs[i][2]);
+        }
+        return PictureColorIndex.SpaceColors.selectNearest(distances, pictureCount, TOP_K);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PictureColorSearchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
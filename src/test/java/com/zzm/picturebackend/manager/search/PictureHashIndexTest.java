@@ -0,0 +1,167 @@
+package com.zzm.picturebackend.manager.search;
+
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.entity.Picture;
+import com.zzm.picturebackend.model.enums.PictureReviewStatusEnum;
+import com.zzm.picturebackend.utils.ImageHashUtils;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 图片哈希索引测试
+ * 多索引哈希只探查每段 r / 4 以内的取值，这里和暴力扫描对比，确认距离恰好等于阈值的图片也不会漏掉
+ */
+class PictureHashIndexTest {
+
+    private static final int PASS = PictureReviewStatusEnum.PASS.getValue();
+
+    private static final int REVIEWING = PictureReviewStatusEnum.REVIEWING.getValue();
+
+    private final List<Picture> table = new ArrayList<>();
+
+    @Test
+    void matchRecallsEveryHashWithinThreshold() {
+        Random random = new Random(42);
+        long[] queries = new long[8];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextLong();
+        }
+        long id = 1;
+        // 随机哈希作为背景
+        for (int i = 0; i < 2000; i++) {
+            addPicture(id++, null, PASS, random.nextLong());
+        }
+        for (long query : queries) {
+            for (int distance = 0; distance <= 20; distance++) {
+                // 翻转的位平均分布在 4 段，每段距离都接近 r / 4，是多索引哈希最容易漏掉的情况
+                addPicture(id++, null, PASS, query ^ evenlySpreadBits(distance, random));
+                // 翻转的位随机分布
+                addPicture(id++, null, PASS, query ^ randomBits(distance, random));
+            }
+        }
+        PictureHashIndex pictureHashIndex = buildIndex();
+        for (long query : queries) {
+            for (int maxDistance = 0; maxDistance <= 16; maxDistance++) {
+                Set<Long> expected = bruteForce(query, maxDistance);
+                Set<Long> actual = pictureHashIndex.match(query, null, null, null, maxDistance, null).stream()
+                        .map(PictureHashIndex.HashMatch::getId)
+                        .collect(Collectors.toCollection(TreeSet::new));
+                assertEquals(expected, actual, "maxDistance = " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void matchIsSortedByDistance() {
+        Random random = new Random(7);
+        long query = random.nextLong();
+        for (int i = 1; i <= 50; i++) {
+            addPicture(i, null, PASS, query ^ randomBits(i % 11, random));
+        }
+        List<PictureHashIndex.HashMatch> matches = buildIndex().match(query, null, null, null, 10, null);
+        assertEquals(50, matches.size());
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).getDistance() <= matches.get(i).getDistance());
+        }
+    }
+
+    @Test
+    void searchFiltersBeforeLimit() {
+        Random random = new Random(1);
+        long query = random.nextLong();
+        // 30 张更相似但未过审或在其他空间的图片，排在 5 张过审的公共图片前面
+        for (int i = 1; i <= 30; i++) {
+            addPicture(i, i % 2 == 0 ? 9L : null, i % 2 == 0 ? PASS : REVIEWING, query ^ randomBits(1, random));
+        }
+        for (int i = 31; i <= 35; i++) {
+            addPicture(i, null, PASS, query ^ randomBits(6, random));
+        }
+        PictureHashIndex pictureHashIndex = buildIndex();
+        List<Long> result = pictureHashIndex.search(query, null, null, PASS, 10, 20, null);
+        assertEquals(List.of(35L, 34L, 33L, 32L, 31L), result);
+        List<Long> spaceResult = pictureHashIndex.search(query, null, 9L, PASS, 10, 20, null);
+        assertEquals(15, spaceResult.size());
+        assertTrue(spaceResult.stream().allMatch(id -> id % 2 == 0 && id <= 30));
+    }
+
+    @Test
+    void excludeQueryPicture() {
+        long query = 0x0123456789ABCDEFL;
+        addPicture(1, null, PASS, query);
+        addPicture(2, null, PASS, query);
+        List<Long> result = buildIndex().search(query, null, null, PASS, 0, 20, 1L);
+        assertEquals(Collections.singletonList(2L), result);
+    }
+
+    /**
+     * 用内存中的图片表重建索引：第一批返回全部图片，第二批返回空表示扫描结束
+     */
+    private PictureHashIndex buildIndex() {
+        PictureMapper pictureMapper = Mockito.mock(PictureMapper.class);
+        when(pictureMapper.selectList(any())).thenReturn(new ArrayList<>(table), Collections.emptyList());
+        PictureHashIndex pictureHashIndex = new PictureHashIndex();
+        ReflectionTestUtils.setField(pictureHashIndex, "pictureMapper", pictureMapper);
+        ReflectionTestUtils.setField(pictureHashIndex, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        pictureHashIndex.rebuild();
+        assertTrue(pictureHashIndex.isReady());
+        return pictureHashIndex;
+    }
+
+    private Set<Long> bruteForce(long query, int maxDistance) {
+        return table.stream()
+                .filter(picture -> ImageHashUtils.distance(query, picture.getPhash()) <= maxDistance)
+                .map(Picture::getId)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private void addPicture(long id, Long spaceId, int reviewStatus, long phash) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setSpaceId(spaceId);
+        picture.setReviewStatus(reviewStatus);
+        picture.setPhash(phash);
+        table.add(picture);
+    }
+
+    /**
+     * 翻转 distance 位，依次落在 4 段中（每段最多相差 1 位）
+     */
+    private static long evenlySpreadBits(int distance, Random random) {
+        long mask = 0;
+        for (int i = 0; i < distance; i++) {
+            int chunk = i % 4;
+            long bit;
+            do {
+                bit = 1L << (chunk * 16 + random.nextInt(16));
+            } while ((mask & bit) != 0);
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    /**
+     * 随机翻转 distance 位
+     */
+    private static long randomBits(int distance, Random random) {
+        long mask = 0;
+        while (Long.bitCount(mask) < distance) {
+            mask |= 1L << random.nextInt(64);
+        }
+        return mask;
+    }
+}
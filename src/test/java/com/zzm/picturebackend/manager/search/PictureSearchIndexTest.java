@@ -0,0 +1,102 @@
+package com.zzm.picturebackend.manager.search;
+
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.zzm.picturebackend.model.entity.Picture;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 图片搜索索引测试
+ * 索引代替 LIKE '%x%' 查询，英文、数字查询词至少要能匹配到以它开头的词（如批量抓取生成的 "dog12"）
+ */
+class PictureSearchIndexTest {
+
+    private final List<Picture> table = new ArrayList<>();
+
+    @Test
+    void splitLettersAndDigits() {
+        assertEquals(Set.of("dog", "12"), SearchTokenizer.tokenizeForQuery("Dog12"));
+        assertEquals(List.of("d", "do", "dog", "1", "12"), SearchTokenizer.tokenizeForIndex("dog12"));
+        assertEquals(Set.of("iphone", "15", "pro"), SearchTokenizer.tokenizeForQuery("iPhone15 Pro"));
+    }
+
+    @Test
+    void queryDoesNotExpandPrefixes() {
+        assertEquals(Set.of("sunset"), SearchTokenizer.tokenizeForQuery("sunset"));
+    }
+
+    @Test
+    void cjkTokenization() {
+        assertEquals(List.of("风", "景", "风景"), SearchTokenizer.tokenizeForIndex("风景"));
+        assertEquals(Set.of("风景"), SearchTokenizer.tokenizeForQuery("风景"));
+        assertEquals(List.of("风", "景", "风景", "s", "su", "sun"), SearchTokenizer.tokenizeForIndex("风景sun"));
+    }
+
+    @Test
+    void dogMatchesDog12() {
+        addPicture(1, "dog1");
+        addPicture(2, "dog12");
+        addPicture(3, "dog");
+        addPicture(4, "doghouse");
+        addPicture(5, "cat12");
+        PictureSearchIndex pictureSearchIndex = buildIndex();
+        assertEquals(Set.of(1L, 2L, 3L, 4L), search(pictureSearchIndex, "dog"));
+        assertEquals(Set.of(2L), search(pictureSearchIndex, "dog12"));
+        assertEquals(Set.of(1L, 2L), search(pictureSearchIndex, "dog1"));
+        assertEquals(Set.of(2L, 5L), search(pictureSearchIndex, "12"));
+        assertEquals(Set.of(4L), search(pictureSearchIndex, "dogh"));
+        assertTrue(search(pictureSearchIndex, "dogs").isEmpty());
+    }
+
+    @Test
+    void sunMatchesSunset() {
+        addPicture(1, "Sunset over the sea");
+        addPicture(2, "sun");
+        addPicture(3, "moon");
+        PictureSearchIndex pictureSearchIndex = buildIndex();
+        assertEquals(Set.of(1L, 2L), search(pictureSearchIndex, "sun"));
+        assertEquals(Set.of(1L), search(pictureSearchIndex, "sunset sea"));
+        // 完整匹配的图片排在前面
+        assertEquals(2L, pictureSearchIndex.search("sun", new PictureQueryRequest(), 10).get(0));
+    }
+
+    private Set<Long> search(PictureSearchIndex pictureSearchIndex, String searchText) {
+        return new TreeSet<>(pictureSearchIndex.search(searchText, new PictureQueryRequest(), 10));
+    }
+
+    /**
+     * 用内存中的图片表重建索引：第一批返回全部图片，第二批返回空表示扫描结束
+     */
+    private PictureSearchIndex buildIndex() {
+        PictureMapper pictureMapper = Mockito.mock(PictureMapper.class);
+        when(pictureMapper.selectList(any())).thenReturn(new ArrayList<>(table), Collections.emptyList());
+        PictureSearchIndex pictureSearchIndex = new PictureSearchIndex();
+        ReflectionTestUtils.setField(pictureSearchIndex, "pictureMapper", pictureMapper);
+        ReflectionTestUtils.setField(pictureSearchIndex, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        pictureSearchIndex.rebuild();
+        assertTrue(pictureSearchIndex.isReady());
+        return pictureSearchIndex;
+    }
+
+    private void addPicture(long id, String name) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setName(name);
+        picture.setReviewStatus(1);
+        table.add(picture);
+    }
+}
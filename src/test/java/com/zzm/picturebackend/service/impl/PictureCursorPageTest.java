@@ -0,0 +1,217 @@
+package com.zzm.picturebackend.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zzm.picturebackend.common.ScrollPage;
+import com.zzm.picturebackend.exception.BusinessException;
+import com.zzm.picturebackend.manager.cache.UserCacheManager;
+import com.zzm.picturebackend.mapper.PictureMapper;
+import com.zzm.picturebackend.model.dto.picture.PictureCursor;
+import com.zzm.picturebackend.model.dto.picture.PictureQueryRequest;
+import com.zzm.picturebackend.model.entity.Picture;
+import com.zzm.picturebackend.model.vo.PictureVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 游标分页测试
+ * 用内存中的图片表模拟数据库：校验生成的游标条件和排序子句，再按相同语义过滤、排序、截取 LIMIT
+ */
+class PictureCursorPageTest {
+
+    private static final Pattern LIMIT_PATTERN = Pattern.compile(" LIMIT (\\d+)$");
+
+    private static final String CREATE_TIME_CURSOR = "((createTime < #{ew.paramNameValuePairs.MPGENVAL1}"
+            + " OR (createTime = #{ew.paramNameValuePairs.MPGENVAL2} AND id < #{ew.paramNameValuePairs.MPGENVAL3})))";
+
+    private static final String ID_CURSOR = "(id < #{ew.paramNameValuePairs.MPGENVAL1})";
+
+    private final List<Picture> table = new ArrayList<>();
+
+    private PictureServiceImpl pictureService;
+
+    @BeforeEach
+    void setUp() {
+        PictureMapper pictureMapper = Mockito.mock(PictureMapper.class);
+        when(pictureMapper.selectList(any())).thenAnswer(invocation -> select(invocation.getArgument(0)));
+        pictureService = new PictureServiceImpl();
+        ReflectionTestUtils.setField(pictureService, "baseMapper", pictureMapper);
+        ReflectionTestUtils.setField(pictureService, "userCacheManager", Mockito.mock(UserCacheManager.class));
+    }
+
+    @Test
+    void firstPage() {
+        addPictures(1, 5, 1000);
+        ScrollPage<PictureVO> page = pictureService.listPictureVOByCursor(request(2, "createTime", null), null);
+        assertEquals(List.of(5L, 4L), ids(page));
+        assertTrue(page.isHasMore());
+        PictureCursor cursor = PictureCursor.decode(page.getNextCursor());
+        assertEquals("createTime", cursor.getSortField());
+        assertEquals(4000L, cursor.getSortValue());
+        assertEquals(4L, cursor.getId());
+    }
+
+    @Test
+    void nextPage() {
+        addPictures(1, 5, 1000);
+        ScrollPage<PictureVO> first = pictureService.listPictureVOByCursor(request(2, "createTime", null), null);
+        ScrollPage<PictureVO> second = pictureService.listPictureVOByCursor(request(2, "createTime", first.getNextCursor()), null);
+        assertEquals(List.of(3L, 2L), ids(second));
+        assertTrue(second.isHasMore());
+    }
+
+    @Test
+    void lastPage() {
+        addPictures(1, 5, 1000);
+        String cursor = new PictureCursor("createTime", 2000L, 2L).encode();
+        ScrollPage<PictureVO> page = pictureService.listPictureVOByCursor(request(2, "createTime", cursor), null);
+        assertEquals(List.of(1L), ids(page));
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void exactlyFullLastPage() {
+        addPictures(1, 4, 1000);
+        String cursor = new PictureCursor("createTime", 3000L, 3L).encode();
+        ScrollPage<PictureVO> page = pictureService.listPictureVOByCursor(request(2, "createTime", cursor), null);
+        assertEquals(List.of(2L, 1L), ids(page));
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void tieBreakingOnEqualSortValues() {
+        // 7 张图片只有 3 个不同的创建时间，页边界落在相同时间的中间
+        addPicture(10, 3000);
+        addPicture(11, 3000);
+        addPicture(12, 3000);
+        addPicture(13, 2000);
+        addPicture(14, 2000);
+        addPicture(15, 1000);
+        addPicture(16, 3000);
+        List<Long> expected = List.of(16L, 12L, 11L, 10L, 14L, 13L, 15L);
+        assertEquals(expected, scrollAll(2, "createTime"));
+        assertEquals(expected, scrollAll(3, "createTime"));
+        assertEquals(expected, scrollAll(1, "createTime"));
+    }
+
+    @Test
+    void defaultSortById() {
+        addPictures(1, 5, 1000);
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), scrollAll(2, null));
+    }
+
+    @Test
+    void rejectInvalidPageSize() {
+        addPictures(1, 3, 1000);
+        assertThrows(BusinessException.class, () -> pictureService.listPictureVOByCursor(request(0, null, null), null));
+        assertThrows(BusinessException.class, () -> pictureService.listPictureVOByCursor(request(-1, null, null), null));
+        assertThrows(BusinessException.class, () -> pictureService.listPictureVOByCursor(request(21, null, null), null));
+    }
+
+    @Test
+    void rejectMutableSortField() {
+        addPictures(1, 3, 1000);
+        assertThrows(BusinessException.class, () -> pictureService.listPictureVOByCursor(request(2, "editTime", null), null));
+    }
+
+    /**
+     * 从第一页开始一直翻到最后一页，返回依次读到的 id
+     */
+    private List<Long> scrollAll(int pageSize, String sortField) {
+        List<Long> result = new ArrayList<>();
+        String cursor = null;
+        for (int i = 0; i <= table.size(); i++) {
+            ScrollPage<PictureVO> page = pictureService.listPictureVOByCursor(request(pageSize, sortField, cursor), null);
+            result.addAll(ids(page));
+            if (!page.isHasMore()) {
+                assertNull(page.getNextCursor());
+                return result;
+            }
+            cursor = page.getNextCursor();
+            assertNotNull(cursor);
+        }
+        throw new AssertionError("翻页没有结束");
+    }
+
+    private static PictureQueryRequest request(int pageSize, String sortField, String cursor) {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        pictureQueryRequest.setPageSize(pageSize);
+        pictureQueryRequest.setSortField(sortField);
+        pictureQueryRequest.setCursor(cursor);
+        return pictureQueryRequest;
+    }
+
+    private void addPictures(long fromId, long toId, long timeStep) {
+        for (long id = fromId; id <= toId; id++) {
+            addPicture(id, id * timeStep);
+        }
+    }
+
+    private void addPicture(long id, long createTime) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setUserId(1L);
+        picture.setCreateTime(new Date(createTime));
+        table.add(picture);
+    }
+
+    private static List<Long> ids(ScrollPage<PictureVO> page) {
+        return page.getRecords().stream().map(PictureVO::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * 模拟数据库执行：只接受游标分页会生成的两种条件，其余形式视为测试失败
+     */
+    private List<Picture> select(QueryWrapper<Picture> queryWrapper) {
+        String sql = queryWrapper.getSqlSegment().trim();
+        Map<String, Object> params = queryWrapper.getParamNameValuePairs();
+        Matcher limitMatcher = LIMIT_PATTERN.matcher(sql);
+        assertTrue(limitMatcher.find(), sql);
+        int limit = Integer.parseInt(limitMatcher.group(1));
+        Stream<Picture> rows = table.stream();
+        Comparator<Picture> order;
+        if (sql.contains("createTime")) {
+            assertTrue(sql.endsWith("ORDER BY createTime DESC,id DESC LIMIT " + limit), sql);
+            if (sql.startsWith("(")) {
+                assertTrue(sql.startsWith(CREATE_TIME_CURSOR), sql);
+                Date lastValue = (Date) params.get("MPGENVAL1");
+                assertEquals(lastValue, params.get("MPGENVAL2"));
+                long lastId = (Long) params.get("MPGENVAL3");
+                rows = rows.filter(picture -> picture.getCreateTime().before(lastValue)
+                        || picture.getCreateTime().equals(lastValue) && picture.getId() < lastId);
+            }
+            order = Comparator.comparing(Picture::getCreateTime).thenComparing(Picture::getId).reversed();
+        } else {
+            assertTrue(sql.endsWith("ORDER BY id DESC LIMIT " + limit), sql);
+            if (sql.startsWith("(")) {
+                assertTrue(sql.startsWith(ID_CURSOR), sql);
+                long lastId = (Long) params.get("MPGENVAL1");
+                rows = rows.filter(picture -> picture.getId() < lastId);
+            }
+            order = Comparator.comparing(Picture::getId).reversed();
+        }
+        return rows.sorted(order).limit(limit).collect(Collectors.toList());
+    }
+}
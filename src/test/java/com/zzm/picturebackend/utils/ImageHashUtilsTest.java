@@ -0,0 +1,130 @@
+package com.zzm.picturebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 感知哈希测试
+ * 用固定种子生成的色块图片构造距离已知的图片对：同一张图片、缩放 / 重新编码后的变体、反色、完全不同的图片
+ */
+class ImageHashUtilsTest {
+
+    /**
+     * 同一张图片的变体允许的最大距离
+     */
+    private static final int VARIANT_DISTANCE = 4;
+
+    /**
+     * 以图搜图的默认距离阈值，不同图片的距离必须超过它
+     */
+    private static final int SIMILAR_DISTANCE = 10;
+
+    private static final long[] SEEDS = {1, 2, 3, 4, 5};
+
+    @Test
+    void identicalImagesHaveZeroDistance() {
+        for (long seed : SEEDS) {
+            BufferedImage image1 = scene(seed, 400, 300);
+            BufferedImage image2 = scene(seed, 400, 300);
+            assertEquals(0, ImageHashUtils.distance(ImageHashUtils.pHash(image1), ImageHashUtils.pHash(image2)));
+            assertEquals(0, ImageHashUtils.distance(ImageHashUtils.dHash(image1), ImageHashUtils.dHash(image2)));
+        }
+    }
+
+    @Test
+    void scaledAndReencodedVariantsAreClose() throws Exception {
+        for (long seed : SEEDS) {
+            BufferedImage image = scene(seed, 400, 300);
+            BufferedImage scaled = ImageProcessUtils.scaleToFit(image, 200, 150);
+            BufferedImage jpeg = ImageIO.read(new ByteArrayInputStream(ImageProcessUtils.encode(image, "jpg", 0.5f)));
+            BufferedImage brighter = map(image, rgb -> {
+                int r = Math.min(255, (rgb >> 16 & 0xFF) + 20);
+                int g = Math.min(255, (rgb >> 8 & 0xFF) + 20);
+                int b = Math.min(255, (rgb & 0xFF) + 20);
+                return r << 16 | g << 8 | b;
+            });
+            for (BufferedImage variant : new BufferedImage[]{scaled, jpeg, brighter}) {
+                int phashDistance = ImageHashUtils.distance(ImageHashUtils.pHash(image), ImageHashUtils.pHash(variant));
+                int dhashDistance = ImageHashUtils.distance(ImageHashUtils.dHash(image), ImageHashUtils.dHash(variant));
+                assertTrue(phashDistance <= VARIANT_DISTANCE, "seed " + seed + " pHash 距离 " + phashDistance);
+                assertTrue(dhashDistance <= VARIANT_DISTANCE, "seed " + seed + " dHash 距离 " + dhashDistance);
+            }
+        }
+    }
+
+    @Test
+    void differentImagesAreFar() {
+        for (long seed : SEEDS) {
+            BufferedImage image1 = scene(seed, 400, 300);
+            BufferedImage image2 = scene(seed + 100, 400, 300);
+            int distance = ImageHashUtils.distance(ImageHashUtils.pHash(image1), ImageHashUtils.pHash(image2));
+            assertTrue(distance > SIMILAR_DISTANCE, "seed " + seed + " pHash 距离 " + distance);
+        }
+    }
+
+    @Test
+    void invertedImageFlipsAllButTwoPHashBits() {
+        // 反色后交流系数全部取反、中位数随之取反，只有直流分量和落在中位数另一侧的一个系数不翻转
+        for (long seed : SEEDS) {
+            BufferedImage image = scene(seed, 400, 300);
+            BufferedImage inverted = map(image, rgb -> ~rgb & 0xFFFFFF);
+            assertEquals(62, ImageHashUtils.distance(ImageHashUtils.pHash(image), ImageHashUtils.pHash(inverted)));
+        }
+    }
+
+    @Test
+    void horizontalGradientDHash() {
+        // 从左到右变亮：每一位都是左边比右边暗；反色后等同于左右翻转，每一位都相反
+        BufferedImage gradient = new BufferedImage(360, 80, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < gradient.getHeight(); y++) {
+            for (int x = 0; x < gradient.getWidth(); x++) {
+                int value = x * 255 / (gradient.getWidth() - 1);
+                gradient.setRGB(x, y, value << 16 | value << 8 | value);
+            }
+        }
+        BufferedImage mirrored = map(gradient, rgb -> ~rgb & 0xFFFFFF);
+        assertEquals(-1L, ImageHashUtils.dHash(gradient));
+        assertEquals(0L, ImageHashUtils.dHash(mirrored));
+        assertEquals(64, ImageHashUtils.distance(ImageHashUtils.dHash(gradient), ImageHashUtils.dHash(mirrored)));
+    }
+
+    /**
+     * 纯色背景上随机叠加若干椭圆色块
+     */
+    private static BufferedImage scene(long seed, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(seed);
+        try {
+            graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            graphics.fillRect(0, 0, width, height);
+            for (int i = 0; i < 12; i++) {
+                graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+                graphics.fillOval((int) (random.nextDouble() * width) - width / 8, (int) (random.nextDouble() * height) - height / 8,
+                        (int) (width / 4 + random.nextDouble() * width / 3), (int) (height / 4 + random.nextDouble() * height / 3));
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage map(BufferedImage image, IntUnaryOperator operator) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                result.setRGB(x, y, operator.applyAsInt(image.getRGB(x, y) & 0xFFFFFF));
+            }
+        }
+        return result;
+    }
+}